@@ -1,17 +1,34 @@
 package com.backendspa.controller;
 
+import com.backendspa.dto.IngresoReporte;
 import com.backendspa.entity.Cliente;
 import com.backendspa.entity.Empleado;
+import com.backendspa.entity.IngresoResumen;
 import com.backendspa.entity.Reserva;
+import com.backendspa.entity.Servicio;
+import com.backendspa.security.IdentityCache;
 import com.backendspa.service.ClienteService;
 import com.backendspa.service.EmpleadoService;
+import com.backendspa.service.ExportacionService;
+import com.backendspa.service.IngresosService;
 import com.backendspa.service.ReservaService;
+import com.backendspa.service.ServicioService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -20,11 +37,21 @@ public class AdminController {
     private final EmpleadoService empleadoService;
     private final ClienteService clienteService;
     private final ReservaService reservaService;
+    private final ServicioService servicioService;
+    private final IdentityCache identityCache;
+    private final ExportacionService exportacionService;
+    private final IngresosService ingresosService;
 
-    public AdminController(EmpleadoService empleadoService, ClienteService clienteService, ReservaService reservaService) {
+    public AdminController(EmpleadoService empleadoService, ClienteService clienteService, ReservaService reservaService,
+                           ServicioService servicioService, IdentityCache identityCache, ExportacionService exportacionService,
+                           IngresosService ingresosService) {
         this.empleadoService = empleadoService;
         this.clienteService = clienteService;
         this.reservaService = reservaService;
+        this.servicioService = servicioService;
+        this.identityCache = identityCache;
+        this.exportacionService = exportacionService;
+        this.ingresosService = ingresosService;
     }
 
     // CRUD para Empleados
@@ -115,7 +142,18 @@ public class AdminController {
 
     // CRUD para Reservas
     @GetMapping("/reservas")
-    public ResponseEntity<List<Reserva>> getAllReservas() {
+    public ResponseEntity<?> getReservas(@RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(reservaService.getReservasPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Listado completo sin paginar, solo para exportaciones
+    @GetMapping("/reservas/export")
+    public ResponseEntity<List<Reserva>> exportReservas() {
         return ResponseEntity.ok(reservaService.getAllReservas());
     }
 
@@ -198,6 +236,119 @@ public class AdminController {
         }
     }
 
+    // CRUD para Servicios (cada escritura refresca el catálogo en memoria)
+    @GetMapping("/servicios")
+    public ResponseEntity<List<Servicio>> getAllServicios() {
+        return ResponseEntity.ok(servicioService.getAllServicios());
+    }
+
+    @PostMapping("/servicios")
+    public ResponseEntity<Servicio> createServicio(@RequestBody Servicio servicio) {
+        try {
+            Servicio nuevoServicio = servicioService.createServicio(servicio);
+            return ResponseEntity.status(HttpStatus.CREATED).body(nuevoServicio);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    @PutMapping("/servicios/{id}")
+    public ResponseEntity<Servicio> updateServicio(@PathVariable Long id, @RequestBody Servicio servicio) {
+        try {
+            Servicio updatedServicio = servicioService.updateServicio(id, servicio);
+            return ResponseEntity.ok(updatedServicio);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+    }
+
+    @DeleteMapping("/servicios/{id}")
+    public ResponseEntity<Void> deleteServicio(@PathVariable Long id) {
+        try {
+            servicioService.deleteServicio(id);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    // Exportaciones en streaming (formato=ndjson|csv): 503 si ya hay demasiadas en curso
+    @GetMapping("/export/reservas")
+    public ResponseEntity<StreamingResponseBody> exportarReservas(@RequestParam(required = false) String formato) {
+        return exportar("reservas", formato, exportacionService::exportarReservas);
+    }
+
+    @GetMapping("/export/pagos")
+    public ResponseEntity<StreamingResponseBody> exportarPagos(@RequestParam(required = false) String formato) {
+        return exportar("pagos", formato, exportacionService::exportarPagos);
+    }
+
+    @GetMapping("/export/clientes")
+    public ResponseEntity<StreamingResponseBody> exportarClientes(@RequestParam(required = false) String formato) {
+        return exportar("clientes", formato, exportacionService::exportarClientes);
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportar(String nombre, String formato,
+                                                           Function<ExportacionService.Formato, Optional<StreamingResponseBody>> exportacion) {
+        ExportacionService.Formato tipo;
+        try {
+            tipo = ExportacionService.Formato.desde(formato);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String archivo = nombre + (tipo == ExportacionService.Formato.CSV ? ".csv" : ".ndjson");
+        return exportacion.apply(tipo)
+                .map(cuerpo -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(tipo.getContentType()))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + "\"")
+                        .body(cuerpo))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "30")
+                        .build());
+    }
+
+    // Reporte de ingresos (dimension=MEDIO_PAGO|SERVICIO|EMPLEADO, granularidad=DIA|MES) leído del resumen
+    @GetMapping("/ingresos")
+    public ResponseEntity<List<IngresoReporte>> getIngresos(@RequestParam String dimension,
+                                                            @RequestParam(defaultValue = "DIA") String granularidad,
+                                                            @RequestParam LocalDate desde,
+                                                            @RequestParam LocalDate hasta) {
+        try {
+            return ResponseEntity.ok(ingresosService.getIngresos(
+                    IngresoResumen.Granularidad.valueOf(granularidad.toUpperCase()),
+                    IngresoResumen.Dimension.valueOf(dimension.toUpperCase()), desde, hasta));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Reconstrucción completa del resumen de ingresos en segundo plano: 409 si ya hay una en curso
+    @PostMapping("/ingresos/reconstruccion")
+    public ResponseEntity<IngresosService.EstadoReconstruccion> reconstruirIngresos() {
+        if (!ingresosService.iniciarReconstruccion()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ingresosService.getEstadoReconstruccion());
+        }
+        return ResponseEntity.accepted().body(ingresosService.getEstadoReconstruccion());
+    }
+
+    @GetMapping("/ingresos/reconstruccion")
+    public ResponseEntity<IngresosService.EstadoReconstruccion> getReconstruccionIngresos() {
+        return ResponseEntity.ok(ingresosService.getEstadoReconstruccion());
+    }
+
+    // Métricas de la cache de identidades
+    @GetMapping("/metricas/identidad")
+    public ResponseEntity<Map<String, Object>> getMetricasIdentidad() {
+        CacheStats stats = identityCache.stats();
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("aciertos", stats.hitCount());
+        metricas.put("fallos", stats.missCount());
+        metricas.put("tasaAciertos", stats.hitRate());
+        metricas.put("desalojos", stats.evictionCount());
+        metricas.put("entradas", identityCache.size());
+        return ResponseEntity.ok(metricas);
+    }
+
     public static class ReservaRequest {
         public Long clienteId;
         public Long empleadoId;
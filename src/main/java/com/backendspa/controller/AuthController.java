@@ -1,77 +1,87 @@
 package com.backendspa.controller;
 
 import com.backendspa.entity.Cliente;
+import com.backendspa.security.JwtClaims;
 import com.backendspa.security.JwtUtil;
+import com.backendspa.security.PoliticaContrasenas;
+import com.backendspa.security.RevocacionTokens;
 import com.backendspa.security.SpaUserDetails;
+import com.backendspa.security.SpaUserDetailsService;
+import com.backendspa.security.VerificadorContrasenas;
 import com.backendspa.service.ClienteService;
-import com.backendspa.service.EmpleadoService;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
     @Autowired
-    private AuthenticationManager authenticationManager;
+    private SpaUserDetailsService userDetailsService;
+
+    @Autowired
+    private VerificadorContrasenas verificadorContrasenas;
+
+    @Autowired
+    private PoliticaContrasenas politicaContrasenas;
 
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
-    private ClienteService clienteService;
+    private RevocacionTokens revocacionTokens;
 
     @Autowired
-    private EmpleadoService empleadoService;
+    private ClienteService clienteService;
 
     @PostMapping("/login")
     public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> loginRequest) {
         String email = loginRequest.get("email");
         String password = loginRequest.get("password");
 
-        // Verificar si el correo existe (clientes o empleados)
-        if (!clienteService.getClienteByEmail(email).isPresent() && !empleadoService.getEmpleadoByEmail(email).isPresent()) {
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("message", "El correo no está registrado");
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        }
-
         try {
-            // Intentar autenticar
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(email, password)
-            );
+            // Una sola búsqueda (clientes o empleados, a través de la cache de identidades)
+            SpaUserDetails userDetails = userDetailsService.buscarPorEmail(email);
+            if (userDetails == null) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("message", "El correo no está registrado");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+            }
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            SpaUserDetails userDetails = (SpaUserDetails) authentication.getPrincipal();
-            String jwt = jwtUtil.generateToken(userDetails);
+            // bcrypt en su propio pool acotado: si está saturado se pide reintentar en vez de encolar sin límite
+            Optional<Boolean> coincide = verificadorContrasenas.coincide(password, userDetails.getPassword());
+            if (coincide.isEmpty()) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("message", "Demasiados inicios de sesión simultáneos, intente nuevamente");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "2")
+                        .body(errorResponse);
+            }
+            if (!coincide.get()) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("message", "Contraseña incorrecta");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
+            }
+
+            // Hash con otro algoritmo o costo: se regenera sin demorar la respuesta
+            if (politicaContrasenas.necesitaRehash(userDetails.getPassword())) {
+                verificadorContrasenas.recodificar(password, hash -> userDetailsService.actualizarHashPassword(userDetails, hash));
+            }
 
             // Log para depuración
             String role = userDetails.getAuthorities().iterator().next().getAuthority().replace("ROLE_", "");
             System.out.println("UserDetails: id=" + userDetails.getId() + ", userType=" + userDetails.getUserType() + ", rol=" + role);
 
+            return ResponseEntity.ok(respuestaTokens(userDetails));
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("jwt", jwt);
-            response.put("userId", userDetails.getId().toString());
-            response.put("rol", role);
-
-            return ResponseEntity.ok(response);
-
-        } catch (BadCredentialsException e) {
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("message", "Contraseña incorrecta");
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("message", "Error al iniciar sesión: " + e.getMessage());
@@ -79,6 +89,79 @@ public class AuthController {
         }
     }
 
+    /*
+     * Cambia un refresh token por un par nuevo (rotación): el token usado queda revocado, así que
+     * un segundo intento con el mismo token se rechaza. La cuenta se vuelve a resolver acá, una vez
+     * por vida del token de acceso, y no en cada solicitud.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, Object>> refresh(@RequestBody Map<String, String> refreshRequest) {
+        JwtClaims claims = leerToken(refreshRequest.get("refreshToken"));
+        if (claims == null || !claims.isRefresh()) {
+            return error(HttpStatus.UNAUTHORIZED, "Refresh token inválido o vencido");
+        }
+        SpaUserDetails userDetails = userDetailsService.buscarPorEmail(claims.getSubject());
+        if (userDetails == null || !userDetails.getId().equals(claims.getId())) {
+            revocacionTokens.revocar(claims.getJti(), claims.getExpiration());
+            return error(HttpStatus.UNAUTHORIZED, "La cuenta ya no está disponible");
+        }
+        if (!revocacionTokens.revocar(claims.getJti(), claims.getExpiration())) {
+            return error(HttpStatus.UNAUTHORIZED, "El refresh token ya fue utilizado");
+        }
+        return ResponseEntity.ok(respuestaTokens(userDetails));
+    }
+
+    // Revoca el refresh token del cuerpo y el token de acceso del header, si vienen y son válidos
+    @PostMapping("/logout")
+    public ResponseEntity<Map<String, Object>> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                      @RequestBody(required = false) Map<String, String> logoutRequest) {
+        if (logoutRequest != null) {
+            JwtClaims refreshClaims = leerToken(logoutRequest.get("refreshToken"));
+            if (refreshClaims != null) {
+                revocacionTokens.revocar(refreshClaims.getJti(), refreshClaims.getExpiration());
+            }
+        }
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            JwtClaims accesoClaims = leerToken(authorization.substring(7));
+            if (accesoClaims != null) {
+                revocacionTokens.revocar(accesoClaims.getJti(), accesoClaims.getExpiration());
+            }
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Sesión cerrada");
+        return ResponseEntity.ok(response);
+    }
+
+    private Map<String, Object> respuestaTokens(SpaUserDetails userDetails) {
+        String role = userDetails.getAuthorities().iterator().next().getAuthority().replace("ROLE_", "");
+        Map<String, Object> response = new HashMap<>();
+        response.put("jwt", jwtUtil.generateToken(userDetails));
+        response.put("refreshToken", jwtUtil.generateRefreshToken(userDetails));
+        response.put("expiresIn", jwtUtil.getExpirationMs() / 1000);
+        response.put("userId", userDetails.getId().toString());
+        response.put("rol", role);
+        return response;
+    }
+
+    // Claims de un token con firma válida y sin vencer, o null
+    private JwtClaims leerToken(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            JwtClaims claims = jwtUtil.parseToken(token);
+            return claims.isExpired() ? null : claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String mensaje) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("message", mensaje);
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+
     @PostMapping("/register")
     public ResponseEntity<?> registerCliente(@RequestBody RegisterRequest registerRequest) {
         try {
@@ -1,5 +1,6 @@
 package com.backendspa.controller;
 
+import com.backendspa.dto.ReservaResumen;
 import com.backendspa.entity.Cliente;
 import com.backendspa.security.SpaUserDetails;
 import com.backendspa.service.ClienteService;
@@ -109,7 +110,7 @@ public class ClienteController {
             }
 
             // Obtener las reservas del cliente
-            List<Reserva> reservas = reservaService.getReservasByClienteId(clienteId);
+            List<ReservaResumen> reservas = reservaService.getResumenesByClienteId(clienteId);
             return ResponseEntity.ok(reservas);
         } catch (Exception e) {
             Map<String, String> errorResponse = new HashMap<>();
@@ -1,12 +1,16 @@
 package com.backendspa.controller;
 
 import com.backendspa.entity.Empleado;
+import com.backendspa.service.DisponibilidadService;
 import com.backendspa.service.EmpleadoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
 import java.util.HashMap;
@@ -19,6 +23,9 @@ public class EmpleadoController {
     @Autowired
     private EmpleadoService empleadoService;
 
+    @Autowired
+    private DisponibilidadService disponibilidadService;
+
     @GetMapping
     @PreAuthorize("hasAuthority('ROLE_CLIENTE')")
     public ResponseEntity<List<Empleado>> getAllEmpleados() {
@@ -28,23 +35,13 @@ public class EmpleadoController {
     @GetMapping("/reservas")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<List<Empleado>> getEmpleadosForReservas() {
-        List<Empleado> empleados = empleadoService.getEmpleadosForReservas();
-        System.out.println("GET /api/empleados/reservas - Empleados devueltos:");
-        empleados.forEach(empleado ->
-                System.out.println(" - " + empleado.getNombre() + " " + empleado.getApellido() + ", Rol: " + empleado.getRol())
-        );
-        return ResponseEntity.ok(empleados);
+        return ResponseEntity.ok(empleadoService.getEmpleadosForReservas());
     }
 
     @GetMapping("/for-servicio/{servicio}")
     @PreAuthorize("hasAnyAuthority('ROLE_RECEPCIONISTA', 'ROLE_GERENTE_GENERAL', 'ROLE_CLIENTE')")
     public ResponseEntity<List<Empleado>> getEmpleadosForServicio(@PathVariable String servicio) {
-        List<Empleado> empleados = empleadoService.getEmpleadosForServicio(servicio);
-        System.out.println("GET /api/empleados/for-servicio/" + servicio + " - Empleados devueltos:");
-        empleados.forEach(empleado ->
-                System.out.println(" - " + empleado.getNombre() + " " + empleado.getApellido() + ", Rol: " + empleado.getRol())
-        );
-        return ResponseEntity.ok(empleados);
+        return ResponseEntity.ok(empleadoService.getEmpleadosForServicio(servicio));
     }
 
     @GetMapping("/{id}")
@@ -60,6 +57,29 @@ public class EmpleadoController {
         }
     }
 
+    // Horarios de inicio libres del empleado; por defecto los próximos 7 días
+    @GetMapping("/{id}/disponibilidad")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getDisponibilidad(@PathVariable Long id,
+                                               @RequestParam(required = false) String desde,
+                                               @RequestParam(required = false) String hasta) {
+        if (empleadoService.getEmpleadoById(id).isEmpty()) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("message", "Empleado no encontrado");
+            return ResponseEntity.status(404).body(errorResponse);
+        }
+        try {
+            LocalDate fechaDesde = desde != null ? LocalDate.parse(desde) : LocalDate.now();
+            LocalDate fechaHasta = hasta != null ? LocalDate.parse(hasta) : fechaDesde.plusDays(6);
+            List<LocalDateTime> libres = disponibilidadService.getDisponibilidadEmpleado(id, fechaDesde, fechaHasta);
+            return ResponseEntity.ok(libres);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Formato de fecha inválido. Se espera YYYY-MM-DD."));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     @PostMapping
     @PreAuthorize("hasAuthority('ROLE_GERENTE_GENERAL')")
     public ResponseEntity<?> createEmpleado(@RequestBody Empleado empleado) {
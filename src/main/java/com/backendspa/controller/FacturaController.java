@@ -1,27 +1,26 @@
 package com.backendspa.controller;
 
 import com.backendspa.entity.Cliente;
-import com.backendspa.entity.Pago;
-import com.backendspa.entity.Reserva;
-import com.backendspa.entity.ReservaServicio;
 import com.backendspa.service.ClienteService;
 import com.backendspa.service.EmailService;
-import com.backendspa.service.ReservaService;
+import com.backendspa.service.FacturaPdfRenderer;
+import com.backendspa.service.FacturaService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.IOException;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/factura")
@@ -36,7 +35,10 @@ public class FacturaController {
     private ClienteService clienteService;
 
     @Autowired
-    private ReservaService reservaService;
+    private FacturaService facturaService;
+
+    @Autowired
+    private FacturaPdfRenderer facturaPdfRenderer;
 
     @PostMapping("/send-invoice")
     @PreAuthorize("hasAnyAuthority('ROLE_CLIENTE', 'ROLE_RECEPCIONISTA', 'ROLE_GERENTE_GENERAL')")
@@ -53,10 +55,6 @@ public class FacturaController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(Map.of("message", "El número de factura es requerido."));
             }
-            if (request.getAttachmentBase64() == null || request.getAttachmentBase64().trim().isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(Map.of("message", "El adjunto es requerido."));
-            }
 
             // Obtener el email del usuario autenticado desde el token JWT
             String authenticatedEmail = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -69,102 +67,31 @@ public class FacturaController {
             Cliente cliente = clienteService.getClienteByEmail(request.getEmail())
                     .orElseThrow(() -> new RuntimeException("Cliente no encontrado con email: " + request.getEmail()));
 
-            // Obtener reservas asociadas al cliente
-            List<Reserva> reservas = reservaService.getReservasByClienteId(cliente.getId());
-
-            // Extraer la fecha de invoiceNumber (formato INV-YYYYMMDD)
-            LocalDate fechaFactura;
-            try {
-                String datePart = request.getInvoiceNumber().substring(4); // Quitar "INV-"
-                fechaFactura = LocalDate.parse(datePart, DateTimeFormatter.BASIC_ISO_DATE);
-            } catch (DateTimeParseException e) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(Map.of("message", "Formato de número de factura inválido. Se espera INV-YYYYMMDD."));
-            }
+            FacturaService.Factura factura = facturaService.generarFactura(cliente, request.getInvoiceNumber());
+            Map<String, Object> facturaDetalles = factura.toDetalles();
 
-            // Agrupar servicios por fecha
-            Map<LocalDate, List<ReservaServicio>> serviciosPorDia = reservas.stream()
-                    .flatMap(reserva -> reserva.getServicios().stream())
-                    .collect(Collectors.groupingBy(rs -> rs.getFechaServicio().toLocalDate()));
-
-            // Obtener servicios para la fecha solicitada
-            List<ReservaServicio> serviciosDelDia = serviciosPorDia.getOrDefault(fechaFactura, List.of());
-
-            if (serviciosDelDia.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(Map.of("message", "No hay servicios para la fecha especificada en la factura."));
-            }
-
-            // Obtener la reserva relevante (la más reciente para la fecha)
-            Reserva reserva = reservas.stream()
-                    .filter(r -> r.getServicios().stream().anyMatch(rs -> rs.getFechaServicio().toLocalDate().equals(fechaFactura)))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("No se encontró reserva para la fecha especificada"));
-
-            // Calcular monto total original
-            double valorOriginal = serviciosDelDia.stream()
-                    .mapToDouble(rs -> rs.getServicio().getPrecio())
-                    .sum();
-            double descuento = reserva.getPagos().stream()
-                    .mapToInt(Pago::getDescuentoAplicado)
-                    .filter(d -> d > 0)
-                    .findFirst()
-                    .orElse(0);
-            double valorConDescuento = reserva.getPagos().stream()
-                    .filter(p -> p.getFechaPago().equals(fechaFactura))
-                    .mapToDouble(Pago::getMontoTotal)
-                    .findFirst()
-                    .orElse(valorOriginal * (1 - descuento / 100.0));
-
-            // Preparar detalles de la factura para el frontend
-            Map<String, Object> facturaDetalles = new HashMap<>();
-            facturaDetalles.put("clienteNombre", cliente.getNombre() + " " + (cliente.getApellido() != null ? cliente.getApellido() : ""));
-            facturaDetalles.put("dni", cliente.getDni() != null ? cliente.getDni() : "N/A");
-            facturaDetalles.put("email", cliente.getEmail() != null ? cliente.getEmail() : "N/A");
-            facturaDetalles.put("fechaReserva", reserva.getFechaReserva().toString());
-            facturaDetalles.put("servicios", serviciosDelDia.stream()
-                    .map(rs -> Map.of(
-                            "nombre", rs.getServicio().getNombre(),
-                            "precio", rs.getServicio().getPrecio(),
-                            "fecha", rs.getFechaServicio().toString()
-                    )).collect(Collectors.toList()));
-            facturaDetalles.put("medioPago", reserva.getMedioPago().getDescripcion());
-            facturaDetalles.put("valorOriginal", valorOriginal);
-            facturaDetalles.put("descuento", descuento > 0 ? descuento : null);
-            facturaDetalles.put("valorConDescuento", valorConDescuento);
-            facturaDetalles.put("invoiceNumber", request.getInvoiceNumber());
-
-            // Generar contenido del email para confirmación
-            StringBuilder body = new StringBuilder();
-            body.append("Estimado/a ").append(cliente.getNombre()).append(",\n");
-            body.append("Gracias por elegir Sentirse Bien. Adjuntamos su factura.\n");
-            body.append("Detalles de los servicios:\n");
-            for (ReservaServicio rs : serviciosDelDia) {
-                body.append("- ").append(rs.getServicio().getNombre())
-                        .append(" (Precio: $").append(String.format("%.2f", rs.getServicio().getPrecio()))
-                        .append(", Fecha: ").append(rs.getFechaServicio()).append(")\n");
-            }
-            body.append("Medio de pago: ").append(reserva.getMedioPago().getDescripcion()).append("\n");
-            body.append("Valor original: $").append(String.format("%.2f", valorOriginal)).append("\n");
-            if (reserva.getMedioPago() == Reserva.MedioPago.TARJETA_DEBITO && descuento > 0) {
-                body.append("Descuento (15%): $").append(String.format("%.2f", valorOriginal * (descuento / 100.0))).append("\n");
+            // El PDF lo genera el servidor; el adjunto en base64 del navegador queda como opción heredada.
+            // En el outbox se guardan los bytes: el base64 lo arma el transporte al enviar
+            byte[] adjunto;
+            if (request.getAttachmentBase64() == null || request.getAttachmentBase64().trim().isEmpty()) {
+                adjunto = facturaPdfRenderer.render(factura).getContenido();
+            } else {
+                adjunto = Base64.getMimeDecoder().decode(request.getAttachmentBase64());
             }
-            body.append("Total con descuento: $").append(String.format("%.2f", valorConDescuento)).append("\n");
 
-            // Enviar correo con el PDF adjunto
-            emailService.sendEmailWithAttachment(
+            // Encolar el correo con el PDF adjunto; lo envía EmailOutboxWorker
+            emailService.queueEmailWithAttachment(
                     request.getEmail(),
                     "Factura " + request.getInvoiceNumber(),
-                    body.toString(),
-                    request.getAttachmentBase64(),
+                    factura.cuerpoCorreo(),
+                    adjunto,
                     "Factura_" + request.getInvoiceNumber() + ".pdf"
             );
 
             return ResponseEntity.ok(facturaDetalles);
-        } catch (IOException e) {
-            logger.error("Error al enviar el correo: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("message", "Error al enviar el correo: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
         } catch (RuntimeException e) {
             logger.error("Error al procesar la factura: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -176,6 +103,40 @@ public class FacturaController {
         }
     }
 
+    // PDF de una factura del usuario autenticado, generado en el servidor
+    @GetMapping("/{invoiceNumber}/pdf")
+    @PreAuthorize("hasAnyAuthority('ROLE_CLIENTE', 'ROLE_RECEPCIONISTA', 'ROLE_GERENTE_GENERAL')")
+    public ResponseEntity<?> getInvoicePdf(@PathVariable String invoiceNumber,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            String authenticatedEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+            Cliente cliente = clienteService.getClienteByEmail(authenticatedEmail)
+                    .orElseThrow(() -> new RuntimeException("Cliente no encontrado con email: " + authenticatedEmail));
+
+            FacturaPdfRenderer.PdfFactura pdf = facturaPdfRenderer.render(facturaService.generarFactura(cliente, invoiceNumber));
+            String etag = "\"" + pdf.getHash() + "\"";
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .contentLength(pdf.getContenido().length)
+                    .eTag(etag)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                            .filename("Factura_" + invoiceNumber + ".pdf", StandardCharsets.UTF_8)
+                            .build()
+                            .toString())
+                    .body(new ByteArrayResource(pdf.getContenido()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
+        } catch (RuntimeException e) {
+            logger.error("Error al generar el PDF de la factura: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", "Error al procesar la factura: " + e.getMessage()));
+        }
+    }
+
     public static class InvoiceRequest {
         private String email;
         private String invoiceNumber;
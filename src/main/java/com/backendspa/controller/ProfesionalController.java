@@ -1,19 +1,24 @@
 package com.backendspa.controller;
 
+import com.backendspa.dto.ReservaResumen;
 import com.backendspa.entity.Empleado;
-import com.backendspa.entity.Reserva;
 import com.backendspa.security.SpaUserDetails;
+import com.backendspa.service.AgendaDiariaCache;
 import com.backendspa.service.EmpleadoService;
 import com.backendspa.service.ReservaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
@@ -33,34 +38,63 @@ public class ProfesionalController {
             "ROLE_TERAPEUTA_SPA", "ROLE_INSTRUCTOR_YOGA", "ROLE_NUTRICIONISTA"
     );
 
+    /*
+     * Agenda del día del profesional autenticado. El id y el rol salen del token y la agenda de
+     * la cache de ReservaService, así que una tablet que repite la consulta con If-None-Match
+     * recibe 304 mientras la agenda no cambie; a lo sumo una consulta de una fila cada
+     * reservas.agenda-diaria.cache.verificacion-segundos para confirmar que sigue vigente.
+     */
     @GetMapping("/reservas/hoy")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<Reserva>> getReservaHoy() {
+    public ResponseEntity<byte[]> getReservaHoy(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
         // Obtener el usuario autenticado como SpaUserDetails
         SpaUserDetails userDetails = (SpaUserDetails) authentication.getPrincipal();
         Long empleadoId = userDetails.getId();
 
-        // Buscar el Empleado en la base de datos
-        Empleado empleado = empleadoService.getEmpleadoById(empleadoId)
-                .orElseThrow(() -> new RuntimeException("Empleado no encontrado con ID: " + empleadoId));
-
         // Verifica que el empleado tenga un rol que esté permitido
-        String rol = "ROLE_" + empleado.getRol().name();
-        if (!ROLES_PERMITIDOS.contains(rol)) {
+        boolean permitido = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(ROLES_PERMITIDOS::contains);
+        if (!permitido) {
             return ResponseEntity.status(403).body(null); // Forbidden
         }
 
         LocalDate hoy = LocalDate.now(ZoneId.of("America/Argentina/Buenos_Aires"));
-        LocalDateTime startOfDay = hoy.atStartOfDay(); // Convertir LocalDate a LocalDateTime (00:00:00)
-        List<Reserva> reservas = reservaService.getReservasByEmpleadoAndDate(empleado.getId(), startOfDay);
-        return ResponseEntity.ok(reservas);
+        AgendaDiariaCache.AgendaDiaria agenda = reservaService.getAgendaDiaria(empleadoId, hoy);
+        // Sin caché en el cliente: debe revalidar siempre, pero con el ETag la respuesta es vacía
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (coincideEtag(ifNoneMatch, agenda.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(agenda.getEtag()).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(agenda.getEtag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(agenda.getJson());
+    }
+
+    // If-None-Match puede traer varias etiquetas, débiles (W/"...") o "*"
+    private static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String etiqueta : ifNoneMatch.split(",")) {
+            String valor = etiqueta.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals("*") || valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @GetMapping("/clientes/{clienteId}/historial")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<Reserva>> getClienteHistorial(@PathVariable Long clienteId) {
+    public ResponseEntity<List<ReservaResumen>> getClienteHistorial(@PathVariable Long clienteId) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         SpaUserDetails userDetails = (SpaUserDetails) authentication.getPrincipal();
         Long empleadoId = userDetails.getId();
@@ -73,7 +107,7 @@ public class ProfesionalController {
             return ResponseEntity.status(403).body(null);
         }
 
-        List<Reserva> historial = reservaService.getReservasByClienteId(clienteId);
+        List<ReservaResumen> historial = reservaService.getResumenesByClienteId(clienteId);
         return ResponseEntity.ok(historial);
     }
 }
\ No newline at end of file
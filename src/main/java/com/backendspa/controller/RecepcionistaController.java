@@ -5,15 +5,22 @@ import com.backendspa.entity.Reserva;
 import com.backendspa.entity.Empleado;
 import com.backendspa.service.ClienteService;
 import com.backendspa.service.EmpleadoService;
+import com.backendspa.service.ImportacionReservasService;
 import com.backendspa.service.ReservaService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -26,6 +33,9 @@ public class RecepcionistaController {
     @Autowired
     private EmpleadoService empleadoService;
 
+    @Autowired
+    private ImportacionReservasService importacionReservasService;
+
     public RecepcionistaController(ReservaService reservaService, ClienteService clienteService) {
         this.reservaService = reservaService;
         this.clienteService = clienteService;
@@ -33,7 +43,19 @@ public class RecepcionistaController {
 
     @GetMapping("/reservas")
     @PreAuthorize("hasRole('ROLE_RECEPCIONISTA')")
-    public ResponseEntity<List<Reserva>> getReservasForRecepcionista() {
+    public ResponseEntity<?> getReservasForRecepcionista(@RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(reservaService.getReservasPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Listado completo sin paginar, solo para exportaciones
+    @GetMapping("/reservas/export")
+    @PreAuthorize("hasRole('ROLE_RECEPCIONISTA')")
+    public ResponseEntity<List<Reserva>> exportReservas() {
         return ResponseEntity.ok(reservaService.getAllReservas());
     }
 
@@ -69,6 +91,19 @@ public class RecepcionistaController {
         }
     }
 
+    // Importación masiva (CSV o NDJSON): responde en NDJSON el resultado de cada fila a medida que avanza
+    @PostMapping(value = "/reservas/importar",
+            consumes = {ImportacionReservasService.TIPO_CSV, ImportacionReservasService.TIPO_NDJSON},
+            produces = ImportacionReservasService.TIPO_NDJSON)
+    @PreAuthorize("hasRole('ROLE_RECEPCIONISTA')")
+    public ResponseEntity<StreamingResponseBody> importarReservas(HttpServletRequest request) throws IOException {
+        ImportacionReservasService.Formato formato = ImportacionReservasService.Formato.desde(request.getContentType());
+        InputStream entrada = request.getInputStream();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ImportacionReservasService.TIPO_NDJSON))
+                .body(salida -> importacionReservasService.importar(entrada, formato, salida));
+    }
+
     @PutMapping("/reservas/{id}")
     @PreAuthorize("hasRole('ROLE_RECEPCIONISTA')")
     public ResponseEntity<Reserva> updateReserva(@PathVariable Long id, @RequestBody ReservaRequest reservaRequest) {
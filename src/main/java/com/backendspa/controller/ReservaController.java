@@ -1,7 +1,6 @@
 package com.backendspa.controller;
 
 import com.backendspa.entity.*;
-import com.backendspa.repository.ServicioRepository;
 import com.backendspa.service.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -26,7 +25,7 @@ public class ReservaController {
     private EmpleadoService empleadoService;
 
     @Autowired
-    private ServicioRepository servicioRepository;
+    private ServicioCatalog servicioCatalog;
 
     @PostMapping
     @PreAuthorize("hasRole('CLIENTE')")
@@ -98,7 +97,21 @@ public class ReservaController {
 
     @GetMapping
     @PreAuthorize("hasAnyRole('CLIENTE', 'RECEPCIONISTA', 'GERENTE_GENERAL')")
-    public List<Reserva> getAllReservas() {
+    public ResponseEntity<?> getReservas(@RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(reservaService.getResumenesPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    // Listado completo sin paginar, solo para exportaciones
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('RECEPCIONISTA', 'GERENTE_GENERAL')")
+    public List<Reserva> exportReservas() {
         return reservaService.getAllReservas();
     }
 
@@ -175,7 +188,7 @@ public class ReservaController {
 
     @GetMapping("/servicios")
     public List<ServicioDTO> getAllServicios() {
-        return servicioRepository.findAll().stream()
+        return servicioCatalog.findAll().stream()
                 .map(servicio -> new ServicioDTO(servicio.getNombre(), servicio.getDescripcion()))
                 .collect(Collectors.toList());
     }
@@ -1,17 +1,32 @@
 package com.backendspa.controller;
 
+import com.backendspa.dto.TurnoLibre;
+import com.backendspa.service.DisponibilidadService;
+import com.backendspa.service.ServicioCatalog;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/servicios")
 public class ServicioController {
 
+    @Autowired
+    private DisponibilidadService disponibilidadService;
+
+    @Autowired
+    private ServicioCatalog servicioCatalog;
+
     @GetMapping
     public ResponseEntity<List<String>> getServicios() {
         // Lista estática de servicios (puedes obtenerla de una base de datos si lo prefieres)
@@ -35,4 +50,25 @@ public class ServicioController {
         );
         return ResponseEntity.ok(servicios);
     }
-}
\ No newline at end of file
+
+    // Primeros horarios libres para el servicio entre todos los empleados habilitados
+    @GetMapping("/{nombre}/disponibilidad")
+    public ResponseEntity<?> getDisponibilidad(@PathVariable String nombre,
+                                               @RequestParam(required = false) String desde,
+                                               @RequestParam(required = false) String hasta,
+                                               @RequestParam(defaultValue = "20") int limite) {
+        if (servicioCatalog.findByNombre(nombre).isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("message", "Servicio no encontrado: " + nombre));
+        }
+        try {
+            LocalDate fechaDesde = desde != null ? LocalDate.parse(desde) : LocalDate.now();
+            LocalDate fechaHasta = hasta != null ? LocalDate.parse(hasta) : fechaDesde.plusDays(13);
+            List<TurnoLibre> turnos = disponibilidadService.getDisponibilidadServicio(nombre, fechaDesde, fechaHasta, limite);
+            return ResponseEntity.ok(turnos);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Formato de fecha inválido. Se espera YYYY-MM-DD."));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.backendspa.dto;
+
+import java.time.LocalDateTime;
+
+// Proyección de un BloqueAgenda: inicio del bloque y reserva que lo ocupa
+public class BloqueOcupado {
+    private final LocalDateTime inicio;
+    private final Long reservaId;
+
+    public BloqueOcupado(LocalDateTime inicio, Long reservaId) {
+        this.inicio = inicio;
+        this.reservaId = reservaId;
+    }
+
+    public LocalDateTime getInicio() { return inicio; }
+    public Long getReservaId() { return reservaId; }
+}
@@ -0,0 +1,27 @@
+package com.backendspa.dto;
+
+// Proyección de un Cliente para exportaciones (sin la contraseña)
+public class ClienteResumen {
+    private final Long id;
+    private final String dni;
+    private final String nombre;
+    private final String apellido;
+    private final String email;
+    private final String telefono;
+
+    public ClienteResumen(Long id, String dni, String nombre, String apellido, String email, String telefono) {
+        this.id = id;
+        this.dni = dni;
+        this.nombre = nombre;
+        this.apellido = apellido;
+        this.email = email;
+        this.telefono = telefono;
+    }
+
+    public Long getId() { return id; }
+    public String getDni() { return dni; }
+    public String getNombre() { return nombre; }
+    public String getApellido() { return apellido; }
+    public String getEmail() { return email; }
+    public String getTelefono() { return telefono; }
+}
@@ -0,0 +1,33 @@
+package com.backendspa.dto;
+
+import java.util.Objects;
+
+// Reservas, id más alto y suma de versiones de la agenda de un empleado en un día: cambia con cada alta, baja o modificación
+public class HuellaAgenda {
+    private final long cantidad;
+    private final long maxId;
+    private final long sumaVersiones;
+
+    public HuellaAgenda(Long cantidad, Long maxId, Long sumaVersiones) {
+        this.cantidad = cantidad;
+        this.maxId = maxId;
+        this.sumaVersiones = sumaVersiones;
+    }
+
+    public long getCantidad() { return cantidad; }
+    public long getMaxId() { return maxId; }
+    public long getSumaVersiones() { return sumaVersiones; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HuellaAgenda)) return false;
+        HuellaAgenda otra = (HuellaAgenda) o;
+        return cantidad == otra.cantidad && maxId == otra.maxId && sumaVersiones == otra.sumaVersiones;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(cantidad, maxId, sumaVersiones);
+    }
+}
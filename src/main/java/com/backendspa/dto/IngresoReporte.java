@@ -0,0 +1,26 @@
+package com.backendspa.dto;
+
+import java.time.LocalDate;
+
+// Fila de un reporte de ingresos: período, clave de la dimensión (con su nombre legible) y totales
+public class IngresoReporte {
+    private final LocalDate periodo;
+    private final String clave;
+    private final String nombre;
+    private final double monto;
+    private final long cantidad;
+
+    public IngresoReporte(LocalDate periodo, String clave, String nombre, double monto, long cantidad) {
+        this.periodo = periodo;
+        this.clave = clave;
+        this.nombre = nombre;
+        this.monto = monto;
+        this.cantidad = cantidad;
+    }
+
+    public LocalDate getPeriodo() { return periodo; }
+    public String getClave() { return clave; }
+    public String getNombre() { return nombre; }
+    public double getMonto() { return monto; }
+    public long getCantidad() { return cantidad; }
+}
@@ -0,0 +1,34 @@
+package com.backendspa.dto;
+
+import com.backendspa.entity.Reserva;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDate;
+
+// Proyección de un Pago sin el cliente ni la reserva
+public class PagoResumen {
+    private final Long reservaId;
+    private final Long id;
+    private final LocalDate fechaPago;
+    private final Double montoTotal;
+    private final Reserva.MedioPago medioPago;
+    private final Integer descuentoAplicado;
+
+    public PagoResumen(Long reservaId, Long id, LocalDate fechaPago, Double montoTotal, Reserva.MedioPago medioPago,
+                       Integer descuentoAplicado) {
+        this.reservaId = reservaId;
+        this.id = id;
+        this.fechaPago = fechaPago;
+        this.montoTotal = montoTotal;
+        this.medioPago = medioPago;
+        this.descuentoAplicado = descuentoAplicado;
+    }
+
+    @JsonIgnore
+    public Long getReservaId() { return reservaId; }
+    public Long getId() { return id; }
+    public LocalDate getFechaPago() { return fechaPago; }
+    public Double getMontoTotal() { return montoTotal; }
+    public Reserva.MedioPago getMedioPago() { return medioPago; }
+    public Integer getDescuentoAplicado() { return descuentoAplicado; }
+}
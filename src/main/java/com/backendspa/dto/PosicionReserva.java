@@ -0,0 +1,17 @@
+package com.backendspa.dto;
+
+import java.time.LocalDateTime;
+
+// Clave de orden de una reserva en los listados por cursor: (fechaReserva, id)
+public class PosicionReserva {
+    private final LocalDateTime fechaReserva;
+    private final Long id;
+
+    public PosicionReserva(LocalDateTime fechaReserva, Long id) {
+        this.fechaReserva = fechaReserva;
+        this.id = id;
+    }
+
+    public LocalDateTime getFechaReserva() { return fechaReserva; }
+    public Long getId() { return id; }
+}
@@ -0,0 +1,64 @@
+package com.backendspa.dto;
+
+import com.backendspa.entity.Empleado;
+import com.backendspa.entity.Reserva;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Proyección de lectura de una reserva para listados, agendas e historiales.
+ * Se construye con una expresión "select new" de JPQL, sin hidratar entidades
+ * (en particular sin la contraseña ni los datos completos del empleado y del cliente).
+ */
+public class ReservaResumen {
+    private final Long id;
+    private final LocalDateTime fechaReserva;
+    private final Reserva.Status status;
+    private final Reserva.MedioPago medioPago;
+    private final Integer descuentoAplicado;
+    private final Long clienteId;
+    private final String clienteNombre;
+    private final String clienteApellido;
+    private final Long empleadoId;
+    private final String empleadoNombre;
+    private final String empleadoApellido;
+    private final Empleado.Rol empleadoRol;
+    private List<ServicioReservado> servicios = new ArrayList<>();
+    private List<PagoResumen> pagos = new ArrayList<>();
+
+    public ReservaResumen(Long id, LocalDateTime fechaReserva, Reserva.Status status, Reserva.MedioPago medioPago,
+                          Integer descuentoAplicado, Long clienteId, String clienteNombre, String clienteApellido,
+                          Long empleadoId, String empleadoNombre, String empleadoApellido, Empleado.Rol empleadoRol) {
+        this.id = id;
+        this.fechaReserva = fechaReserva;
+        this.status = status;
+        this.medioPago = medioPago;
+        this.descuentoAplicado = descuentoAplicado;
+        this.clienteId = clienteId;
+        this.clienteNombre = clienteNombre;
+        this.clienteApellido = clienteApellido;
+        this.empleadoId = empleadoId;
+        this.empleadoNombre = empleadoNombre;
+        this.empleadoApellido = empleadoApellido;
+        this.empleadoRol = empleadoRol;
+    }
+
+    public Long getId() { return id; }
+    public LocalDateTime getFechaReserva() { return fechaReserva; }
+    public Reserva.Status getStatus() { return status; }
+    public Reserva.MedioPago getMedioPago() { return medioPago; }
+    public Integer getDescuentoAplicado() { return descuentoAplicado; }
+    public Long getClienteId() { return clienteId; }
+    public String getClienteNombre() { return clienteNombre; }
+    public String getClienteApellido() { return clienteApellido; }
+    public Long getEmpleadoId() { return empleadoId; }
+    public String getEmpleadoNombre() { return empleadoNombre; }
+    public String getEmpleadoApellido() { return empleadoApellido; }
+    public Empleado.Rol getEmpleadoRol() { return empleadoRol; }
+    public List<ServicioReservado> getServicios() { return servicios; }
+    public void setServicios(List<ServicioReservado> servicios) { this.servicios = servicios; }
+    public List<PagoResumen> getPagos() { return pagos; }
+    public void setPagos(List<PagoResumen> pagos) { this.pagos = pagos; }
+}
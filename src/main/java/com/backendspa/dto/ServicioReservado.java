@@ -0,0 +1,29 @@
+package com.backendspa.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+// Proyección de un ReservaServicio con el nombre y precio de su servicio
+public class ServicioReservado {
+    private final Long reservaId;
+    private final Long id;
+    private final String servicioNombre;
+    private final Double precio;
+    private final LocalDateTime fechaServicio;
+
+    public ServicioReservado(Long reservaId, Long id, String servicioNombre, Double precio, LocalDateTime fechaServicio) {
+        this.reservaId = reservaId;
+        this.id = id;
+        this.servicioNombre = servicioNombre;
+        this.precio = precio;
+        this.fechaServicio = fechaServicio;
+    }
+
+    @JsonIgnore
+    public Long getReservaId() { return reservaId; }
+    public Long getId() { return id; }
+    public String getServicioNombre() { return servicioNombre; }
+    public Double getPrecio() { return precio; }
+    public LocalDateTime getFechaServicio() { return fechaServicio; }
+}
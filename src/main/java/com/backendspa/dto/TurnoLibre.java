@@ -0,0 +1,18 @@
+package com.backendspa.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Horario de inicio libre para un servicio y los empleados habilitados que lo tienen libre
+public class TurnoLibre {
+    private final LocalDateTime inicio;
+    private final List<Long> empleadoIds;
+
+    public TurnoLibre(LocalDateTime inicio, List<Long> empleadoIds) {
+        this.inicio = inicio;
+        this.empleadoIds = empleadoIds;
+    }
+
+    public LocalDateTime getInicio() { return inicio; }
+    public List<Long> getEmpleadoIds() { return empleadoIds; }
+}
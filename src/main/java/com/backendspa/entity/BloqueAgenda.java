@@ -0,0 +1,43 @@
+package com.backendspa.entity;
+
+import com.fasterxml.jackson.annotation.JsonBackReference;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bloque de 15 minutos ocupado en la agenda de un empleado. Cada ReservaServicio ocupa los
+ * bloques que cubre su duración; la restricción única (empleado_id, inicio) impide en la base
+ * de datos que dos reservas tomen el mismo bloque, aunque vengan de nodos distintos.
+ */
+@Entity
+@Table(name = "bloques_agenda", uniqueConstraints = {
+        @UniqueConstraint(name = BloqueAgenda.UK_EMPLEADO_INICIO, columnNames = {"empleado_id", "inicio"})
+})
+@Data
+public class BloqueAgenda {
+    public static final String UK_EMPLEADO_INICIO = "uk_bloques_agenda_empleado_inicio";
+
+    @Id
+    @IdAgrupado(segmento = "bloques_agenda")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "empleado_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Empleado empleado;
+
+    @Column(nullable = false)
+    private LocalDateTime inicio;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "reserva_servicio_id", nullable = false)
+    @JsonBackReference
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ReservaServicio reservaServicio;
+}
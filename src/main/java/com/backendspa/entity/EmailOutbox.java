@@ -0,0 +1,59 @@
+package com.backendspa.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Correo pendiente de envío (patrón outbox). La fila se guarda en la misma transacción
+ * que la operación que la origina y un worker la envía después, con reintentos.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_estado_proximo", columnList = "estado, proximo_intento")
+})
+@Data
+public class EmailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String destinatario;
+
+    @Column(nullable = false)
+    private String asunto;
+
+    @Column(columnDefinition = "TEXT")
+    private String cuerpo;
+
+    private String adjuntoNombre;
+
+    // Bytes del PDF tal cual (BLOB): el base64 lo arma el transporte al enviar
+    @Lob
+    private byte[] adjunto;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Estado estado;
+
+    @Column(nullable = false)
+    private Integer intentos;
+
+    // Próximo momento en que el worker puede tomar la fila (reintento o vencimiento del lease)
+    @Column(nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(length = 1000)
+    private String ultimoError;
+
+    @Column(nullable = false)
+    private LocalDateTime creadoEn;
+
+    private LocalDateTime enviadoEn;
+
+    public enum Estado {
+        PENDIENTE, ENVIANDO, ENVIADO, DESCARTADO
+    }
+}
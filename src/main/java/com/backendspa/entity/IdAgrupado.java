@@ -0,0 +1,22 @@
+package com.backendspa.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Id asignado por Hibernate desde la tabla id_generadores en bloques (pooled-lo) en lugar de
+ * AUTO_INCREMENT. Con IDENTITY cada INSERT tiene que ejecutarse solo para conocer su id; con
+ * ids reservados de a bloques Hibernate puede agrupar los INSERT en lotes JDBC.
+ */
+@IdGeneratorType(TablaIdsGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface IdAgrupado {
+
+    // Fila de id_generadores que lleva el contador (por convención, el nombre de la tabla)
+    String segmento();
+}
@@ -0,0 +1,50 @@
+package com.backendspa.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Ingresos pre-agregados por día o por mes y por medio de pago, servicio o empleado. Las filas
+ * se actualizan con sumas atómicas en la misma transacción que escribe los pagos de una reserva,
+ * así los reportes leen unas pocas filas en lugar de recorrer pagos y servicios.
+ */
+@Entity
+@Table(name = "ingresos_resumen", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ingresos_resumen_clave", columnNames = {"granularidad", "dimension", "periodo", "clave"})
+})
+@Data
+public class IngresoResumen {
+
+    public enum Granularidad { DIA, MES }
+
+    public enum Dimension { MEDIO_PAGO, SERVICIO, EMPLEADO }
+
+    @Id
+    @IdAgrupado(segmento = "ingresos_resumen")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularidad granularidad;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Dimension dimension;
+
+    // Día del ingreso, o primer día del mes para la granularidad MES
+    @Column(nullable = false)
+    private LocalDate periodo;
+
+    // Nombre del medio de pago, o id del servicio o del empleado
+    @Column(nullable = false, length = 64)
+    private String clave;
+
+    @Column(nullable = false)
+    private Double monto;
+
+    // Pagos (MEDIO_PAGO, EMPLEADO) o servicios prestados (SERVICIO)
+    @Column(nullable = false)
+    private Long cantidad;
+}
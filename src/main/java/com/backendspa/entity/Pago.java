@@ -7,11 +7,13 @@ import lombok.Data;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "pagos")
+@Table(name = "pagos", indexes = {
+        @Index(name = "idx_pagos_cliente_fecha", columnList = "cliente_id, fecha_pago")
+})
 @Data
 public class Pago {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdAgrupado(segmento = "pagos")
     private Long id;
 
     @ManyToOne
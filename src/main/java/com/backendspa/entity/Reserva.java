@@ -4,16 +4,28 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "reservas")
+// Carga una reserva con cliente, empleado y servicios (con su Servicio) en una sola consulta.
+// Los pagos se completan aparte por lotes (@BatchSize) para no combinar dos colecciones en el mismo join.
+@NamedEntityGraph(name = "Reserva.detalle",
+        attributeNodes = {
+                @NamedAttributeNode("cliente"),
+                @NamedAttributeNode("empleado"),
+                @NamedAttributeNode(value = "servicios", subgraph = "servicios")
+        },
+        subgraphs = @NamedSubgraph(name = "servicios", attributeNodes = @NamedAttributeNode("servicio")))
+@Table(name = "reservas", indexes = {
+        @Index(name = "idx_reservas_fecha_id", columnList = "fecha_reserva, id")
+})
 @Data
 public class Reserva {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdAgrupado(segmento = "reservas")
     private Long id;
 
     @ManyToOne
@@ -41,11 +53,18 @@ public class Reserva {
     @Column(columnDefinition = "TEXT")
     private String historial;
 
+    // Bloqueo optimista: dos ediciones concurrentes de la misma reserva no se pisan
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "reserva", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     @JsonManagedReference // Permite serializar la lista de servicios
     private List<ReservaServicio> servicios;
 
     @OneToMany(mappedBy = "reserva", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     @JsonManagedReference // Permite serializar la lista de pagos
     private List<Pago> pagos;
 
@@ -1,17 +1,24 @@
 package com.backendspa.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
-@Table(name = "reserva_servicios")
+@Table(name = "reserva_servicios", indexes = {
+        @Index(name = "idx_reserva_servicios_fecha", columnList = "fecha_servicio, reserva_id")
+})
 @Data
 public class ReservaServicio {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdAgrupado(segmento = "reserva_servicios")
     private Long id;
 
     @ManyToOne
@@ -25,4 +32,11 @@ public class ReservaServicio {
 
     @Column(nullable = false)
     private LocalDateTime fechaServicio;
+
+    // Bloques de agenda que ocupa este servicio; se borran junto con él
+    @OneToMany(mappedBy = "reservaServicio", cascade = CascadeType.ALL, orphanRemoval = true)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<BloqueAgenda> bloques = new ArrayList<>();
 }
\ No newline at end of file
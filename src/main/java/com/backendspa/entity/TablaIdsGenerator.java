@@ -0,0 +1,43 @@
+package com.backendspa.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * TableGenerator sobre id_generadores(entidad, proximo_id). El tamaño de bloque se lee de la
+ * propiedad reservas.ids.tamano-bloque (spring.jpa.properties.*) para poder ajustarlo sin
+ * recompilar. Con pooled-lo el valor guardado es el primer id libre, así que la migración solo
+ * tiene que sembrar MAX(id) + 1 sin depender del tamaño de bloque.
+ */
+public class TablaIdsGenerator extends TableGenerator {
+
+    public static final String TABLA = "id_generadores";
+    public static final String PROPIEDAD_TAMANO_BLOQUE = "reservas.ids.tamano-bloque";
+    public static final int TAMANO_BLOQUE_DEFECTO = 50;
+
+    private final String segmento;
+
+    public TablaIdsGenerator(IdAgrupado config) {
+        this.segmento = config.segmento();
+    }
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object tamanoBloque = serviceRegistry.requireService(ConfigurationService.class)
+                .getSettings().get(PROPIEDAD_TAMANO_BLOQUE);
+        params.setProperty(TABLE_PARAM, TABLA);
+        params.setProperty(SEGMENT_COLUMN_PARAM, "entidad");
+        params.setProperty(VALUE_COLUMN_PARAM, "proximo_id");
+        params.setProperty(SEGMENT_VALUE_PARAM, segmento);
+        params.setProperty(INITIAL_PARAM, "1");
+        params.setProperty(INCREMENT_PARAM, tamanoBloque != null ? tamanoBloque.toString() : String.valueOf(TAMANO_BLOQUE_DEFECTO));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,27 @@
+package com.backendspa.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Token revocado antes de su vencimiento (logout o refresh token ya rotado), por su jti. La fila
+ * solo hace falta hasta que el token vence por sí solo; después se purga.
+ */
+@Entity
+@Table(name = "tokens_revocados", indexes = {
+        @Index(name = "idx_tokens_revocados_expira", columnList = "expira_en")
+})
+@Data
+public class TokenRevocado {
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    @Column(name = "expira_en", nullable = false)
+    private LocalDateTime expiraEn;
+
+    @Column(name = "revocado_en", nullable = false)
+    private LocalDateTime revocadoEn;
+}
@@ -0,0 +1,50 @@
+package com.backendspa.metricas;
+
+import org.hibernate.Interceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+
+/**
+ * Cuenta, para la solicitud HTTP en curso, las sentencias SQL que prepara Hibernate y las
+ * entidades que hidrata. Se registra como StatementInspector e Interceptor de la
+ * SessionFactory; MetricasSolicitudFilter abre y cierra la cuenta en el hilo de la solicitud.
+ * Fuera de una solicitud (workers, tareas programadas) no se cuenta nada.
+ */
+public class ConsultasPorSolicitud implements StatementInspector, Interceptor {
+
+    private static final ThreadLocal<Contadores> ACTUAL = new ThreadLocal<>();
+
+    static void iniciar() {
+        ACTUAL.set(new Contadores());
+    }
+
+    static Contadores terminar() {
+        Contadores contadores = ACTUAL.get();
+        ACTUAL.remove();
+        return contadores;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Contadores contadores = ACTUAL.get();
+        if (contadores != null) {
+            contadores.sentencias++;
+        }
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        Contadores contadores = ACTUAL.get();
+        if (contadores != null) {
+            contadores.entidades++;
+        }
+        return false;
+    }
+
+    // Solo se modifican desde el hilo de la solicitud
+    static final class Contadores {
+        long sentencias;
+        long entidades;
+    }
+}
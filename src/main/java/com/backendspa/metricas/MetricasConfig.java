@@ -0,0 +1,29 @@
+package com.backendspa.metricas;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Instrumentación que no viene con el actuator. Lo demás se configura en application.properties:
+ * http.server.requests (latencia por endpoint), spring.data.repository.invocations (cada
+ * método de repositorio), hikaricp.* (saturación del pool) y las estadísticas de Hibernate.
+ */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    public ConsultasPorSolicitud consultasPorSolicitud() {
+        return new ConsultasPorSolicitud();
+    }
+
+    // Un solo objeto como StatementInspector e Interceptor de la SessionFactory
+    @Bean
+    public HibernatePropertiesCustomizer metricasHibernateCustomizer(ConsultasPorSolicitud consultasPorSolicitud) {
+        return propiedades -> {
+            propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, consultasPorSolicitud);
+            propiedades.put(AvailableSettings.INTERCEPTOR, consultasPorSolicitud);
+        };
+    }
+}
@@ -0,0 +1,61 @@
+package com.backendspa.metricas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Publica por endpoint cuántas sentencias SQL y cuántas entidades costó cada solicitud
+ * (spa.solicitud.sentencias y spa.solicitud.entidades, con los tags method y uri del patrón de
+ * la ruta, igual que http.server.requests). Las respuestas en streaming terminan en otro hilo:
+ * de esas solo se cuenta lo que ocurre antes de empezar a escribir.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class MetricasSolicitudFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+
+    public MetricasSolicitudFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ConsultasPorSolicitud.iniciar();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ConsultasPorSolicitud.Contadores contadores = ConsultasPorSolicitud.terminar();
+            Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            // Sin patrón (404, rechazos de seguridad) se agrupa todo bajo un único valor
+            String uri = patron != null ? patron.toString() : "UNKNOWN";
+            resumen("spa.solicitud.sentencias", "Sentencias SQL por solicitud", request.getMethod(), uri)
+                    .record(contadores.sentencias);
+            resumen("spa.solicitud.entidades", "Entidades cargadas por solicitud", request.getMethod(), uri)
+                    .record(contadores.entidades);
+        }
+    }
+
+    private DistributionSummary resumen(String nombre, String descripcion, String metodo, String uri) {
+        return DistributionSummary.builder(nombre)
+                .description(descripcion)
+                .tag("method", metodo)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1000.0)
+                .register(registry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.backendspa.repository;
+
+import com.backendspa.dto.BloqueOcupado;
+import com.backendspa.entity.BloqueAgenda;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BloqueAgendaRepository extends JpaRepository<BloqueAgenda, Long> {
+
+    // Bloques ocupados del empleado en [desde, hasta). Las reservas canceladas no ocupan la agenda
+    @Query("select new com.backendspa.dto.BloqueOcupado(b.inicio, r.id) " +
+            "from BloqueAgenda b join b.reservaServicio rs join rs.reserva r " +
+            "where b.empleado.id = :empleadoId and b.inicio >= :desde and b.inicio < :hasta " +
+            "and r.status <> com.backendspa.entity.Reserva.Status.CANCELADA")
+    List<BloqueOcupado> findOcupados(@Param("empleadoId") Long empleadoId,
+                                     @Param("desde") LocalDateTime desde,
+                                     @Param("hasta") LocalDateTime hasta);
+}
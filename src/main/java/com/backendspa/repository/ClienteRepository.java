@@ -2,9 +2,22 @@ package com.backendspa.repository;
 
 import com.backendspa.entity.Cliente;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.Optional;
 
 public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     Optional<Cliente> findByEmail(String email);
+
+    // Solo la columna del hash, sin cargar ni versionar la entidad
+    @Modifying
+    @Query("update Cliente c set c.password = :hash where c.id = :id")
+    int actualizarPassword(@Param("id") Long id, @Param("hash") String hash);
+
+    // Exportación: la recorre ExportacionService con un cursor en su propio pool de conexiones
+    String EXPORTACION = "select new com.backendspa.dto.ClienteResumen(c.id, c.dni, c.nombre, c.apellido, c.email, c.telefono) " +
+            "from Cliente c order by c.id asc";
 }
 
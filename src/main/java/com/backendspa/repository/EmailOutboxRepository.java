@@ -0,0 +1,32 @@
+package com.backendspa.repository;
+
+import com.backendspa.entity.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    @Query("select e.id from EmailOutbox e where e.estado in :estados and e.proximoIntento <= :ahora " +
+            "order by e.proximoIntento asc")
+    List<Long> findIdsListos(@Param("estados") Collection<EmailOutbox.Estado> estados,
+                             @Param("ahora") LocalDateTime ahora,
+                             Pageable pageable);
+
+    // Toma la fila solo si nadie la tomó antes (vale también entre varias instancias)
+    @Transactional
+    @Modifying
+    @Query("update EmailOutbox e set e.estado = com.backendspa.entity.EmailOutbox.Estado.ENVIANDO, " +
+            "e.proximoIntento = :vencimiento where e.id = :id and e.estado in :estados and e.proximoIntento <= :ahora")
+    int reclamar(@Param("id") Long id,
+                 @Param("estados") Collection<EmailOutbox.Estado> estados,
+                 @Param("ahora") LocalDateTime ahora,
+                 @Param("vencimiento") LocalDateTime vencimiento);
+}
@@ -2,8 +2,21 @@ package com.backendspa.repository;
 
 import com.backendspa.entity.Empleado;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface EmpleadoRepository extends JpaRepository<Empleado, Long> {
     Optional<Empleado> findByEmail(String email);
+
+    // Solo la columna del hash, sin cargar la entidad
+    @Modifying
+    @Query("update Empleado e set e.password = :hash where e.id = :id")
+    int actualizarPassword(@Param("id") Long id, @Param("hash") String hash);
+
+    List<Empleado> findByRolIn(Collection<Empleado.Rol> roles);
 }
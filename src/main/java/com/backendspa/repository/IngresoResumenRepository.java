@@ -0,0 +1,49 @@
+package com.backendspa.repository;
+
+import com.backendspa.entity.IngresoResumen;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface IngresoResumenRepository extends JpaRepository<IngresoResumen, Long> {
+
+    // Suma atómica sobre la fila (toma su lock hasta el commit); devuelve 0 si la fila todavía no existe
+    @Modifying
+    @Query("update IngresoResumen i set i.monto = i.monto + :monto, i.cantidad = i.cantidad + :cantidad " +
+            "where i.granularidad = :granularidad and i.dimension = :dimension and i.periodo = :periodo and i.clave = :clave")
+    int sumar(@Param("granularidad") IngresoResumen.Granularidad granularidad,
+              @Param("dimension") IngresoResumen.Dimension dimension,
+              @Param("periodo") LocalDate periodo,
+              @Param("clave") String clave,
+              @Param("monto") double monto,
+              @Param("cantidad") long cantidad);
+
+    /*
+     * Crea la fila con el aporte o, si ya existe (uk_ingresos_resumen_clave), le suma el aporte.
+     * Para cuando el UPDATE no encontró la fila; el id lo asigna quien llama, del generador de la entidad.
+     */
+    @Modifying
+    @Query(value = "insert into ingresos_resumen (id, granularidad, dimension, periodo, clave, monto, cantidad) " +
+            "values (:id, :granularidad, :dimension, :periodo, :clave, :monto, :cantidad) " +
+            "on duplicate key update monto = monto + :monto, cantidad = cantidad + :cantidad",
+            nativeQuery = true)
+    int insertarOSumar(@Param("id") Long id,
+                       @Param("granularidad") String granularidad,
+                       @Param("dimension") String dimension,
+                       @Param("periodo") LocalDate periodo,
+                       @Param("clave") String clave,
+                       @Param("monto") double monto,
+                       @Param("cantidad") long cantidad);
+
+    // Superconjunto de las filas buscadas (se filtran en memoria); solo para claves que no se conocían
+    List<IngresoResumen> findByPeriodoInAndClaveIn(Collection<LocalDate> periodos, Collection<String> claves);
+
+    // Respaldada por uk_ingresos_resumen_clave (granularidad, dimension, periodo, ...)
+    List<IngresoResumen> findByGranularidadAndDimensionAndPeriodoBetweenOrderByPeriodoAscClaveAsc(
+            IngresoResumen.Granularidad granularidad, IngresoResumen.Dimension dimension, LocalDate desde, LocalDate hasta);
+}
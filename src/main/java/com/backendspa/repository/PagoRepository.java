@@ -1,8 +1,25 @@
 package com.backendspa.repository;
 
+import com.backendspa.dto.PagoResumen;
 import com.backendspa.entity.Pago;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 
 public interface PagoRepository extends JpaRepository<Pago, Long> {
 
+    @Query("select new com.backendspa.dto.PagoResumen(p.reserva.id, p.id, p.fechaPago, p.montoTotal, p.medioPago, p.descuentoAplicado) " +
+            "from Pago p where p.reserva.id in :reservaIds order by p.fechaPago asc, p.id asc")
+    List<PagoResumen> findPagosResumen(@Param("reservaIds") Collection<Long> reservaIds);
+
+    // Exportación: la recorre ExportacionService con un cursor en su propio pool de conexiones
+    String EXPORTACION = "select new com.backendspa.dto.PagoResumen(p.reserva.id, p.id, p.fechaPago, p.montoTotal, " +
+            "p.medioPago, p.descuentoAplicado) from Pago p order by p.id asc";
+
+    // Pagos de un cliente en un día, respaldada por idx_pagos_cliente_fecha
+    List<Pago> findByClienteIdAndFechaPago(Long clienteId, LocalDate fechaPago);
 }
@@ -1,15 +1,85 @@
 package com.backendspa.repository;
 
+import com.backendspa.dto.HuellaAgenda;
+import com.backendspa.dto.PosicionReserva;
+import com.backendspa.dto.ReservaResumen;
 import com.backendspa.entity.Reserva;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ReservaRepository extends JpaRepository<Reserva, Long> {
+    @Query("select r.empleado.id from Reserva r where r.id = :id")
+    Optional<Long> findEmpleadoIdById(@Param("id") Long id);
+
+    @EntityGraph("Reserva.detalle")
     List<Reserva> findByClienteId(Long clienteId);
+
+    @EntityGraph("Reserva.detalle")
     List<Reserva> findByEmpleadoId(Long empleadoId);
 
     // Método para buscar reservas por empleado y rango de fechas
+    @EntityGraph("Reserva.detalle")
     List<Reserva> findByEmpleadoIdAndFechaReservaBetween(Long empleadoId, LocalDateTime startDate, LocalDateTime endDate);
+
+    @Override
+    @EntityGraph("Reserva.detalle")
+    List<Reserva> findAll();
+
+    @EntityGraph("Reserva.detalle")
+    @Query("select r from Reserva r where r.id in :ids")
+    List<Reserva> findDetalleByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Inicializa los pagos de reservas que ya están en el contexto de persistencia
+    @Query("select distinct r from Reserva r left join fetch r.pagos where r.id in :ids")
+    List<Reserva> findConPagosByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Paginación por cursor (keyset) sobre (fechaReserva, id), respaldada por idx_reservas_fecha_id.
+    // Solo se leen las claves: limitar un fetch join de colecciones obligaría a paginar en memoria.
+    @Query("select new com.backendspa.dto.PosicionReserva(r.fechaReserva, r.id) from Reserva r " +
+            "order by r.fechaReserva asc, r.id asc")
+    List<PosicionReserva> findPosicionesPrimeraPagina(Pageable pageable);
+
+    @Query("select new com.backendspa.dto.PosicionReserva(r.fechaReserva, r.id) from Reserva r " +
+            "where r.fechaReserva > :fecha or (r.fechaReserva = :fecha and r.id > :id) " +
+            "order by r.fechaReserva asc, r.id asc")
+    List<PosicionReserva> findPosicionesPaginaDespuesDe(@Param("fecha") LocalDateTime fecha, @Param("id") Long id, Pageable pageable);
+
+    // Recorrido completo por id (reconstrucción de resúmenes)
+    @Query("select r.id from Reserva r where r.id > :id order by r.id asc")
+    List<Long> findIdsDespuesDe(@Param("id") Long id, Pageable pageable);
+
+    // Proyecciones de lectura (sin hidratar entidades)
+    String SELECT_RESUMEN = "select new com.backendspa.dto.ReservaResumen(r.id, r.fechaReserva, r.status, r.medioPago, " +
+            "r.descuentoAplicado, c.id, c.nombre, c.apellido, e.id, e.nombre, e.apellido, e.rol) " +
+            "from Reserva r join r.cliente c join r.empleado e ";
+
+    // Exportación: la recorre ExportacionService con un cursor en su propio pool de conexiones
+    String EXPORTACION = SELECT_RESUMEN + "order by r.id asc";
+
+    @Query(SELECT_RESUMEN + "where r.id in :ids")
+    List<ReservaResumen> findResumenByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SELECT_RESUMEN + "where c.id = :clienteId order by r.fechaReserva asc, r.id asc")
+    List<ReservaResumen> findResumenByClienteId(@Param("clienteId") Long clienteId);
+
+    @Query(SELECT_RESUMEN + "where e.id = :empleadoId and r.fechaReserva between :inicio and :fin " +
+            "order by r.fechaReserva asc, r.id asc")
+    List<ReservaResumen> findResumenByEmpleadoIdAndFechaReservaBetween(@Param("empleadoId") Long empleadoId,
+                                                                      @Param("inicio") LocalDateTime inicio,
+                                                                      @Param("fin") LocalDateTime fin);
+
+    // Misma condición que la agenda, sin joins ni filas: para validar la agenda guardada en AgendaDiariaCache
+    @Query("select new com.backendspa.dto.HuellaAgenda(count(r), coalesce(max(r.id), 0L), coalesce(sum(r.version), 0L)) " +
+            "from Reserva r where r.empleado.id = :empleadoId and r.fechaReserva between :inicio and :fin")
+    HuellaAgenda findHuellaByEmpleadoIdAndFechaReservaBetween(@Param("empleadoId") Long empleadoId,
+                                                             @Param("inicio") LocalDateTime inicio,
+                                                             @Param("fin") LocalDateTime fin);
 }
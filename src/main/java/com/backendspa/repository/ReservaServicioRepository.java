@@ -1,8 +1,27 @@
 package com.backendspa.repository;
 
+import com.backendspa.dto.ServicioReservado;
 import com.backendspa.entity.ReservaServicio;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public interface ReservaServicioRepository extends JpaRepository<ReservaServicio, Long> {
 
+    @Query("select new com.backendspa.dto.ServicioReservado(rs.reserva.id, rs.id, s.nombre, s.precio, rs.fechaServicio) " +
+            "from ReservaServicio rs join rs.servicio s where rs.reserva.id in :reservaIds order by rs.fechaServicio asc, rs.id asc")
+    List<ServicioReservado> findServiciosReservados(@Param("reservaIds") Collection<Long> reservaIds);
+
+    // Servicios de un cliente en un día, respaldada por idx_reserva_servicios_fecha (se filtra primero por fecha)
+    @Query("select rs from ReservaServicio rs join fetch rs.servicio join fetch rs.reserva r " +
+            "join fetch r.cliente join fetch r.empleado " +
+            "where r.cliente.id = :clienteId and rs.fechaServicio >= :inicio and rs.fechaServicio < :fin " +
+            "order by r.id asc, rs.fechaServicio asc")
+    List<ReservaServicio> findByClienteIdAndFechaServicio(@Param("clienteId") Long clienteId,
+                                                         @Param("inicio") LocalDateTime inicio,
+                                                         @Param("fin") LocalDateTime fin);
 }
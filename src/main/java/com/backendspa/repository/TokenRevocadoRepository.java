@@ -0,0 +1,27 @@
+package com.backendspa.repository;
+
+import com.backendspa.entity.TokenRevocado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TokenRevocadoRepository extends JpaRepository<TokenRevocado, String> {
+
+    // INSERT directo: si el jti ya estaba revocado falla con DataIntegrityViolationException (no hace merge)
+    @Modifying
+    @Query(value = "insert into tokens_revocados (jti, expira_en, revocado_en) values (:jti, :expiraEn, :revocadoEn)",
+            nativeQuery = true)
+    int insertar(@Param("jti") String jti, @Param("expiraEn") LocalDateTime expiraEn,
+                 @Param("revocadoEn") LocalDateTime revocadoEn);
+
+    // Revocaciones que todavía importan (el token no venció)
+    List<TokenRevocado> findByExpiraEnAfter(LocalDateTime fecha);
+
+    @Modifying
+    @Query("delete from TokenRevocado t where t.expiraEn <= :fecha")
+    int purgarVencidos(@Param("fecha") LocalDateTime fecha);
+}
@@ -0,0 +1,102 @@
+package com.backendspa.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Cache de identidades por email delante de SpaUserDetailsService. Además del usuario,
+ * recuerda en qué tabla (clientes o empleados) se encontró el email para consultar
+ * primero esa tabla cuando la entrada vence. ClienteService y EmpleadoService
+ * desalojan las entradas al modificar o eliminar una cuenta, después del commit: un login
+ * que cargue la fila mientras la transacción sigue abierta vería la versión anterior.
+ */
+@Component
+public class IdentityCache {
+
+    public static final String TABLA_CLIENTES = "CLIENTE";
+    public static final String TABLA_EMPLEADOS = "EMPLEADO";
+
+    @Value("${identidad.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${identidad.cache.ttl-minutes:10}")
+    private long ttlMinutes;
+
+    private Cache<String, SpaUserDetails> usuarios;
+
+    // email -> tabla donde se encontró; vive más que la entrada del usuario
+    private Cache<String, String> tablas;
+
+    @PostConstruct
+    void initCache() {
+        usuarios = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        tablas = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofDays(1))
+                .build();
+    }
+
+    /**
+     * Devuelve el usuario cacheado o lo carga con el loader. Si el loader devuelve null
+     * (email inexistente) no se cachea nada.
+     */
+    public SpaUserDetails get(String email, Function<String, SpaUserDetails> loader) {
+        SpaUserDetails userDetails = usuarios.get(email, loader);
+        if (userDetails != null) {
+            tablas.put(email, userDetails.getUserType());
+        }
+        return userDetails;
+    }
+
+    public String getTabla(String email) {
+        return tablas.getIfPresent(email);
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            usuarios.invalidate(email);
+            tablas.invalidate(email);
+        }
+    }
+
+    /**
+     * Desaloja ahora y otra vez después del commit de la transacción en curso. La segunda vez
+     * descarta lo que haya cargado un login concurrente antes de que el cambio fuera visible.
+     */
+    public void evictAlConfirmar(String... emails) {
+        for (String email : emails) {
+            evict(email);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    for (String email : emails) {
+                        evict(email);
+                    }
+                }
+            });
+        }
+    }
+
+    public CacheStats stats() {
+        return usuarios.stats();
+    }
+
+    public long size() {
+        return usuarios.estimatedSize();
+    }
+}
@@ -0,0 +1,68 @@
+package com.backendspa.security;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Claims de un JWT ya verificado. Se construye una sola vez por token y se reutiliza
+ * durante toda la solicitud (y entre solicitudes mientras siga en la cache de JwtUtil).
+ */
+public final class JwtClaims {
+
+    private final String subject;
+    private final String jti;
+    private final String tipo;
+    private final Long id;
+    private final List<String> roles;
+    private final Date issuedAt;
+    private final Date expiration;
+
+    public JwtClaims(String subject, String jti, String tipo, Long id, List<String> roles, Date issuedAt, Date expiration) {
+        this.subject = subject;
+        this.jti = jti;
+        this.tipo = tipo;
+        this.id = id;
+        this.roles = roles != null ? Collections.unmodifiableList(roles) : Collections.emptyList();
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    // Identificador único del token (claim "jti"); null en los emitidos antes de poder revocarlos
+    public String getJti() {
+        return jti;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    // Los tokens sin claim "tipo" son de acceso (emitidos antes de los refresh tokens)
+    public boolean isRefresh() {
+        return JwtUtil.TIPO_REFRESH.equals(tipo);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Date getExpiration() {
+        return expiration;
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+}
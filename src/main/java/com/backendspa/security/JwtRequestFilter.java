@@ -1,5 +1,8 @@
 package com.backendspa.security;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,12 +22,23 @@ import java.util.stream.Collectors;
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtRequestFilter.class);
+
     private final SpaUserDetailsService userDetailsService;
     private final JwtUtil jwtUtil;
+    private final RevocationChecker revocationChecker;
+    private final RevocacionTokens revocacionTokens;
+
+    // En modo sin estado el principal se arma con los claims del token, sin consultar la base de datos
+    @Value("${jwt.auth.stateless:true}")
+    private boolean stateless;
 
-    public JwtRequestFilter(SpaUserDetailsService userDetailsService, JwtUtil jwtUtil) {
+    public JwtRequestFilter(SpaUserDetailsService userDetailsService, JwtUtil jwtUtil, RevocationChecker revocationChecker,
+                            RevocacionTokens revocacionTokens) {
         this.userDetailsService = userDetailsService;
         this.jwtUtil = jwtUtil;
+        this.revocationChecker = revocationChecker;
+        this.revocacionTokens = revocacionTokens;
     }
 
     @Override
@@ -40,19 +54,24 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         final String authorizationHeader = request.getHeader("Authorization");
 
         String username = null;
-        String jwt = null;
+        JwtClaims claims = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            username = jwtUtil.extractUsername(jwt);
+            String jwt = authorizationHeader.substring(7);
+            // Se verifica el token una sola vez por solicitud; el resto usa estos claims
+            claims = jwtUtil.parseToken(jwt);
+            // Un refresh token no es credencial de acceso, y un token revocado (logout) ya no vale
+            if (!claims.isRefresh() && !revocacionTokens.estaRevocado(claims.getJti())) {
+                username = claims.getSubject();
+            }
         }
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            UserDetails userDetails = resolveUserDetails(claims);
+            if (userDetails != null && jwtUtil.validateToken(claims, userDetails)) {
                 // Extraer los roles del token
-                List<String> roles = jwtUtil.extractRoles(jwt);
-                System.out.println("Roles extraídos del token para " + username + ": " + roles); // Log para depuración
+                List<String> roles = claims.getRoles();
+                log.debug("Roles extraídos del token para {}: {}", username, roles);
                 // Convertir los roles a GrantedAuthority
                 List<SimpleGrantedAuthority> authorities = roles.stream()
                         .map(SimpleGrantedAuthority::new)
@@ -67,4 +86,16 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response);
     }
+
+    private UserDetails resolveUserDetails(JwtClaims claims) {
+        if (!stateless) {
+            return this.userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+        SpaUserDetails userDetails = SpaUserDetails.fromClaims(claims);
+        if (userDetails == null) {
+            // Token sin id/roles: se recurre a la base de datos
+            return this.userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+        return revocationChecker.isActive(userDetails) ? userDetails : null;
+    }
 }
@@ -1,29 +1,91 @@
 package com.backendspa.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Component
 public class JwtUtil {
 
+    public static final String TIPO_ACCESO = "access";
+    public static final String TIPO_REFRESH = "refresh";
+
     @Value("${jwt.secret}")
     private String secret;
 
+    // Vida del token de acceso, en milisegundos
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    // Vida del refresh token, en milisegundos: cada uso lo rota por uno nuevo
+    @Value("${jwt.refresh.expiration:1209600000}")
+    private Long refreshExpiration;
+
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    // Claims ya verificados, indexados por la firma del token. Cada entrada vence junto con su token.
+    private Cache<String, TokenVerificado> claimsCache;
+
+    @PostConstruct
+    void initCache() {
+        claimsCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, TokenVerificado>() {
+                    @Override
+                    public long expireAfterCreate(String firma, TokenVerificado verificado, long currentTime) {
+                        Date exp = verificado.claims.getExpiration();
+                        long restanteMs = exp != null ? exp.getTime() - System.currentTimeMillis() : 0;
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(restanteMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String firma, TokenVerificado verificado, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String firma, TokenVerificado verificado, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     public String generateToken(UserDetails userDetails) {
+        return createToken(userClaims(userDetails), userDetails.getUsername(), TIPO_ACCESO, expiration);
+    }
+
+    /**
+     * Refresh token: mismos claims que el de acceso pero con tipo "refresh" y vida larga.
+     * JwtRequestFilter no lo acepta como credencial; solo sirve en /api/auth/refresh.
+     */
+    public String generateRefreshToken(UserDetails userDetails) {
+        return createToken(userClaims(userDetails), userDetails.getUsername(), TIPO_REFRESH, refreshExpiration);
+    }
+
+    public long getExpirationMs() {
+        return expiration;
+    }
+
+    private Map<String, Object> userClaims(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
         if (userDetails instanceof SpaUserDetails) {
             SpaUserDetails spaUserDetails = (SpaUserDetails) userDetails;
@@ -34,42 +96,94 @@ public class JwtUtil {
                     .collect(Collectors.toList());
             claims.put("roles", roles);
         }
-        return createToken(claims, userDetails.getUsername());
+        return claims;
     }
 
-    private String createToken(Map<String, Object> claims, String subject) {
+    private String createToken(Map<String, Object> claims, String subject, String tipo, long vidaMs) {
+        claims.put("tipo", tipo);
+        long ahora = System.currentTimeMillis();
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
+                .setIssuedAt(new Date(ahora))
+                .setExpiration(new Date(ahora + vidaMs))
                 .signWith(SignatureAlgorithm.HS512, secret)
                 .compact();
     }
 
+    /**
+     * Verifica el token y devuelve sus claims. La verificación HS512 y la decodificación
+     * solo se hacen la primera vez que se ve el token; las solicitudes siguientes con el
+     * mismo token se resuelven desde la cache.
+     */
+    public JwtClaims parseToken(String token) {
+        String firma = extractSignature(token);
+        TokenVerificado verificado = claimsCache.getIfPresent(firma);
+        if (verificado != null && verificado.token.equals(token) && !verificado.claims.isExpired()) {
+            return verificado.claims;
+        }
+
+        JwtClaims claims = toJwtClaims(extractAllClaims(token));
+        claimsCache.put(firma, new TokenVerificado(token, claims));
+        return claims;
+    }
+
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(parseToken(token), userDetails);
+    }
+
+    public Boolean validateToken(JwtClaims claims, UserDetails userDetails) {
+        return (claims.getSubject().equals(userDetails.getUsername()) && !claims.isExpired());
     }
 
     public String extractUsername(String token) {
-        return extractAllClaims(token).getSubject();
+        return parseToken(token).getSubject();
     }
 
     public Long extractId(String token) {
-        return extractAllClaims(token).get("id", Long.class);
+        return parseToken(token).getId();
     }
 
     // Nuevo método para extraer los roles del token
     public List<String> extractRoles(String token) {
-        return extractAllClaims(token).get("roles", List.class);
+        return parseToken(token).getRoles();
     }
 
     private Claims extractAllClaims(String token) {
         return Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractAllClaims(token).getExpiration().before(new Date());
+    private JwtClaims toJwtClaims(Claims claims) {
+        List<String> roles = new ArrayList<>();
+        List<?> rolesClaim = claims.get("roles", List.class);
+        if (rolesClaim != null) {
+            rolesClaim.forEach(rol -> roles.add(String.valueOf(rol)));
+        }
+        return new JwtClaims(
+                claims.getSubject(),
+                claims.getId(),
+                claims.get("tipo", String.class),
+                claims.get("id", Long.class),
+                roles,
+                claims.getIssuedAt(),
+                claims.getExpiration()
+        );
+    }
+
+    private String extractSignature(String token) {
+        int ultimoPunto = token.lastIndexOf('.');
+        return ultimoPunto >= 0 ? token.substring(ultimoPunto + 1) : token;
+    }
+
+    // Se guarda el token completo para no aceptar otro header/payload con la misma firma.
+    private static final class TokenVerificado {
+        private final String token;
+        private final JwtClaims claims;
+
+        private TokenVerificado(String token, JwtClaims claims) {
+            this.token = token;
+            this.claims = claims;
+        }
     }
-}
\ No newline at end of file
+}
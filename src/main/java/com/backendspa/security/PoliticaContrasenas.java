@@ -0,0 +1,104 @@
+package com.backendspa.security;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Algoritmo y costo con que se guardan las contraseñas. Los hashes nuevos llevan el algoritmo
+ * como prefijo ("{bcrypt}$2a$12$..."), así que cada hash guardado dice con qué parámetros se
+ * generó; los anteriores, sin prefijo, se siguen validando como bcrypt.
+ *
+ * Si auth.bcrypt.costo no está fijado, el costo se calibra al arrancar: el mayor entre
+ * costo-minimo y costo-maximo cuyo hash tarde a lo sumo auth.bcrypt.presupuesto-ms en esta
+ * máquina. Cada login exitoso con un hash de otros parámetros lo vuelve a generar, así que
+ * cambiar el objetivo no obliga a resetear contraseñas.
+ */
+@Component
+public class PoliticaContrasenas {
+
+    private static final Logger log = LoggerFactory.getLogger(PoliticaContrasenas.class);
+
+    public static final String ALGORITMO = "bcrypt";
+    private static final String PREFIJO = "{" + ALGORITMO + "}";
+
+    // 0 = calibrar al arrancar
+    @Value("${auth.bcrypt.costo:0}")
+    private int costoFijo;
+
+    @Value("${auth.bcrypt.presupuesto-ms:250}")
+    private long presupuestoMs;
+
+    @Value("${auth.bcrypt.costo-minimo:10}")
+    private int costoMinimo;
+
+    @Value("${auth.bcrypt.costo-maximo:16}")
+    private int costoMaximo;
+
+    private int costo;
+
+    @PostConstruct
+    void calibrar() {
+        if (costoFijo > 0) {
+            costo = costoFijo;
+            log.info("Costo de bcrypt fijado en {}", costo);
+            return;
+        }
+        // Cada punto de costo duplica el tiempo: se mide el mínimo y se extrapola
+        BCryptPasswordEncoder prueba = new BCryptPasswordEncoder(costoMinimo);
+        prueba.encode("calibracion");
+        long mejorNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long inicio = System.nanoTime();
+            prueba.encode("calibracion");
+            mejorNanos = Math.min(mejorNanos, System.nanoTime() - inicio);
+        }
+        double milisegundos = mejorNanos / 1_000_000.0;
+        costo = costoMinimo;
+        while (costo < costoMaximo && milisegundos * 2 <= presupuestoMs) {
+            costo++;
+            milisegundos *= 2;
+        }
+        log.info("Costo de bcrypt calibrado en {} (~{} ms por hash, presupuesto {} ms)",
+                costo, Math.round(milisegundos), presupuestoMs);
+    }
+
+    public int getCosto() {
+        return costo;
+    }
+
+    public PasswordEncoder crearEncoder() {
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(ALGORITMO,
+                Map.of(ALGORITMO, new BCryptPasswordEncoder(costo)));
+        // Hashes guardados antes del prefijo: bcrypt con el costo que indique el propio hash
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return encoder;
+    }
+
+    /**
+     * Indica si un hash guardado no usa el algoritmo o el costo actuales (en cualquier sentido:
+     * bajar el costo también se aplica en el próximo login).
+     */
+    public boolean necesitaRehash(String hash) {
+        if (hash == null || !hash.startsWith(PREFIJO)) {
+            return true;
+        }
+        // {bcrypt}$2a$12$...
+        String bcrypt = hash.substring(PREFIJO.length());
+        if (bcrypt.length() < 7 || bcrypt.charAt(0) != '$' || bcrypt.charAt(3) != '$') {
+            return true;
+        }
+        try {
+            return Integer.parseInt(bcrypt.substring(4, 6)) != costo;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+}
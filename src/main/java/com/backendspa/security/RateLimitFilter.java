@@ -0,0 +1,243 @@
+package com.backendspa.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Límite de solicitudes para los endpoints caros (login con bcrypt, alta de reservas, envío de
+ * facturas). Cada política de ratelimit.politicas define, para un método y una ruta, una cubeta
+ * de tokens por IP y, si la solicitud está autenticada, otra por usuario:
+ *
+ *   POST /api/reservas ip=60/min usuario=20/min
+ *
+ * La capacidad es la cantidad por período (admite ráfagas de ese tamaño) y se recarga de forma
+ * continua. Las cubetas se actualizan con CAS, sin locks, y viven en una cache acotada que
+ * descarta las inactivas, así que un barrido de IPs no hace crecer la memoria. Va en la cadena
+ * de seguridad después de JwtRequestFilter, para conocer al usuario autenticado.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final AntPathMatcher RUTAS = new AntPathMatcher();
+
+    @Value("${ratelimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ratelimit.politicas:}")
+    private List<String> definiciones;
+
+    @Value("${ratelimit.max-cubetas:100000}")
+    private long maxCubetas;
+
+    private List<Politica> politicas;
+
+    private Cache<String, Cubeta> cubetas;
+
+    @PostConstruct
+    void init() {
+        politicas = new ArrayList<>();
+        for (String definicion : definiciones) {
+            if (!definicion.isBlank()) {
+                politicas.add(Politica.parsear(definicion.trim()));
+            }
+        }
+        // Una cubeta sin uso durante el mayor período configurado ya estaría llena: se puede descartar
+        long inactividadNanos = politicas.stream()
+                .flatMap(politica -> Stream.of(politica.porIp, politica.porUsuario))
+                .filter(limite -> limite != null)
+                .mapToLong(limite -> limite.periodoNanos)
+                .max()
+                .orElse(TimeUnit.MINUTES.toNanos(1));
+        cubetas = Caffeine.newBuilder()
+                .maximumSize(maxCubetas)
+                .expireAfterAccess(Duration.ofNanos(inactividadNanos))
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || politicas.isEmpty() || "OPTIONS".equalsIgnoreCase(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        for (int i = 0; i < politicas.size(); i++) {
+            Politica politica = politicas.get(i);
+            if (!politica.aplica(request.getMethod(), ruta)) {
+                continue;
+            }
+            long esperaNanos = 0;
+            if (politica.porIp != null) {
+                // Con server.forward-headers-strategy=native, detrás de un proxy interno getRemoteAddr ya es la IP de X-Forwarded-For
+                esperaNanos = consumir(i + ":ip:" + request.getRemoteAddr(), politica.porIp);
+            }
+            String usuario = usuarioAutenticado();
+            if (esperaNanos == 0 && politica.porUsuario != null && usuario != null) {
+                esperaNanos = consumir(i + ":u:" + usuario, politica.porUsuario);
+            }
+            if (esperaNanos > 0) {
+                rechazar(response, esperaNanos);
+                return;
+            }
+            break;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private long consumir(String clave, Limite limite) {
+        return cubetas.get(clave, k -> new Cubeta(limite)).consumir(System.nanoTime());
+    }
+
+    // Clientes y empleados tienen ids independientes: la clave lleva también el tipo de usuario
+    private static String usuarioAutenticado() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof SpaUserDetails usuario) {
+            return usuario.getUserType() + ":" + usuario.getId();
+        }
+        return null;
+    }
+
+    private static void rechazar(HttpServletResponse response, long esperaNanos) throws IOException {
+        long segundos = Math.max(1, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(segundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"message\":\"Demasiadas solicitudes, intente nuevamente en " + segundos + " segundos\"}");
+    }
+
+    private static final class Politica {
+        private final String metodo;
+        private final String ruta;
+        private final Limite porIp;
+        private final Limite porUsuario;
+
+        private Politica(String metodo, String ruta, Limite porIp, Limite porUsuario) {
+            this.metodo = metodo;
+            this.ruta = ruta;
+            this.porIp = porIp;
+            this.porUsuario = porUsuario;
+        }
+
+        // "POST /api/auth/login ip=10/min usuario=5/min" (método * para cualquiera)
+        private static Politica parsear(String definicion) {
+            String[] partes = definicion.split("\\s+");
+            if (partes.length < 3) {
+                throw new IllegalArgumentException("Política de ratelimit inválida: " + definicion);
+            }
+            Limite porIp = null;
+            Limite porUsuario = null;
+            for (int i = 2; i < partes.length; i++) {
+                String[] clave = partes[i].split("=", 2);
+                if (clave.length != 2) {
+                    throw new IllegalArgumentException("Límite inválido en la política: " + definicion);
+                }
+                if (clave[0].equalsIgnoreCase("ip")) {
+                    porIp = Limite.parsear(clave[1]);
+                } else if (clave[0].equalsIgnoreCase("usuario")) {
+                    porUsuario = Limite.parsear(clave[1]);
+                } else {
+                    throw new IllegalArgumentException("Clave de límite desconocida (use ip o usuario): " + clave[0]);
+                }
+            }
+            return new Politica(partes[0].toUpperCase(), partes[1], porIp, porUsuario);
+        }
+
+        private boolean aplica(String metodo, String ruta) {
+            return (this.metodo.equals("*") || this.metodo.equalsIgnoreCase(metodo)) && RUTAS.match(this.ruta, ruta);
+        }
+    }
+
+    private static final class Limite {
+        private final long capacidad;
+        private final long periodoNanos;
+
+        private Limite(long capacidad, long periodoNanos) {
+            this.capacidad = capacidad;
+            this.periodoNanos = periodoNanos;
+        }
+
+        // "20/min", "5/s", "100/h"
+        private static Limite parsear(String texto) {
+            String[] partes = texto.split("/", 2);
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Límite inválido (use cantidad/s, /min o /h): " + texto);
+            }
+            long capacidad = Long.parseLong(partes[0]);
+            if (capacidad <= 0) {
+                throw new IllegalArgumentException("La cantidad del límite debe ser positiva: " + texto);
+            }
+            long periodo = switch (partes[1].toLowerCase()) {
+                case "s" -> TimeUnit.SECONDS.toNanos(1);
+                case "min" -> TimeUnit.MINUTES.toNanos(1);
+                case "h" -> TimeUnit.HOURS.toNanos(1);
+                default -> throw new IllegalArgumentException("Período inválido (use s, min o h): " + texto);
+            };
+            return new Limite(capacidad, periodo);
+        }
+
+        private double nanosPorToken() {
+            return (double) periodoNanos / capacidad;
+        }
+    }
+
+    // Cubeta de tokens sin locks: el estado es inmutable y se reemplaza con compareAndSet
+    private static final class Cubeta {
+        private final Limite limite;
+        private final AtomicReference<Estado> estado;
+
+        private Cubeta(Limite limite) {
+            this.limite = limite;
+            this.estado = new AtomicReference<>(new Estado(limite.capacidad, System.nanoTime()));
+        }
+
+        // 0 si se consumió un token; si no, nanosegundos hasta que haya uno
+        private long consumir(long ahora) {
+            while (true) {
+                Estado actual = estado.get();
+                double tokens = Math.min(limite.capacidad,
+                        actual.tokens + Math.max(0, ahora - actual.nanos) / limite.nanosPorToken());
+                if (tokens < 1) {
+                    return (long) Math.ceil((1 - tokens) * limite.nanosPorToken());
+                }
+                if (estado.compareAndSet(actual, new Estado(tokens - 1, Math.max(ahora, actual.nanos)))) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private static final class Estado {
+        private final double tokens;
+        private final long nanos;
+
+        private Estado(double tokens, long nanos) {
+            this.tokens = tokens;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.backendspa.security;
+
+import com.backendspa.entity.TokenRevocado;
+import com.backendspa.repository.TokenRevocadoRepository;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tokens revocados antes de vencer, por jti. La tabla tokens_revocados es la fuente de verdad;
+ * en memoria hay un filtro de Bloom delante de un conjunto exacto. Casi todas las solicitudes
+ * traen un jti no revocado y el filtro lo descarta sin tocar el conjunto ni la base de datos;
+ * un falso positivo del filtro solo cuesta una búsqueda en el mapa.
+ *
+ * Al arrancar, y cada jwt.revocacion.recarga-ms, se purgan las filas vencidas y se reconstruye
+ * el filtro desde la tabla (así también se ven, con ese retraso, las revocaciones de otros
+ * nodos). Las revocaciones locales entran de inmediato.
+ */
+@Component
+public class RevocacionTokens {
+
+    private final TokenRevocadoRepository tokenRevocadoRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${jwt.revocacion.esperados:100000}")
+    private int esperados;
+
+    @Value("${jwt.revocacion.falsos-positivos:0.001}")
+    private double falsosPositivos;
+
+    // jti -> vencimiento del token (epoch ms)
+    private final ConcurrentHashMap<String, Long> revocados = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter<CharSequence> filtro;
+
+    // Serializa las altas con la reconstrucción del filtro; las consultas no lo toman
+    private final Object escritura = new Object();
+
+    public RevocacionTokens(TokenRevocadoRepository tokenRevocadoRepository, PlatformTransactionManager transactionManager) {
+        this.tokenRevocadoRepository = tokenRevocadoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void cargar() {
+        recargar();
+    }
+
+    public boolean estaRevocado(String jti) {
+        return jti != null && filtro.mightContain(jti) && revocados.containsKey(jti);
+    }
+
+    /**
+     * Revoca el token hasta su vencimiento. Devuelve false si ya estaba revocado, en este u
+     * otro nodo: un refresh token que se intenta usar dos veces.
+     */
+    public boolean revocar(String jti, Date expiracion) {
+        if (jti == null) {
+            return false;
+        }
+        LocalDateTime expiraEn = LocalDateTime.ofInstant(expiracion.toInstant(), ZoneId.systemDefault());
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    tokenRevocadoRepository.insertar(jti, expiraEn, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            agregar(jti, expiracion.getTime());
+            return false;
+        }
+        agregar(jti, expiracion.getTime());
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocacion.recarga-ms:60000}", initialDelayString = "${jwt.revocacion.recarga-ms:60000}")
+    public void recargar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<TokenRevocado> vigentes = transactionTemplate.execute(status -> {
+            tokenRevocadoRepository.purgarVencidos(ahora);
+            return tokenRevocadoRepository.findByExpiraEnAfter(ahora);
+        });
+        long ahoraMs = System.currentTimeMillis();
+        synchronized (escritura) {
+            revocados.values().removeIf(expira -> expira <= ahoraMs);
+            for (TokenRevocado token : vigentes) {
+                revocados.put(token.getJti(), token.getExpiraEn().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+            BloomFilter<CharSequence> nuevo = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                    Math.max(esperados, revocados.size() * 2), falsosPositivos);
+            revocados.keySet().forEach(nuevo::put);
+            filtro = nuevo;
+        }
+    }
+
+    public int getCantidad() {
+        return revocados.size();
+    }
+
+    private void agregar(String jti, long expiraMs) {
+        synchronized (escritura) {
+            // Primero el conjunto exacto: si el filtro ya lo contiene, la consulta debe encontrarlo
+            revocados.put(jti, expiraMs);
+            filtro.put(jti);
+        }
+    }
+}
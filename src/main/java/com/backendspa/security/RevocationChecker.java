@@ -0,0 +1,40 @@
+package com.backendspa.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verificación opcional, para el modo sin estado, de que la cuenta del token siga existiendo
+ * con el mismo id y rol. Se resuelve contra la IdentityCache, que se desaloja en cada
+ * modificación de la cuenta y vence tras identidad.cache.ttl-minutes.
+ */
+@Component
+public class RevocationChecker {
+
+    private final SpaUserDetailsService userDetailsService;
+
+    @Value("${jwt.revocation-check.enabled:false}")
+    private boolean enabled;
+
+    public RevocationChecker(SpaUserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    public boolean isActive(SpaUserDetails principal) {
+        if (!enabled) {
+            return true;
+        }
+        try {
+            UserDetails vigente = userDetailsService.loadUserByUsername(principal.getUsername());
+            return clave((SpaUserDetails) vigente).equals(clave(principal));
+        } catch (UsernameNotFoundException e) {
+            return false;
+        }
+    }
+
+    private String clave(SpaUserDetails userDetails) {
+        return userDetails.getId() + ":" + userDetails.getAuthorities().iterator().next().getAuthority();
+    }
+}
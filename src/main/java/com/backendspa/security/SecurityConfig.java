@@ -1,5 +1,8 @@
 package com.backendspa.security;
 
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,7 +11,7 @@ import org.springframework.security.config.annotation.authentication.builders.Au
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -43,11 +46,16 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtRequestFilter jwtRequestFilter) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtRequestFilter jwtRequestFilter,
+                                                   RateLimitFilter rateLimitFilter) throws Exception {
         http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource())) // Habilitar CORS explícitamente
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // Las respuestas en streaming terminan en un dispatch ASYNC de la misma solicitud, que ya se autorizó
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        // Actuator: escucha en management.server.port, que no se publica fuera de la red interna
+                        .requestMatchers(EndpointRequest.toAnyEndpoint()).permitAll()
                         // Permitir solicitudes OPTIONS sin autenticación
                         .requestMatchers(org.springframework.http.HttpMethod.OPTIONS, "/**").permitAll()
                         .requestMatchers("/api/auth/**", "/api/auth/register").permitAll()
@@ -66,21 +74,32 @@ public class SecurityConfig {
                 );
 
         http.addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
+        // Después del JWT, para poder limitar también por usuario autenticado
+        http.addFilterAfter(rateLimitFilter, JwtRequestFilter.class);
         return http.build();
     }
 
+    // Solo corre dentro de la cadena de seguridad: registrado además como filtro del servlet correría antes de autenticar
     @Bean
-    public AuthenticationManager authenticationManager(HttpSecurity http) throws Exception {
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter) {
+        FilterRegistrationBean<RateLimitFilter> registro = new FilterRegistrationBean<>(rateLimitFilter);
+        registro.setEnabled(false);
+        return registro;
+    }
+
+    @Bean
+    public AuthenticationManager authenticationManager(HttpSecurity http, PasswordEncoder passwordEncoder) throws Exception {
         AuthenticationManagerBuilder authenticationManagerBuilder =
                 http.getSharedObject(AuthenticationManagerBuilder.class);
         authenticationManagerBuilder
                 .userDetailsService(spaUserDetailsService)
-                .passwordEncoder(passwordEncoder());
+                .passwordEncoder(passwordEncoder);
         return authenticationManagerBuilder.build();
     }
 
+    // Delegante con el algoritmo y costo de PoliticaContrasenas (costo calibrado al arrancar)
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PoliticaContrasenas politicaContrasenas) {
+        return politicaContrasenas.crearEncoder();
     }
 }
\ No newline at end of file
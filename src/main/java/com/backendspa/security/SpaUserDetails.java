@@ -33,6 +33,28 @@ public class SpaUserDetails implements UserDetails {
         this.userType = userType;
     }
 
+    // Principal reconstruido solo con los claims del JWT (sin consultar la base de datos)
+    public SpaUserDetails(Long id, String email, String role, String userType) {
+        this.id = id;
+        this.email = email;
+        this.password = null;
+        this.authority = new SimpleGrantedAuthority(role);
+        this.userType = userType;
+    }
+
+    /**
+     * Construye el principal a partir de los claims "id" y "roles" que escribe JwtUtil.generateToken.
+     * Devuelve null si el token no trae la información suficiente.
+     */
+    public static SpaUserDetails fromClaims(JwtClaims claims) {
+        if (claims.getId() == null || claims.getRoles().isEmpty()) {
+            return null;
+        }
+        String role = claims.getRoles().get(0);
+        String userType = "ROLE_CLIENTE".equals(role) ? "CLIENTE" : "EMPLEADO";
+        return new SpaUserDetails(claims.getId(), claims.getSubject(), role, userType);
+    }
+
     public Long getId() {
         return id;
     }
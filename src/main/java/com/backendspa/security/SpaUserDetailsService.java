@@ -16,26 +16,57 @@ public class SpaUserDetailsService implements UserDetailsService {
 
     private final ClienteService clienteService;
     private final EmpleadoService empleadoService;
+    private final IdentityCache identityCache;
 
-    public SpaUserDetailsService(ClienteService clienteService, EmpleadoService empleadoService) {
+    public SpaUserDetailsService(ClienteService clienteService, EmpleadoService empleadoService, IdentityCache identityCache) {
         this.clienteService = clienteService;
         this.empleadoService = empleadoService;
+        this.identityCache = identityCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        // Buscar en clientes
-        Optional<Cliente> cliente = clienteService.getClienteByEmail(email);
-        if (cliente.isPresent()) {
-            return new SpaUserDetails(cliente.get(), "CLIENTE");
+        SpaUserDetails userDetails = buscarPorEmail(email);
+        if (userDetails == null) {
+            throw new UsernameNotFoundException("Usuario no encontrado: " + email);
         }
+        return userDetails;
+    }
 
-        // Buscar en empleados
-        Optional<Empleado> empleado = empleadoService.getEmpleadoByEmail(email);
-        if (empleado.isPresent()) {
-            return new SpaUserDetails(empleado.get(), "EMPLEADO");
+    // Cliente o empleado con ese email (pasando por la cache de identidades), o null si no existe
+    public SpaUserDetails buscarPorEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return identityCache.get(email, this::cargarUsuario);
+    }
+
+    // Guarda un hash nuevo en la tabla de la que salió el usuario
+    public void actualizarHashPassword(SpaUserDetails usuario, String hash) {
+        if (IdentityCache.TABLA_EMPLEADOS.equals(usuario.getUserType())) {
+            empleadoService.actualizarHashPassword(usuario.getId(), usuario.getUsername(), hash);
+        } else {
+            clienteService.actualizarHashPassword(usuario.getId(), usuario.getUsername(), hash);
+        }
+    }
+
+    private SpaUserDetails cargarUsuario(String email) {
+        // Si ya sabemos que es un empleado, se consulta primero esa tabla
+        if (IdentityCache.TABLA_EMPLEADOS.equals(identityCache.getTabla(email))) {
+            SpaUserDetails empleado = buscarEmpleado(email);
+            return empleado != null ? empleado : buscarCliente(email);
         }
+        SpaUserDetails cliente = buscarCliente(email);
+        return cliente != null ? cliente : buscarEmpleado(email);
+    }
 
-        throw new UsernameNotFoundException("Usuario no encontrado: " + email);
+    private SpaUserDetails buscarCliente(String email) {
+        Optional<Cliente> cliente = clienteService.getClienteByEmail(email);
+        return cliente.map(c -> new SpaUserDetails(c, IdentityCache.TABLA_CLIENTES)).orElse(null);
+    }
+
+    private SpaUserDetails buscarEmpleado(String email) {
+        Optional<Empleado> empleado = empleadoService.getEmpleadoByEmail(email);
+        return empleado.map(e -> new SpaUserDetails(e, IdentityCache.TABLA_EMPLEADOS)).orElse(null);
     }
-}
\ No newline at end of file
+}
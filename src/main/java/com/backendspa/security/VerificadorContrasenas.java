@@ -0,0 +1,117 @@
+package com.backendspa.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Comparación de contraseñas con bcrypt en un pool propio y acotado. Cada comparación ocupa
+ * un núcleo durante decenas de milisegundos: con auth.bcrypt.hilos hilos y una cola de
+ * auth.bcrypt.cola pedidos, una ráfaga de logins usa como mucho esos núcleos y el resto de los
+ * endpoints sigue atendiéndose. Lo que no entra en la cola se rechaza enseguida.
+ */
+@Component
+public class VerificadorContrasenas {
+
+    private static final Logger log = LoggerFactory.getLogger(VerificadorContrasenas.class);
+
+    private final PasswordEncoder passwordEncoder;
+
+    // 0 = la mitad de los núcleos disponibles (al menos uno)
+    @Value("${auth.bcrypt.hilos:0}")
+    private int hilos;
+
+    @Value("${auth.bcrypt.cola:64}")
+    private int cola;
+
+    @Value("${auth.bcrypt.espera-ms:5000}")
+    private long esperaMs;
+
+    private ThreadPoolExecutor ejecutor;
+
+    public VerificadorContrasenas(PasswordEncoder passwordEncoder) {
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    @PostConstruct
+    void initEjecutor() {
+        int tamano = hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger contador = new AtomicInteger();
+        ejecutor = new ThreadPoolExecutor(tamano, tamano, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola), r -> {
+                    Thread hilo = new Thread(r, "bcrypt-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Resultado de la comparación, o vacío si el pool está saturado (cola llena o sin respuesta
+     * dentro de auth.bcrypt.espera-ms): el llamador debe responder 503 para que el cliente reintente.
+     */
+    public Optional<Boolean> coincide(String contrasena, String hash) {
+        if (contrasena == null || hash == null) {
+            return Optional.of(false);
+        }
+        Future<Boolean> resultado;
+        try {
+            resultado = ejecutor.submit(() -> passwordEncoder.matches(contrasena, hash));
+        } catch (RejectedExecutionException e) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(resultado.get(esperaMs, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            resultado.cancel(true);
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultado.cancel(true);
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al verificar la contraseña", e.getCause());
+        }
+    }
+
+    /**
+     * Genera en segundo plano, en el mismo pool, un hash nuevo de la contraseña y se lo pasa a
+     * guardar. Si el pool está lleno no se hace nada: se reintentará en el próximo login.
+     */
+    public void recodificar(String contrasena, Consumer<String> guardar) {
+        try {
+            ejecutor.execute(() -> {
+                try {
+                    guardar.accept(passwordEncoder.encode(contrasena));
+                } catch (RuntimeException e) {
+                    log.warn("No se pudo actualizar el hash de la contraseña", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Sin lugar en la cola: el hash anterior sigue siendo válido
+        }
+    }
+
+    public int getEnCola() {
+        return ejecutor.getQueue().size();
+    }
+}
@@ -0,0 +1,152 @@
+package com.backendspa.service;
+
+import com.backendspa.dto.HuellaAgenda;
+import com.backendspa.dto.ReservaResumen;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Agenda del día de cada empleado ya serializada a JSON, con su ETag. La consultan las tablets
+ * de los profesionales cada pocos segundos: mientras nadie escriba una reserva de ese empleado
+ * y día, las consultas se responden desde acá (o con 304) sin armar la agenda. ReservaService
+ * invalida el día después del commit de cada alta, modificación o baja en este nodo.
+ *
+ * Los cambios hechos por otra instancia no llegan como invalidación: cada agenda guarda la
+ * huella de sus reservas (cantidad, id más alto y suma de versiones) y, pasados
+ * verificacion-segundos desde la última verificación, se compara con una consulta de una fila
+ * antes de usarla. El vencimiento cubre los cambios que no tocan la versión de las reservas,
+ * como el nombre de un cliente.
+ *
+ * Caffeine no deja que una invalidación se pierda contra una carga en curso de la misma clave
+ * (la invalidación espera a que termine la carga y la descarta).
+ */
+@Component
+public class AgendaDiariaCache {
+
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate lectura;
+
+    @Value("${reservas.agenda-diaria.cache.max:2000}")
+    private long maxAgendas;
+
+    @Value("${reservas.agenda-diaria.cache.vencimiento-minutos:2}")
+    private long vencimientoMinutos;
+
+    @Value("${reservas.agenda-diaria.cache.verificacion-segundos:5}")
+    private long verificacionSegundos;
+
+    private Cache<ClaveDia, AgendaDiaria> agendas;
+
+    public AgendaDiariaCache(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lectura.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void initCache() {
+        agendas = Caffeine.newBuilder()
+                .maximumSize(maxAgendas)
+                .expireAfterWrite(Duration.ofMinutes(vencimientoMinutos))
+                .build();
+    }
+
+    /*
+     * Devuelve la agenda guardada si su huella sigue vigente, o la arma con cargar. Huella y
+     * agenda se leen en la misma transacción de solo lectura propia, así la huella guardada
+     * corresponde exactamente a las reservas serializadas.
+     */
+    public AgendaDiaria obtener(Long empleadoId, LocalDate fecha, Supplier<HuellaAgenda> huella,
+                                Supplier<List<ReservaResumen>> cargar) {
+        ClaveDia clave = new ClaveDia(empleadoId, fecha);
+        AgendaDiaria guardada = agendas.getIfPresent(clave);
+        if (guardada != null) {
+            long ahora = System.nanoTime();
+            if (ahora - guardada.verificadaEn < TimeUnit.SECONDS.toNanos(verificacionSegundos)) {
+                return guardada;
+            }
+            if (guardada.huella.equals(lectura.execute(status -> huella.get()))) {
+                guardada.verificadaEn = ahora;
+                return guardada;
+            }
+            // Solo la que se verificó: si otro hilo ya la reemplazó, esa se queda
+            agendas.asMap().remove(clave, guardada);
+        }
+        return agendas.get(clave, c -> lectura.execute(status -> materializar(huella.get(), cargar.get())));
+    }
+
+    public void invalidar(Long empleadoId, LocalDate fecha) {
+        agendas.invalidate(new ClaveDia(empleadoId, fecha));
+    }
+
+    private AgendaDiaria materializar(HuellaAgenda huella, List<ReservaResumen> reservas) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(reservas);
+            return new AgendaDiaria(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"", reservas.size(), huella);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la agenda", e);
+        }
+    }
+
+    public static final class AgendaDiaria {
+        private final byte[] json;
+        private final String etag;
+        private final int cantidad;
+        private final HuellaAgenda huella;
+        // System.nanoTime() de la última vez que se comparó la huella con la base de datos
+        private volatile long verificadaEn;
+
+        private AgendaDiaria(byte[] json, String etag, int cantidad, HuellaAgenda huella) {
+            this.json = json;
+            this.etag = etag;
+            this.cantidad = cantidad;
+            this.huella = huella;
+            this.verificadaEn = System.nanoTime();
+        }
+
+        // Cuerpo de la respuesta: el arreglo no se modifica una vez guardado
+        public byte[] getJson() { return json; }
+        public String getEtag() { return etag; }
+        public int getCantidad() { return cantidad; }
+    }
+
+    private static final class ClaveDia {
+        private final Long empleadoId;
+        private final LocalDate fecha;
+
+        private ClaveDia(Long empleadoId, LocalDate fecha) {
+            this.empleadoId = empleadoId;
+            this.fecha = fecha;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ClaveDia)) return false;
+            ClaveDia otra = (ClaveDia) o;
+            return empleadoId.equals(otra.empleadoId) && fecha.equals(otra.fecha);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(empleadoId, fecha);
+        }
+    }
+}
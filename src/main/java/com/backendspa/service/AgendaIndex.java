@@ -0,0 +1,217 @@
+package com.backendspa.service;
+
+import com.backendspa.dto.BloqueOcupado;
+import com.backendspa.repository.BloqueAgendaRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Índice en memoria de los bloques ocupados de cada empleado, por día. Cada día se carga la
+ * primera vez que se consulta (en una transacción propia, para reflejar solo datos confirmados)
+ * y se mantiene con las escrituras de ReservaService después del commit. Los bloques de un día
+ * están en un TreeMap inicio -> reserva, así que ver si un intervalo está libre es O(log n).
+ *
+ * El índice solo evita ir a la base de datos en el caso común; la garantía real es la
+ * restricción única de bloques_agenda. Un día puede quedar desactualizado por escrituras de
+ * otro nodo: vence a los pocos segundos de cargado y, si informa un conflicto, se vuelve a
+ * leer antes de rechazar el turno.
+ */
+@Component
+public class AgendaIndex {
+
+    public static final int MINUTOS_BLOQUE = 15;
+    public static final int BLOQUES_POR_DIA = 24 * 60 / MINUTOS_BLOQUE;
+    public static final int PALABRAS_POR_DIA = (BLOQUES_POR_DIA + 63) / 64;
+
+    private final BloqueAgendaRepository bloqueAgendaRepository;
+    private final TransactionTemplate lectura;
+
+    @Value("${reservas.turno.duracion-minutos:60}")
+    private int duracionTurnoMinutos;
+
+    @Value("${reservas.agenda.cache.max-dias:5000}")
+    private long maxDias;
+
+    @Value("${reservas.agenda.cache.ttl-segundos:30}")
+    private long ttlSegundos;
+
+    private Cache<ClaveDia, DiaAgenda> dias;
+
+    public AgendaIndex(BloqueAgendaRepository bloqueAgendaRepository, PlatformTransactionManager transactionManager) {
+        this.bloqueAgendaRepository = bloqueAgendaRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lectura.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void initCache() {
+        dias = Caffeine.newBuilder()
+                .maximumSize(maxDias)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .build();
+    }
+
+    public int getDuracionTurnoMinutos() {
+        return duracionTurnoMinutos;
+    }
+
+    /**
+     * Bloques de 15 minutos que ocupa un turno que empieza en la fecha dada.
+     */
+    public List<LocalDateTime> bloquesDe(LocalDateTime fechaServicio) {
+        LocalDateTime inicio = truncarABloque(fechaServicio);
+        LocalDateTime fin = fechaServicio.plusMinutes(duracionTurnoMinutos);
+        List<LocalDateTime> bloques = new ArrayList<>();
+        for (LocalDateTime bloque = inicio; bloque.isBefore(fin); bloque = bloque.plusMinutes(MINUTOS_BLOQUE)) {
+            bloques.add(bloque);
+        }
+        return bloques;
+    }
+
+    /**
+     * Indica si los bloques están libres para el empleado. Los bloques que ya pertenecen a
+     * reservaPropia (al modificar una reserva) no cuentan como ocupados.
+     */
+    public boolean estanLibres(Long empleadoId, List<LocalDateTime> bloques, Long reservaPropia) {
+        if (bloques.isEmpty()) {
+            return true;
+        }
+        // Los bloques vienen ordenados y son contiguos: se consulta el rango por día
+        LocalDateTime desde = bloques.get(0);
+        LocalDateTime hasta = bloques.get(bloques.size() - 1).plusMinutes(MINUTOS_BLOQUE);
+        for (LocalDate fecha = desde.toLocalDate(); !fecha.isAfter(hasta.minusNanos(1).toLocalDate()); fecha = fecha.plusDays(1)) {
+            if (!dia(empleadoId, fecha).estaLibre(desde, hasta, reservaPropia)) {
+                // El bloque pudo liberarse en otro nodo: se confirma contra la base antes de rechazar
+                invalidar(empleadoId, fecha);
+                if (!dia(empleadoId, fecha).estaLibre(desde, hasta, reservaPropia)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registra bloques confirmados. Solo actualiza los días ya cargados: los demás los
+     * leerá de la base de datos la próxima consulta.
+     */
+    public void registrar(Long empleadoId, List<LocalDateTime> bloques, Long reservaId) {
+        for (LocalDateTime bloque : bloques) {
+            DiaAgenda dia = dias.getIfPresent(new ClaveDia(empleadoId, bloque.toLocalDate()));
+            if (dia != null) {
+                dia.ocupar(bloque, reservaId);
+            }
+        }
+    }
+
+    public void invalidar(Long empleadoId, LocalDate fecha) {
+        dias.invalidate(new ClaveDia(empleadoId, fecha));
+    }
+
+    // Copia de los bloques ocupados de un día, ordenados por inicio
+    public NavigableMap<LocalDateTime, Long> ocupados(Long empleadoId, LocalDate fecha) {
+        return dia(empleadoId, fecha).copia();
+    }
+
+    /**
+     * Mapa de bits de los bloques ocupados de un día: el bit i corresponde al bloque que
+     * empieza a las 00:00 + 15 * i minutos. Devuelve una copia de PALABRAS_POR_DIA longs.
+     */
+    public long[] ocupacion(Long empleadoId, LocalDate fecha) {
+        return dia(empleadoId, fecha).ocupacion();
+    }
+
+    private DiaAgenda dia(Long empleadoId, LocalDate fecha) {
+        return dias.get(new ClaveDia(empleadoId, fecha), this::cargar);
+    }
+
+    private DiaAgenda cargar(ClaveDia clave) {
+        List<BloqueOcupado> ocupados = lectura.execute(status -> bloqueAgendaRepository.findOcupados(
+                clave.empleadoId, clave.fecha.atStartOfDay(), clave.fecha.plusDays(1).atStartOfDay()));
+        DiaAgenda dia = new DiaAgenda();
+        for (BloqueOcupado bloque : ocupados) {
+            dia.ocupar(bloque.getInicio(), bloque.getReservaId());
+        }
+        return dia;
+    }
+
+    private LocalDateTime truncarABloque(LocalDateTime fecha) {
+        int minuto = fecha.getMinute() - fecha.getMinute() % MINUTOS_BLOQUE;
+        return fecha.withMinute(minuto).withSecond(0).withNano(0);
+    }
+
+    private static final class DiaAgenda {
+        private final TreeMap<LocalDateTime, Long> bloques = new TreeMap<>();
+        private final long[] ocupacion = new long[PALABRAS_POR_DIA];
+
+        private synchronized boolean estaLibre(LocalDateTime desde, LocalDateTime hasta, Long reservaPropia) {
+            Map.Entry<LocalDateTime, Long> primero = bloques.ceilingEntry(desde);
+            if (primero == null || !primero.getKey().isBefore(hasta)) {
+                return true;
+            }
+            if (reservaPropia == null) {
+                return false;
+            }
+            for (Long reservaId : bloques.subMap(desde, true, hasta, false).values()) {
+                if (!reservaPropia.equals(reservaId)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private synchronized void ocupar(LocalDateTime inicio, Long reservaId) {
+            bloques.put(inicio, reservaId);
+            int bloque = (inicio.getHour() * 60 + inicio.getMinute()) / MINUTOS_BLOQUE;
+            ocupacion[bloque >>> 6] |= 1L << (bloque & 63);
+        }
+
+        private synchronized long[] ocupacion() {
+            return ocupacion.clone();
+        }
+
+        private synchronized NavigableMap<LocalDateTime, Long> copia() {
+            return new TreeMap<>(bloques);
+        }
+    }
+
+    private static final class ClaveDia {
+        private final Long empleadoId;
+        private final LocalDate fecha;
+
+        private ClaveDia(Long empleadoId, LocalDate fecha) {
+            this.empleadoId = empleadoId;
+            this.fecha = fecha;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ClaveDia)) return false;
+            ClaveDia otra = (ClaveDia) o;
+            return empleadoId.equals(otra.empleadoId) && fecha.equals(otra.fecha);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(empleadoId, fecha);
+        }
+    }
+}
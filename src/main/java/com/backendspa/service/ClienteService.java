@@ -2,9 +2,11 @@ package com.backendspa.service;
 
 import com.backendspa.entity.Cliente;
 import com.backendspa.repository.ClienteRepository;
+import com.backendspa.security.IdentityCache;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,16 +15,21 @@ import java.util.Optional;
 public class ClienteService {
 
     private final ClienteRepository clienteRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
+    private final IdentityCache identityCache;
 
-    public ClienteService(ClienteRepository clienteRepository, @Lazy BCryptPasswordEncoder passwordEncoder) {
+    public ClienteService(ClienteRepository clienteRepository, @Lazy PasswordEncoder passwordEncoder, IdentityCache identityCache) {
         this.clienteRepository = clienteRepository;
         this.passwordEncoder = passwordEncoder;
+        this.identityCache = identityCache;
     }
 
+    @Transactional
     public Cliente createCliente(Cliente cliente) {
         cliente.setPassword(passwordEncoder.encode(cliente.getPassword()));
-        return clienteRepository.save(cliente);
+        Cliente nuevoCliente = clienteRepository.save(cliente);
+        identityCache.evictAlConfirmar(nuevoCliente.getEmail());
+        return nuevoCliente;
     }
 
     public List<Cliente> getAllClientes() {
@@ -37,9 +44,11 @@ public class ClienteService {
         return clienteRepository.findByEmail(email);
     }
 
+    @Transactional
     public Cliente updateCliente(Long id, Cliente clienteDetails) {
         Cliente cliente = clienteRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Cliente no encontrado"));
+        String emailAnterior = cliente.getEmail();
         cliente.setDni(clienteDetails.getDni());
         cliente.setNombre(clienteDetails.getNombre());
         cliente.setApellido(clienteDetails.getApellido());
@@ -48,10 +57,23 @@ public class ClienteService {
         if (clienteDetails.getPassword() != null && !clienteDetails.getPassword().isEmpty()) {
             cliente.setPassword(passwordEncoder.encode(clienteDetails.getPassword()));
         }
-        return clienteRepository.save(cliente);
+        Cliente updatedCliente = clienteRepository.saveAndFlush(cliente);
+        // Se desalojan el email anterior y el nuevo para que el cambio aplique de inmediato
+        identityCache.evictAlConfirmar(emailAnterior, updatedCliente.getEmail());
+        return updatedCliente;
     }
 
+    // Reemplaza el hash por uno generado con los parámetros actuales (rehash al iniciar sesión)
+    @Transactional
+    public void actualizarHashPassword(Long id, String email, String hash) {
+        clienteRepository.actualizarPassword(id, hash);
+        identityCache.evictAlConfirmar(email);
+    }
+
+    @Transactional
     public void deleteCliente(Long id) {
+        Optional<Cliente> cliente = clienteRepository.findById(id);
         clienteRepository.deleteById(id);
+        cliente.ifPresent(c -> identityCache.evictAlConfirmar(c.getEmail()));
     }
 }
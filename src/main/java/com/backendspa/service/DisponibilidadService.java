@@ -0,0 +1,180 @@
+package com.backendspa.service;
+
+import com.backendspa.dto.TurnoLibre;
+import com.backendspa.entity.Empleado;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Calcula horarios de inicio libres a partir de los mapas de bits de AgendaIndex. Cada día de
+ * un empleado son PALABRAS_POR_DIA longs (un bit por bloque de 15 minutos), así que filtrar por
+ * horario de atención, anticipación mínima y duración del turno, o combinar varios empleados,
+ * son operaciones sobre palabras en lugar de consultas.
+ */
+@Service
+public class DisponibilidadService {
+
+    private final AgendaIndex agendaIndex;
+    private final EmpleadoService empleadoService;
+
+    @Value("${reservas.agenda.apertura:09:00}")
+    private LocalTime apertura;
+
+    @Value("${reservas.agenda.cierre:20:00}")
+    private LocalTime cierre;
+
+    @Value("${reservas.disponibilidad.max-dias:31}")
+    private int maxDias;
+
+    public DisponibilidadService(AgendaIndex agendaIndex, EmpleadoService empleadoService) {
+        this.agendaIndex = agendaIndex;
+        this.empleadoService = empleadoService;
+    }
+
+    /**
+     * Horarios de inicio libres del empleado entre desde y hasta (ambos inclusive).
+     */
+    public List<LocalDateTime> getDisponibilidadEmpleado(Long empleadoId, LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        LocalDateTime minimo = LocalDateTime.now().plusHours(ReservaService.HORAS_ANTICIPACION_MINIMA);
+        List<LocalDateTime> libres = new ArrayList<>();
+        for (LocalDate fecha = desde; !fecha.isAfter(hasta); fecha = fecha.plusDays(1)) {
+            LocalDate dia = fecha;
+            forEachBit(iniciosLibres(empleadoId, dia, minimo), bloque -> libres.add(inicioDe(dia, bloque)));
+        }
+        return libres;
+    }
+
+    /**
+     * Primeros horarios de inicio en los que algún empleado habilitado para el servicio está
+     * libre, con los empleados disponibles en cada uno. Como mucho devuelve limite horarios.
+     */
+    public List<TurnoLibre> getDisponibilidadServicio(String servicio, LocalDate desde, LocalDate hasta, int limite) {
+        validarRango(desde, hasta);
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite debe ser mayor que cero");
+        }
+        List<Empleado> empleados = empleadoService.getEmpleadosForServicio(servicio);
+        LocalDateTime minimo = LocalDateTime.now().plusHours(ReservaService.HORAS_ANTICIPACION_MINIMA);
+        List<TurnoLibre> turnos = new ArrayList<>();
+
+        for (LocalDate fecha = desde; !fecha.isAfter(hasta) && turnos.size() < limite; fecha = fecha.plusDays(1)) {
+            long[][] porEmpleado = new long[empleados.size()][];
+            long[] union = new long[AgendaIndex.PALABRAS_POR_DIA];
+            for (int e = 0; e < empleados.size(); e++) {
+                porEmpleado[e] = iniciosLibres(empleados.get(e).getId(), fecha, minimo);
+                for (int w = 0; w < union.length; w++) {
+                    union[w] |= porEmpleado[e][w];
+                }
+            }
+
+            for (int w = 0; w < union.length && turnos.size() < limite; w++) {
+                long palabra = union[w];
+                while (palabra != 0 && turnos.size() < limite) {
+                    int bit = Long.numberOfTrailingZeros(palabra);
+                    palabra &= palabra - 1;
+                    List<Long> disponibles = new ArrayList<>();
+                    for (int e = 0; e < empleados.size(); e++) {
+                        if ((porEmpleado[e][w] & (1L << bit)) != 0) {
+                            disponibles.add(empleados.get(e).getId());
+                        }
+                    }
+                    turnos.add(new TurnoLibre(inicioDe(fecha, (w << 6) + bit), disponibles));
+                }
+            }
+        }
+        return turnos;
+    }
+
+    // Bloques donde puede empezar un turno completo: libre, dentro del horario y con la anticipación mínima
+    private long[] iniciosLibres(Long empleadoId, LocalDate fecha, LocalDateTime minimo) {
+        if (fecha.isBefore(minimo.toLocalDate())) {
+            return new long[AgendaIndex.PALABRAS_POR_DIA];
+        }
+        long[] libres = mascara(bloqueDe(apertura), bloqueDe(cierre));
+        if (fecha.equals(minimo.toLocalDate())) {
+            // Primer bloque que empieza en o después del mínimo
+            int primero = (int) ((ChronoUnit.MINUTES.between(fecha.atStartOfDay(), minimo) + AgendaIndex.MINUTOS_BLOQUE - 1)
+                    / AgendaIndex.MINUTOS_BLOQUE);
+            and(libres, mascara(primero, AgendaIndex.BLOQUES_POR_DIA));
+        }
+
+        long[] ocupacion = agendaIndex.ocupacion(empleadoId, fecha);
+        for (int w = 0; w < libres.length; w++) {
+            libres[w] &= ~ocupacion[w];
+        }
+
+        // El turno necesita k bloques libres seguidos: inicio i válido si i..i+k-1 están libres
+        int k = (agendaIndex.getDuracionTurnoMinutos() + AgendaIndex.MINUTOS_BLOQUE - 1) / AgendaIndex.MINUTOS_BLOQUE;
+        long[] inicios = libres.clone();
+        for (int j = 1; j < k; j++) {
+            and(inicios, desplazar(libres, j));
+        }
+        return inicios;
+    }
+
+    // Bits [desde, hasta)
+    private long[] mascara(int desde, int hasta) {
+        long[] mascara = new long[AgendaIndex.PALABRAS_POR_DIA];
+        for (int bloque = desde; bloque < hasta && bloque < AgendaIndex.BLOQUES_POR_DIA; bloque++) {
+            mascara[bloque >>> 6] |= 1L << (bloque & 63);
+        }
+        return mascara;
+    }
+
+    // Resultado con el bit i igual al bit i + n de la entrada
+    private long[] desplazar(long[] bits, int n) {
+        long[] resultado = new long[bits.length];
+        int palabras = n >>> 6;
+        int resto = n & 63;
+        for (int w = 0; w + palabras < bits.length; w++) {
+            long valor = bits[w + palabras] >>> resto;
+            if (resto != 0 && w + palabras + 1 < bits.length) {
+                valor |= bits[w + palabras + 1] << (64 - resto);
+            }
+            resultado[w] = valor;
+        }
+        return resultado;
+    }
+
+    private void and(long[] destino, long[] otro) {
+        for (int w = 0; w < destino.length; w++) {
+            destino[w] &= otro[w];
+        }
+    }
+
+    private void forEachBit(long[] bits, IntConsumer accion) {
+        for (int w = 0; w < bits.length; w++) {
+            long palabra = bits[w];
+            while (palabra != 0) {
+                accion.accept((w << 6) + Long.numberOfTrailingZeros(palabra));
+                palabra &= palabra - 1;
+            }
+        }
+    }
+
+    private int bloqueDe(LocalTime hora) {
+        return (hora.getHour() * 60 + hora.getMinute()) / AgendaIndex.MINUTOS_BLOQUE;
+    }
+
+    private LocalDateTime inicioDe(LocalDate fecha, int bloque) {
+        return fecha.atStartOfDay().plusMinutes((long) bloque * AgendaIndex.MINUTOS_BLOQUE);
+    }
+
+    private void validarRango(LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("La fecha hasta no puede ser anterior a desde");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) >= maxDias) {
+            throw new IllegalArgumentException("El rango de fechas no puede superar los " + maxDias + " días");
+        }
+    }
+}
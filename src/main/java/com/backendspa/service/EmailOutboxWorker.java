@@ -0,0 +1,151 @@
+package com.backendspa.service;
+
+import com.backendspa.entity.EmailOutbox;
+import com.backendspa.repository.EmailOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Vacía la tabla email_outbox. Un poller toma las filas vencidas (pendientes o con el lease
+ * de ENVIANDO expirado), las reclama con un update condicional y las entrega en un pool
+ * acotado. Los fallos se reintentan con backoff exponencial hasta email.outbox.max-intentos;
+ * después la fila queda DESCARTADO para revisión manual.
+ */
+@Component
+public class EmailOutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+    private static final EnumSet<EmailOutbox.Estado> ESTADOS_RECLAMABLES =
+            EnumSet.of(EmailOutbox.Estado.PENDIENTE, EmailOutbox.Estado.ENVIANDO);
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailTransport emailTransport;
+
+    @Value("${email.outbox.hilos:2}")
+    private int hilos;
+
+    @Value("${email.outbox.cola:50}")
+    private int capacidadCola;
+
+    @Value("${email.outbox.max-intentos:6}")
+    private int maxIntentos;
+
+    @Value("${email.outbox.backoff-inicial-segundos:30}")
+    private long backoffInicialSegundos;
+
+    @Value("${email.outbox.backoff-maximo-segundos:3600}")
+    private long backoffMaximoSegundos;
+
+    // Tiempo que una fila ENVIANDO queda reservada antes de que otro poller pueda retomarla
+    @Value("${email.outbox.lease-segundos:300}")
+    private long leaseSegundos;
+
+    // Permite apagar el sondeo periódico (p. ej. en tests, donde se llama a procesarPendientes a mano)
+    @Value("${email.outbox.sondeo.enabled:true}")
+    private boolean sondeoHabilitado;
+
+    private ThreadPoolExecutor executor;
+
+    public EmailOutboxWorker(EmailOutboxRepository emailOutboxRepository, EmailTransport emailTransport) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailTransport = emailTransport;
+    }
+
+    @PostConstruct
+    void init() {
+        AtomicInteger contador = new AtomicInteger();
+        executor = new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                r -> {
+                    Thread t = new Thread(r, "email-outbox-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.intervalo-ms:2000}")
+    void sondear() {
+        if (sondeoHabilitado) {
+            procesarPendientes();
+        }
+    }
+
+    public void procesarPendientes() {
+        // Solo se reclama lo que el pool puede aceptar; el resto espera al siguiente ciclo
+        int disponibles = executor.getQueue().remainingCapacity();
+        if (disponibles <= 0) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Long> ids = emailOutboxRepository.findIdsListos(ESTADOS_RECLAMABLES, ahora, PageRequest.of(0, disponibles));
+        for (Long id : ids) {
+            LocalDateTime vencimiento = ahora.plusSeconds(leaseSegundos);
+            if (emailOutboxRepository.reclamar(id, ESTADOS_RECLAMABLES, ahora, vencimiento) == 1) {
+                executor.execute(() -> enviar(id));
+            }
+        }
+    }
+
+    private void enviar(Long id) {
+        EmailOutbox correo = emailOutboxRepository.findById(id).orElse(null);
+        if (correo == null) {
+            return;
+        }
+        correo.setIntentos(correo.getIntentos() + 1);
+        try {
+            emailTransport.send(correo.getDestinatario(), correo.getAsunto(), correo.getCuerpo(),
+                    correo.getAdjunto(), correo.getAdjuntoNombre());
+            correo.setEstado(EmailOutbox.Estado.ENVIADO);
+            correo.setEnviadoEn(LocalDateTime.now());
+            correo.setUltimoError(null);
+            // El adjunto ya no hace falta una vez entregado
+            correo.setAdjunto(null);
+        } catch (Exception e) {
+            registrarFallo(correo, e);
+        }
+        emailOutboxRepository.save(correo);
+    }
+
+    private void registrarFallo(EmailOutbox correo, Exception e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        correo.setUltimoError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (correo.getIntentos() >= maxIntentos) {
+            correo.setEstado(EmailOutbox.Estado.DESCARTADO);
+            logger.error("Correo {} para {} descartado tras {} intentos: {}",
+                    correo.getId(), correo.getDestinatario(), correo.getIntentos(), error);
+            return;
+        }
+        long espera = calcularBackoff(correo.getIntentos());
+        correo.setEstado(EmailOutbox.Estado.PENDIENTE);
+        correo.setProximoIntento(LocalDateTime.now().plusSeconds(espera));
+        logger.warn("Error al enviar correo {} a {} (intento {}), se reintenta en {} s: {}",
+                correo.getId(), correo.getDestinatario(), correo.getIntentos(), espera, error);
+    }
+
+    // 30 s, 60 s, 120 s, ... hasta el máximo configurado
+    private long calcularBackoff(int intentos) {
+        int exponente = Math.min(intentos - 1, 20);
+        return Math.min(backoffInicialSegundos << exponente, backoffMaximoSegundos);
+    }
+}
@@ -0,0 +1,12 @@
+package com.backendspa.service;
+
+import java.io.IOException;
+
+/**
+ * Transporte que entrega un correo. La implementación se elige con email.transport
+ * (sendgrid por defecto, memoria para pruebas).
+ */
+public interface EmailTransport {
+
+    void send(String toEmail, String subject, String body, byte[] attachment, String attachmentName) throws IOException;
+}
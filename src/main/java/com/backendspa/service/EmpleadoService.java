@@ -2,49 +2,79 @@ package com.backendspa.service;
 
 import com.backendspa.entity.Empleado;
 import com.backendspa.repository.EmpleadoRepository;
+import com.backendspa.security.IdentityCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-
-import java.util.Arrays;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 public class EmpleadoService {
 
     private final EmpleadoRepository empleadoRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
+    private final IdentityCache identityCache;
+
+    // Mapa de servicios a roles permitidos (el GERENTE_GENERAL se agrega a todos al final del bloque static)
+    private static final Map<String, EnumSet<Empleado.Rol>> SERVICIO_ROLES = new HashMap<>();
+
+    // Roles para un servicio desconocido: solo el GERENTE_GENERAL
+    private static final EnumSet<Empleado.Rol> ROLES_SERVICIO_DESCONOCIDO = EnumSet.of(Empleado.Rol.GERENTE_GENERAL);
 
-    // Mapa de servicios a roles permitidos
-    private static final Map<String, List<Empleado.Rol>> SERVICIO_ROLES = new HashMap<>();
+    // Roles que pueden atender reservas
+    private static final EnumSet<Empleado.Rol> ROLES_RESERVAS = EnumSet.allOf(Empleado.Rol.class);
 
     static {
-        SERVICIO_ROLES.put("ANTI_STRESS", Arrays.asList(Empleado.Rol.MASAJISTA_TERAPEUTICO, Empleado.Rol.TERAPEUTA_SPA));
-        SERVICIO_ROLES.put("DESCONTRACTURANTE", Arrays.asList(Empleado.Rol.MASAJISTA_TERAPEUTICO));
-        SERVICIO_ROLES.put("PIEDRAS_CALIENTES", Arrays.asList(Empleado.Rol.MASAJISTA_TERAPEUTICO, Empleado.Rol.TERAPEUTA_SPA));
-        SERVICIO_ROLES.put("CIRCULATORIO", Arrays.asList(Empleado.Rol.MASAJISTA_TERAPEUTICO));
-        SERVICIO_ROLES.put("LIFTING_PESTANAS", Arrays.asList(Empleado.Rol.ESTETICISTA));
-        SERVICIO_ROLES.put("DEPILACION_FACIAL", Arrays.asList(Empleado.Rol.ESTETICISTA));
-        SERVICIO_ROLES.put("BELLEZA_MANOS_PIES", Arrays.asList(Empleado.Rol.ESPECIALISTA_CUIDADO_UNAS));
-        SERVICIO_ROLES.put("PUNTA_DIAMANTE", Arrays.asList(Empleado.Rol.TECNICO_ESTETICA_AVANZADA, Empleado.Rol.ESTETICISTA));
-        SERVICIO_ROLES.put("LIMPIEZA_PROFUNDA", Arrays.asList(Empleado.Rol.ESTETICISTA));
-        SERVICIO_ROLES.put("CRIO_FRECUENCIA_FACIAL", Arrays.asList(Empleado.Rol.TECNICO_ESTETICA_AVANZADA));
-        SERVICIO_ROLES.put("VELASLIM", Arrays.asList(Empleado.Rol.TECNICO_ESTETICA_AVANZADA));
-        SERVICIO_ROLES.put("DERMOHEALTH", Arrays.asList(Empleado.Rol.TECNICO_ESTETICA_AVANZADA));
-        SERVICIO_ROLES.put("CRIOFRECUENCIA", Arrays.asList(Empleado.Rol.TECNICO_ESTETICA_AVANZADA));
-        SERVICIO_ROLES.put("ULTRACAVITACION", Arrays.asList(Empleado.Rol.TECNICO_ESTETICA_AVANZADA));
-        SERVICIO_ROLES.put("HIDROMASAJES", Arrays.asList(Empleado.Rol.TERAPEUTA_SPA));
-        SERVICIO_ROLES.put("YOGA", Arrays.asList(Empleado.Rol.INSTRUCTOR_YOGA));
+        SERVICIO_ROLES.put("ANTI_STRESS", EnumSet.of(Empleado.Rol.MASAJISTA_TERAPEUTICO, Empleado.Rol.TERAPEUTA_SPA));
+        SERVICIO_ROLES.put("DESCONTRACTURANTE", EnumSet.of(Empleado.Rol.MASAJISTA_TERAPEUTICO));
+        SERVICIO_ROLES.put("PIEDRAS_CALIENTES", EnumSet.of(Empleado.Rol.MASAJISTA_TERAPEUTICO, Empleado.Rol.TERAPEUTA_SPA));
+        SERVICIO_ROLES.put("CIRCULATORIO", EnumSet.of(Empleado.Rol.MASAJISTA_TERAPEUTICO));
+        SERVICIO_ROLES.put("LIFTING_PESTANAS", EnumSet.of(Empleado.Rol.ESTETICISTA));
+        SERVICIO_ROLES.put("DEPILACION_FACIAL", EnumSet.of(Empleado.Rol.ESTETICISTA));
+        SERVICIO_ROLES.put("BELLEZA_MANOS_PIES", EnumSet.of(Empleado.Rol.ESPECIALISTA_CUIDADO_UNAS));
+        SERVICIO_ROLES.put("PUNTA_DIAMANTE", EnumSet.of(Empleado.Rol.TECNICO_ESTETICA_AVANZADA, Empleado.Rol.ESTETICISTA));
+        SERVICIO_ROLES.put("LIMPIEZA_PROFUNDA", EnumSet.of(Empleado.Rol.ESTETICISTA));
+        SERVICIO_ROLES.put("CRIO_FRECUENCIA_FACIAL", EnumSet.of(Empleado.Rol.TECNICO_ESTETICA_AVANZADA));
+        SERVICIO_ROLES.put("VELASLIM", EnumSet.of(Empleado.Rol.TECNICO_ESTETICA_AVANZADA));
+        SERVICIO_ROLES.put("DERMOHEALTH", EnumSet.of(Empleado.Rol.TECNICO_ESTETICA_AVANZADA));
+        SERVICIO_ROLES.put("CRIOFRECUENCIA", EnumSet.of(Empleado.Rol.TECNICO_ESTETICA_AVANZADA));
+        SERVICIO_ROLES.put("ULTRACAVITACION", EnumSet.of(Empleado.Rol.TECNICO_ESTETICA_AVANZADA));
+        SERVICIO_ROLES.put("HIDROMASAJES", EnumSet.of(Empleado.Rol.TERAPEUTA_SPA));
+        SERVICIO_ROLES.put("YOGA", EnumSet.of(Empleado.Rol.INSTRUCTOR_YOGA));
+        SERVICIO_ROLES.values().forEach(roles -> roles.add(Empleado.Rol.GERENTE_GENERAL));
     }
 
+    /*
+     * Índice de empleados por rol. Cada rol se carga la primera vez que se pide (con una sola
+     * consulta por el conjunto de roles faltantes), se invalida después del commit de cada
+     * escritura de un empleado de ese rol y vence a los empleados.roles.ttl-minutes, para tomar
+     * los cambios hechos desde otra instancia. Las lecturas usan la instancia publicada sin
+     * tomar locks y reciben copias: los empleados del índice no salen de esta clase.
+     */
+    private volatile EnumMap<Empleado.Rol, RolCargado> empleadosPorRol = new EnumMap<>(Empleado.Rol.class);
+
+    @Value("${empleados.roles.ttl-minutes:5}")
+    private long ttlRolesMinutes;
+
     // CONSTRUCTOR
-    public EmpleadoService(EmpleadoRepository empleadoRepository, @Lazy BCryptPasswordEncoder passwordEncoder) {
+    public EmpleadoService(EmpleadoRepository empleadoRepository, @Lazy PasswordEncoder passwordEncoder, IdentityCache identityCache) {
         this.empleadoRepository = empleadoRepository;
         this.passwordEncoder = passwordEncoder;
+        this.identityCache = identityCache;
     }
 
     public List<Empleado> getAllEmpleados() {
@@ -52,42 +82,106 @@ public class EmpleadoService {
     }
 
     public List<Empleado> getEmpleadosForReservas() {
-        List<Empleado.Rol> rolesPermitidos = Arrays.asList(
-                Empleado.Rol.ESTETICISTA,
-                Empleado.Rol.TECNICO_ESTETICA_AVANZADA,
-                Empleado.Rol.ESPECIALISTA_CUIDADO_UNAS,
-                Empleado.Rol.MASAJISTA_TERAPEUTICO,
-                Empleado.Rol.TERAPEUTA_SPA,
-                Empleado.Rol.COORDINADOR_AREA,
-                Empleado.Rol.RECEPCIONISTA,
-                Empleado.Rol.INSTRUCTOR_YOGA,
-                Empleado.Rol.NUTRICIONISTA,
-                Empleado.Rol.GERENTE_GENERAL
-        );
-        List<Empleado> empleadosFiltrados = empleadoRepository.findAll().stream()
-                .filter(empleado -> rolesPermitidos.contains(empleado.getRol()))
-                .collect(Collectors.toList());
-        // Log para depuración
-        System.out.println("Empleados devueltos por getEmpleadosForReservas():");
-        empleadosFiltrados.forEach(empleado ->
-                System.out.println(" - " + empleado.getNombre() + " " + empleado.getApellido() + ", Rol: " + empleado.getRol())
-        );
-        return empleadosFiltrados;
+        return getEmpleadosByRoles(ROLES_RESERVAS);
     }
 
     // Método para obtener empleados según el servicio.
     public List<Empleado> getEmpleadosForServicio(String servicio) {
-        List<Empleado.Rol> rolesPermitidos = SERVICIO_ROLES.getOrDefault(servicio, Arrays.asList());
-        List<Empleado> empleadosFiltrados = empleadoRepository.findAll().stream()
-                .filter(empleado -> rolesPermitidos.contains(empleado.getRol()) || empleado.getRol() == Empleado.Rol.GERENTE_GENERAL)
-                .collect(Collectors.toList());
+        return getEmpleadosByRoles(getRolesForServicio(servicio));
+    }
+
+    public Set<Empleado.Rol> getRolesForServicio(String servicio) {
+        return Collections.unmodifiableSet(SERVICIO_ROLES.getOrDefault(servicio, ROLES_SERVICIO_DESCONOCIDO));
+    }
+
+    private List<Empleado> getEmpleadosByRoles(Set<Empleado.Rol> roles) {
+        EnumMap<Empleado.Rol, RolCargado> indice = empleadosPorRol;
+        if (!vigentes(indice, roles)) {
+            indice = cargarRoles(roles);
+        }
+
+        List<Empleado> empleados = new ArrayList<>();
+        for (Empleado.Rol rol : roles) {
+            for (Empleado empleado : indice.get(rol).empleados) {
+                empleados.add(copiar(empleado));
+            }
+        }
+        if (roles.size() > 1) {
+            // Mismo orden que devolvía findAll()
+            empleados.sort(Comparator.comparing(Empleado::getId));
+        }
+        return empleados;
+    }
+
+    private boolean vigentes(EnumMap<Empleado.Rol, RolCargado> indice, Set<Empleado.Rol> roles) {
+        for (Empleado.Rol rol : roles) {
+            RolCargado cargado = indice.get(rol);
+            if (cargado == null || cargado.vencido(ttlRolesMinutes)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        // Log para depuración
-        System.out.println("Empleados devueltos por getEmpleadosForServicio('" + servicio + "'):");
-        empleadosFiltrados.forEach(empleado ->
-                System.out.println(" - " + empleado.getNombre() + " " + empleado.getApellido() + ", Rol: " + empleado.getRol())
-        );
-        return empleadosFiltrados;
+    private synchronized EnumMap<Empleado.Rol, RolCargado> cargarRoles(Set<Empleado.Rol> roles) {
+        EnumSet<Empleado.Rol> faltantes = EnumSet.noneOf(Empleado.Rol.class);
+        for (Empleado.Rol rol : roles) {
+            RolCargado cargado = empleadosPorRol.get(rol);
+            if (cargado == null || cargado.vencido(ttlRolesMinutes)) {
+                faltantes.add(rol);
+            }
+        }
+        if (faltantes.isEmpty()) {
+            return empleadosPorRol;
+        }
+
+        EnumMap<Empleado.Rol, List<Empleado>> cargados = new EnumMap<>(Empleado.Rol.class);
+        faltantes.forEach(rol -> cargados.put(rol, new ArrayList<>()));
+        for (Empleado empleado : empleadoRepository.findByRolIn(faltantes)) {
+            cargados.get(empleado.getRol()).add(copiar(empleado));
+        }
+
+        EnumMap<Empleado.Rol, RolCargado> indice = new EnumMap<>(empleadosPorRol);
+        cargados.forEach((rol, empleados) -> indice.put(rol, new RolCargado(empleados)));
+        empleadosPorRol = indice;
+        return indice;
+    }
+
+    // Se invalida ya y otra vez después del commit, por si una lectura recargó el rol en el medio
+    private void invalidarRolesAlConfirmar(Empleado.Rol... roles) {
+        invalidarRoles(roles);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidarRoles(roles);
+                }
+            });
+        }
+    }
+
+    private synchronized void invalidarRoles(Empleado.Rol... roles) {
+        EnumMap<Empleado.Rol, RolCargado> indice = new EnumMap<>(empleadosPorRol);
+        for (Empleado.Rol rol : roles) {
+            if (rol != null) {
+                indice.remove(rol);
+            }
+        }
+        empleadosPorRol = indice;
+    }
+
+    // Copia desvinculada del contexto de persistencia, para que nadie modifique el índice compartido
+    private Empleado copiar(Empleado empleado) {
+        Empleado copia = new Empleado();
+        copia.setId(empleado.getId());
+        copia.setDni(empleado.getDni());
+        copia.setNombre(empleado.getNombre());
+        copia.setApellido(empleado.getApellido());
+        copia.setEmail(empleado.getEmail());
+        copia.setPassword(empleado.getPassword());
+        copia.setTelefono(empleado.getTelefono());
+        copia.setRol(empleado.getRol());
+        return copia;
     }
 
     public Optional<Empleado> getEmpleadoById(Long id) {
@@ -98,14 +192,21 @@ public class EmpleadoService {
         return empleadoRepository.findByEmail(email);
     }
 
+    @Transactional
     public Empleado createEmpleado(Empleado empleado) {
         empleado.setPassword(passwordEncoder.encode(empleado.getPassword()));
-        return empleadoRepository.save(empleado);
+        Empleado nuevoEmpleado = empleadoRepository.save(empleado);
+        identityCache.evictAlConfirmar(nuevoEmpleado.getEmail());
+        invalidarRolesAlConfirmar(nuevoEmpleado.getRol());
+        return nuevoEmpleado;
     }
 
+    @Transactional
     public Empleado updateEmpleado(Long id, Empleado empleadoDetails) {
         Empleado empleado = empleadoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Empleado no encontrado"));
+        String emailAnterior = empleado.getEmail();
+        Empleado.Rol rolAnterior = empleado.getRol();
         empleado.setDni(empleadoDetails.getDni());
         empleado.setNombre(empleadoDetails.getNombre());
         empleado.setApellido(empleadoDetails.getApellido());
@@ -113,12 +214,40 @@ public class EmpleadoService {
         empleado.setPassword(empleadoDetails.getPassword());
         empleado.setTelefono(empleadoDetails.getTelefono());
         empleado.setRol(empleadoDetails.getRol());
-        return empleadoRepository.save(empleado);
+        Empleado updatedEmpleado = empleadoRepository.saveAndFlush(empleado);
+        // Se desalojan el email anterior y el nuevo para que el cambio de rol aplique de inmediato
+        identityCache.evictAlConfirmar(emailAnterior, updatedEmpleado.getEmail());
+        invalidarRolesAlConfirmar(rolAnterior, updatedEmpleado.getRol());
+        return updatedEmpleado;
     }
 
+    // Reemplaza el hash por uno generado con los parámetros actuales (rehash al iniciar sesión)
+    @Transactional
+    public void actualizarHashPassword(Long id, String email, String hash) {
+        empleadoRepository.actualizarPassword(id, hash);
+        identityCache.evictAlConfirmar(email);
+    }
+
+    @Transactional
     public void deleteEmpleado(Long id) {
         Empleado empleado = empleadoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Empleado no encontrado"));
         empleadoRepository.delete(empleado);
+        identityCache.evictAlConfirmar(empleado.getEmail());
+        invalidarRolesAlConfirmar(empleado.getRol());
+    }
+
+    private static final class RolCargado {
+        private final List<Empleado> empleados;
+        private final long cargadoEn;
+
+        private RolCargado(List<Empleado> empleados) {
+            this.empleados = Collections.unmodifiableList(empleados);
+            this.cargadoEn = System.currentTimeMillis();
+        }
+
+        private boolean vencido(long ttlMinutes) {
+            return System.currentTimeMillis() - cargadoEn > ttlMinutes * 60_000L;
+        }
     }
-}
\ No newline at end of file
+}
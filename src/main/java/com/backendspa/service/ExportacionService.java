@@ -0,0 +1,233 @@
+package com.backendspa.service;
+
+import com.backendspa.dto.ClienteResumen;
+import com.backendspa.dto.ReservaResumen;
+import com.backendspa.dto.PagoResumen;
+import com.backendspa.repository.ClienteRepository;
+import com.backendspa.repository.PagoRepository;
+import com.backendspa.repository.ReservaRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Exportaciones de reservas, pagos y clientes en NDJSON o CSV. Las filas se leen con un cursor
+ * de solo avance (Stream de proyecciones, sin entidades en el contexto de persistencia) y se
+ * escriben directo en la respuesta, así que la memoria no depende de la cantidad de filas.
+ *
+ * Cada exportación retiene una conexión mientras dura, y la toma de un pool propio de
+ * exportacion.max-concurrentes conexiones, nunca del que usan las reservas. Solo ese pool abre
+ * las conexiones con useCursorFetch=true (cursor del servidor en MySQL, que implica sentencias
+ * preparadas en el servidor); el pool principal sigue con las preparadas del cliente.
+ */
+@Service
+public class ExportacionService {
+
+    public static final String TIPO_NDJSON = "application/x-ndjson";
+    public static final String TIPO_CSV = "text/csv";
+
+    public enum Formato {
+        NDJSON, CSV;
+
+        public static Formato desde(String formato) {
+            if (formato == null || formato.equalsIgnoreCase("ndjson")) {
+                return NDJSON;
+            }
+            if (formato.equalsIgnoreCase("csv")) {
+                return CSV;
+            }
+            throw new IllegalArgumentException("Formato no soportado: " + formato + " (use ndjson o csv)");
+        }
+
+        public String getContentType() {
+            return this == CSV ? TIPO_CSV : TIPO_NDJSON;
+        }
+    }
+
+    // Filas por viaje del cursor
+    private static final int FILAS_POR_VIAJE = 500;
+
+    private final SessionFactory sessionFactory;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry registry;
+
+    @Value("${exportacion.max-concurrentes:2}")
+    private int maxConcurrentes;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String usuario;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Value("${spring.datasource.driver-class-name:}")
+    private String driver;
+
+    // Propiedad del driver de MySQL; se apaga con otras bases (H2 no la reconoce)
+    @Value("${exportacion.cursor-fetch:true}")
+    private boolean cursorFetch;
+
+    private Semaphore permisos;
+
+    private HikariDataSource conexiones;
+
+    public ExportacionService(EntityManagerFactory entityManagerFactory, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.objectMapper = objectMapper;
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    void init() {
+        permisos = new Semaphore(maxConcurrentes);
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("exportaciones");
+        config.setJdbcUrl(url);
+        config.setUsername(usuario);
+        config.setPassword(password);
+        if (!driver.isBlank()) {
+            config.setDriverClassName(driver);
+        }
+        config.setMaximumPoolSize(maxConcurrentes);
+        // Sin conexiones ociosas entre exportaciones, y sin conectarse al arrancar
+        config.setMinimumIdle(0);
+        config.setInitializationFailTimeout(-1);
+        config.setReadOnly(true);
+        if (cursorFetch) {
+            config.addDataSourceProperty("useCursorFetch", "true");
+        }
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        conexiones = new HikariDataSource(config);
+    }
+
+    @PreDestroy
+    void close() {
+        conexiones.close();
+    }
+
+    public Optional<StreamingResponseBody> exportarReservas(Formato formato) {
+        return exportar(formato, ReservaRepository.EXPORTACION, ReservaResumen.class, List.of("id", "fechaReserva", "status", "medioPago",
+                "descuentoAplicado", "clienteId", "clienteNombre", "clienteApellido", "empleadoId", "empleadoNombre",
+                "empleadoApellido", "empleadoRol"), (ReservaResumen r) -> new Object[]{r.getId(), r.getFechaReserva(),
+                r.getStatus(), r.getMedioPago(), r.getDescuentoAplicado(), r.getClienteId(), r.getClienteNombre(),
+                r.getClienteApellido(), r.getEmpleadoId(), r.getEmpleadoNombre(), r.getEmpleadoApellido(), r.getEmpleadoRol()});
+    }
+
+    public Optional<StreamingResponseBody> exportarPagos(Formato formato) {
+        return exportar(formato, PagoRepository.EXPORTACION, PagoResumen.class, List.of("id", "reservaId", "fechaPago", "montoTotal",
+                "medioPago", "descuentoAplicado"), (PagoResumen p) -> new Object[]{p.getId(), p.getReservaId(),
+                p.getFechaPago(), p.getMontoTotal(), p.getMedioPago(), p.getDescuentoAplicado()});
+    }
+
+    public Optional<StreamingResponseBody> exportarClientes(Formato formato) {
+        return exportar(formato, ClienteRepository.EXPORTACION, ClienteResumen.class, List.of("id", "dni", "nombre", "apellido", "email",
+                "telefono"), (ClienteResumen c) -> new Object[]{c.getId(), c.getDni(), c.getNombre(), c.getApellido(),
+                c.getEmail(), c.getTelefono()});
+    }
+
+    // Vacío si ya hay max-concurrentes exportaciones en curso; el permiso se libera al terminar de escribir
+    // La consulta corre en una sesión de Hibernate abierta sobre una conexión del pool de exportaciones
+    private <T> Optional<StreamingResponseBody> exportar(Formato formato, String consulta, Class<T> tipo, List<String> columnas,
+                                                         Function<T, Object[]> valores) {
+        if (!permisos.tryAcquire()) {
+            return Optional.empty();
+        }
+        StreamingResponseBody cuerpo = salida -> {
+            try (Connection conexion = conexiones.getConnection();
+                 Session session = sessionFactory.withOptions().connection(conexion).openSession();
+                 Stream<T> stream = session.createSelectionQuery(consulta, tipo)
+                         .setFetchSize(FILAS_POR_VIAJE)
+                         .getResultStream()) {
+                if (formato == Formato.CSV) {
+                    escribirCsv(stream, columnas, valores, salida);
+                } else {
+                    escribirNdjson(stream, columnas, valores, salida);
+                }
+            } catch (SQLException e) {
+                throw new IOException("No se pudo obtener una conexión para la exportación", e);
+            } finally {
+                permisos.release();
+            }
+        };
+        return Optional.of(cuerpo);
+    }
+
+    private <T> void escribirNdjson(Stream<T> filas, List<String> columnas, Function<T, Object[]> valores,
+                                    OutputStream salida) throws IOException {
+        JsonGenerator generador = objectMapper.getFactory().createGenerator(salida);
+        // Un objeto por línea; el generador agrupa las escrituras en su propio buffer
+        generador.setRootValueSeparator(null);
+        for (T fila : (Iterable<T>) filas::iterator) {
+            Object[] datos = valores.apply(fila);
+            generador.writeStartObject();
+            for (int i = 0; i < columnas.size(); i++) {
+                generador.writeFieldName(columnas.get(i));
+                generador.writeObject(datos[i]);
+            }
+            generador.writeEndObject();
+            generador.writeRaw('\n');
+        }
+        generador.flush();
+    }
+
+    private <T> void escribirCsv(Stream<T> filas, List<String> columnas, Function<T, Object[]> valores,
+                                 OutputStream salida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        escritor.write(String.join(",", columnas));
+        escritor.write('\n');
+        for (T fila : (Iterable<T>) filas::iterator) {
+            Object[] datos = valores.apply(fila);
+            for (int i = 0; i < datos.length; i++) {
+                if (i > 0) {
+                    escritor.write(',');
+                }
+                escribirCampoCsv(escritor, datos[i]);
+            }
+            escritor.write('\n');
+        }
+        escritor.flush();
+    }
+
+    // RFC 4180: entre comillas solo los campos con separadores, comillas o saltos de línea
+    private static void escribirCampoCsv(Writer escritor, Object valor) throws IOException {
+        if (valor == null) {
+            return;
+        }
+        String texto = valor.toString();
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            escritor.write(texto);
+            return;
+        }
+        escritor.write('"');
+        escritor.write(texto.replace("\"", "\"\""));
+        escritor.write('"');
+    }
+}
@@ -0,0 +1,231 @@
+package com.backendspa.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Genera en el servidor el PDF de una factura (PDF 1.4 con fuentes Helvetica estándar, sin
+ * dependencias). El documento se escribe directamente en un buffer tomado de un pool y el
+ * resultado se guarda en una cache direccionada por el SHA-256 del contenido de la factura,
+ * así que dos facturas idénticas devuelven el mismo arreglo de bytes sin volver a generarlo.
+ */
+@Service
+public class FacturaPdfRenderer {
+
+    private static final Charset WIN_ANSI = Charset.forName("windows-1252");
+
+    // A4 en puntos
+    private static final int ANCHO_PAGINA = 595;
+    private static final int ALTO_PAGINA = 842;
+    private static final int MARGEN = 50;
+    private static final int INTERLINEADO = 16;
+    private static final int LINEAS_POR_PAGINA = (ALTO_PAGINA - 2 * MARGEN) / INTERLINEADO;
+
+    @Value("${factura.pdf.buffers:4}")
+    private int cantidadBuffers;
+
+    // Los buffers que crecen más que esto no vuelven al pool
+    @Value("${factura.pdf.buffer-max-bytes:262144}")
+    private int bufferMaxBytes;
+
+    @Value("${factura.pdf.cache.max-bytes:16777216}")
+    private long cacheMaxBytes;
+
+    private BlockingQueue<BufferPdf> buffers;
+
+    private Cache<String, byte[]> pdfs;
+
+    @PostConstruct
+    void init() {
+        buffers = new ArrayBlockingQueue<>(cantidadBuffers);
+        pdfs = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String hash, byte[] pdf) -> pdf.length)
+                .build();
+    }
+
+    public PdfFactura render(FacturaService.Factura factura) {
+        List<LineaPdf> lineas = lineas(factura);
+        String hash = sha256(lineas);
+        byte[] contenido = pdfs.get(hash, h -> escribirDocumento(lineas));
+        return new PdfFactura(hash, contenido);
+    }
+
+    private List<LineaPdf> lineas(FacturaService.Factura factura) {
+        List<LineaPdf> lineas = new ArrayList<>();
+        lineas.add(new LineaPdf("Sentirse Bien - Factura " + factura.getInvoiceNumber(), true));
+        lineas.add(new LineaPdf("", false));
+        lineas.add(new LineaPdf("Cliente: " + factura.getClienteNombre(), false));
+        lineas.add(new LineaPdf("DNI: " + factura.getDni(), false));
+        lineas.add(new LineaPdf("Email: " + factura.getEmail(), false));
+        lineas.add(new LineaPdf("Fecha de reserva: " + factura.getFechaReserva(), false));
+        lineas.add(new LineaPdf("", false));
+        lineas.add(new LineaPdf("Servicios", true));
+        for (FacturaService.Factura.Linea linea : factura.getServicios()) {
+            lineas.add(new LineaPdf("- " + linea.getNombre() + "  $" + String.format("%.2f", linea.getPrecio())
+                    + "  (" + linea.getFecha() + ")", false));
+        }
+        lineas.add(new LineaPdf("", false));
+        lineas.add(new LineaPdf("Medio de pago: " + factura.getMedioPago().getDescripcion(), false));
+        lineas.add(new LineaPdf("Valor original: $" + String.format("%.2f", factura.getValorOriginal()), false));
+        if (factura.tieneDescuentoDebito()) {
+            lineas.add(new LineaPdf("Descuento (15%): $" + String.format("%.2f", factura.getMontoDescuento()), false));
+        }
+        lineas.add(new LineaPdf("Total con descuento: $" + String.format("%.2f", factura.getValorConDescuento()), true));
+        return lineas;
+    }
+
+    private byte[] escribirDocumento(List<LineaPdf> lineas) {
+        BufferPdf buffer = tomarBuffer();
+        try {
+            int paginas = Math.max(1, (lineas.size() + LINEAS_POR_PAGINA - 1) / LINEAS_POR_PAGINA);
+            // Objetos: 1 catálogo, 2 árbol de páginas, 3-4 fuentes y un par página/contenido por página
+            int totalObjetos = 4 + 2 * paginas;
+            int[] offsets = new int[totalObjetos + 1];
+
+            buffer.ascii("%PDF-1.4\n%âãÏÓ\n");
+
+            offsets[1] = buffer.size();
+            buffer.ascii("1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+
+            offsets[2] = buffer.size();
+            StringBuilder kids = new StringBuilder();
+            for (int p = 0; p < paginas; p++) {
+                kids.append(5 + 2 * p).append(" 0 R ");
+            }
+            buffer.ascii("2 0 obj\n<< /Type /Pages /Kids [" + kids + "] /Count " + paginas + " >>\nendobj\n");
+
+            offsets[3] = buffer.size();
+            buffer.ascii("3 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\nendobj\n");
+            offsets[4] = buffer.size();
+            buffer.ascii("4 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>\nendobj\n");
+
+            for (int p = 0; p < paginas; p++) {
+                int objPagina = 5 + 2 * p;
+                int objContenido = objPagina + 1;
+                List<LineaPdf> lineasPagina = lineas.subList(p * LINEAS_POR_PAGINA,
+                        Math.min(lineas.size(), (p + 1) * LINEAS_POR_PAGINA));
+                String contenido = contenidoPagina(lineasPagina);
+
+                offsets[objPagina] = buffer.size();
+                buffer.ascii(objPagina + " 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 " + ANCHO_PAGINA + " " + ALTO_PAGINA + "]"
+                        + " /Resources << /Font << /F1 3 0 R /F2 4 0 R >> >> /Contents " + objContenido + " 0 R >>\nendobj\n");
+                offsets[objContenido] = buffer.size();
+                buffer.ascii(objContenido + " 0 obj\n<< /Length " + contenido.length() + " >>\nstream\n");
+                buffer.ascii(contenido);
+                buffer.ascii("\nendstream\nendobj\n");
+            }
+
+            int inicioXref = buffer.size();
+            buffer.ascii("xref\n0 " + (totalObjetos + 1) + "\n0000000000 65535 f \n");
+            for (int i = 1; i <= totalObjetos; i++) {
+                buffer.ascii(String.format("%010d 00000 n \n", offsets[i]));
+            }
+            buffer.ascii("trailer\n<< /Size " + (totalObjetos + 1) + " /Root 1 0 R >>\nstartxref\n" + inicioXref + "\n%%EOF\n");
+            return buffer.toByteArray();
+        } finally {
+            devolverBuffer(buffer);
+        }
+    }
+
+    // El contenido queda en ASCII puro: los caracteres fuera de ASCII van como escapes octales WinAnsi
+    private String contenidoPagina(List<LineaPdf> lineas) {
+        StringBuilder sb = new StringBuilder("BT\n").append(INTERLINEADO).append(" TL\n")
+                .append(MARGEN).append(' ').append(ALTO_PAGINA - MARGEN).append(" Td\n");
+        for (LineaPdf linea : lineas) {
+            sb.append(linea.negrita ? "/F2 12 Tf\n" : "/F1 11 Tf\n");
+            sb.append('(');
+            for (byte b : linea.texto.getBytes(WIN_ANSI)) {
+                int c = b & 0xff;
+                if (c == '(' || c == ')' || c == '\\') {
+                    sb.append('\\').append((char) c);
+                } else if (c < 32 || c > 126) {
+                    sb.append('\\').append(String.format("%03o", c));
+                } else {
+                    sb.append((char) c);
+                }
+            }
+            sb.append(") Tj T*\n");
+        }
+        return sb.append("ET").toString();
+    }
+
+    private String sha256(List<LineaPdf> lineas) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (LineaPdf linea : lineas) {
+                digest.update((byte) (linea.negrita ? 1 : 0));
+                digest.update(linea.texto.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private BufferPdf tomarBuffer() {
+        BufferPdf buffer = buffers.poll();
+        return buffer != null ? buffer : new BufferPdf();
+    }
+
+    private void devolverBuffer(BufferPdf buffer) {
+        if (buffer.capacidad() <= bufferMaxBytes) {
+            buffer.reset();
+            buffers.offer(buffer);
+        }
+    }
+
+    private static final class LineaPdf {
+        private final String texto;
+        private final boolean negrita;
+
+        private LineaPdf(String texto, boolean negrita) {
+            this.texto = texto;
+            this.negrita = negrita;
+        }
+    }
+
+    private static final class BufferPdf extends ByteArrayOutputStream {
+        private BufferPdf() {
+            super(8192);
+        }
+
+        private void ascii(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                write(s.charAt(i));
+            }
+        }
+
+        private int capacidad() {
+            return buf.length;
+        }
+    }
+
+    public static class PdfFactura {
+        private final String hash;
+        private final byte[] contenido;
+
+        public PdfFactura(String hash, byte[] contenido) {
+            this.hash = hash;
+            this.contenido = contenido;
+        }
+
+        public String getHash() { return hash; }
+        public byte[] getContenido() { return contenido; }
+    }
+}
@@ -0,0 +1,184 @@
+package com.backendspa.service;
+
+import com.backendspa.entity.Cliente;
+import com.backendspa.entity.Pago;
+import com.backendspa.entity.Reserva;
+import com.backendspa.entity.ReservaServicio;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Arma los datos de una factura (INV-YYYYMMDD) a partir de los servicios y pagos del
+ * cliente en ese día. Los usan la respuesta de /send-invoice, el cuerpo del correo y el PDF.
+ */
+@Service
+public class FacturaService {
+
+    private final ReservaService reservaService;
+
+    public FacturaService(ReservaService reservaService) {
+        this.reservaService = reservaService;
+    }
+
+    public Factura generarFactura(Cliente cliente, String invoiceNumber) {
+        // Extraer la fecha de invoiceNumber (formato INV-YYYYMMDD)
+        LocalDate fechaFactura;
+        try {
+            String datePart = invoiceNumber.substring(4); // Quitar "INV-"
+            fechaFactura = LocalDate.parse(datePart, DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Formato de número de factura inválido. Se espera INV-YYYYMMDD.");
+        }
+
+        // Obtener solo los servicios y pagos del cliente para la fecha solicitada
+        ReservaService.ConsumoDelDia consumo = reservaService.getConsumoDelDia(cliente.getId(), fechaFactura);
+        List<ReservaServicio> serviciosDelDia = consumo.getServicios();
+        if (serviciosDelDia.isEmpty()) {
+            throw new IllegalArgumentException("No hay servicios para la fecha especificada en la factura.");
+        }
+
+        // Obtener la reserva relevante (la primera con servicios en la fecha)
+        Reserva reserva = serviciosDelDia.get(0).getReserva();
+        List<Pago> pagosDeLaReserva = consumo.getPagos().stream()
+                .filter(p -> p.getReserva() != null && p.getReserva().getId().equals(reserva.getId()))
+                .collect(Collectors.toList());
+
+        // Calcular monto total original
+        double valorOriginal = serviciosDelDia.stream()
+                .mapToDouble(rs -> rs.getServicio().getPrecio())
+                .sum();
+        double descuento = pagosDeLaReserva.stream()
+                .map(Pago::getDescuentoAplicado)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .filter(d -> d > 0)
+                .findFirst()
+                .orElse(0);
+        double valorConDescuento = pagosDeLaReserva.stream()
+                .mapToDouble(Pago::getMontoTotal)
+                .findFirst()
+                .orElse(valorOriginal * (1 - descuento / 100.0));
+
+        List<Factura.Linea> lineas = new ArrayList<>();
+        for (ReservaServicio rs : serviciosDelDia) {
+            lineas.add(new Factura.Linea(rs.getServicio().getNombre(), rs.getServicio().getPrecio(), rs.getFechaServicio().toString()));
+        }
+        return new Factura(invoiceNumber, cliente, reserva.getFechaReserva().toString(), lineas,
+                reserva.getMedioPago(), valorOriginal, descuento, valorConDescuento);
+    }
+
+    public static class Factura {
+        private final String invoiceNumber;
+        private final String nombre;
+        private final String clienteNombre;
+        private final String dni;
+        private final String email;
+        private final String fechaReserva;
+        private final List<Linea> servicios;
+        private final Reserva.MedioPago medioPago;
+        private final double valorOriginal;
+        private final double descuento;
+        private final double valorConDescuento;
+
+        public Factura(String invoiceNumber, Cliente cliente, String fechaReserva, List<Linea> servicios,
+                       Reserva.MedioPago medioPago, double valorOriginal, double descuento, double valorConDescuento) {
+            this.invoiceNumber = invoiceNumber;
+            this.nombre = cliente.getNombre();
+            this.clienteNombre = cliente.getNombre() + " " + (cliente.getApellido() != null ? cliente.getApellido() : "");
+            this.dni = cliente.getDni() != null ? cliente.getDni() : "N/A";
+            this.email = cliente.getEmail() != null ? cliente.getEmail() : "N/A";
+            this.fechaReserva = fechaReserva;
+            this.servicios = Collections.unmodifiableList(servicios);
+            this.medioPago = medioPago;
+            this.valorOriginal = valorOriginal;
+            this.descuento = descuento;
+            this.valorConDescuento = valorConDescuento;
+        }
+
+        public String getInvoiceNumber() { return invoiceNumber; }
+        public String getClienteNombre() { return clienteNombre; }
+        public String getDni() { return dni; }
+        public String getEmail() { return email; }
+        public String getFechaReserva() { return fechaReserva; }
+        public List<Linea> getServicios() { return servicios; }
+        public Reserva.MedioPago getMedioPago() { return medioPago; }
+        public double getValorOriginal() { return valorOriginal; }
+        public double getDescuento() { return descuento; }
+        public double getValorConDescuento() { return valorConDescuento; }
+
+        // Detalles de la factura para el frontend
+        public Map<String, Object> toDetalles() {
+            Map<String, Object> facturaDetalles = new HashMap<>();
+            facturaDetalles.put("clienteNombre", clienteNombre);
+            facturaDetalles.put("dni", dni);
+            facturaDetalles.put("email", email);
+            facturaDetalles.put("fechaReserva", fechaReserva);
+            facturaDetalles.put("servicios", servicios.stream()
+                    .map(l -> Map.of(
+                            "nombre", l.getNombre(),
+                            "precio", l.getPrecio(),
+                            "fecha", l.getFecha()
+                    )).collect(Collectors.toList()));
+            facturaDetalles.put("medioPago", medioPago.getDescripcion());
+            facturaDetalles.put("valorOriginal", valorOriginal);
+            facturaDetalles.put("descuento", descuento > 0 ? descuento : null);
+            facturaDetalles.put("valorConDescuento", valorConDescuento);
+            facturaDetalles.put("invoiceNumber", invoiceNumber);
+            return facturaDetalles;
+        }
+
+        // Contenido del email de confirmación
+        public String cuerpoCorreo() {
+            StringBuilder body = new StringBuilder();
+            body.append("Estimado/a ").append(nombre).append(",\n");
+            body.append("Gracias por elegir Sentirse Bien. Adjuntamos su factura.\n");
+            body.append("Detalles de los servicios:\n");
+            for (Linea linea : servicios) {
+                body.append("- ").append(linea.getNombre())
+                        .append(" (Precio: $").append(String.format("%.2f", linea.getPrecio()))
+                        .append(", Fecha: ").append(linea.getFecha()).append(")\n");
+            }
+            body.append("Medio de pago: ").append(medioPago.getDescripcion()).append("\n");
+            body.append("Valor original: $").append(String.format("%.2f", valorOriginal)).append("\n");
+            if (tieneDescuentoDebito()) {
+                body.append("Descuento (15%): $").append(String.format("%.2f", getMontoDescuento())).append("\n");
+            }
+            body.append("Total con descuento: $").append(String.format("%.2f", valorConDescuento)).append("\n");
+            return body.toString();
+        }
+
+        public boolean tieneDescuentoDebito() {
+            return medioPago == Reserva.MedioPago.TARJETA_DEBITO && descuento > 0;
+        }
+
+        public double getMontoDescuento() {
+            return valorOriginal * (descuento / 100.0);
+        }
+
+        public static class Linea {
+            private final String nombre;
+            private final double precio;
+            private final String fecha;
+
+            public Linea(String nombre, double precio, String fecha) {
+                this.nombre = nombre;
+                this.precio = precio;
+                this.fecha = fecha;
+            }
+
+            public String getNombre() { return nombre; }
+            public double getPrecio() { return precio; }
+            public String getFecha() { return fecha; }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.backendspa.service;
+
+import com.backendspa.entity.Cliente;
+import com.backendspa.entity.Empleado;
+import com.backendspa.entity.Reserva;
+import com.backendspa.repository.ClienteRepository;
+import com.backendspa.repository.EmpleadoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Importación masiva de reservas desde CSV o NDJSON. La entrada se lee línea por línea y se
+ * procesa en lotes de reservas.importacion.lote filas: cada lote resuelve los clientes y
+ * empleados que falten con una consulta por tabla (con una cache acotada por importación),
+ * valida contra el catálogo de servicios y se guarda en su propia transacción con lotes JDBC.
+ * El resultado de cada fila se escribe en NDJSON apenas termina su lote, así que la memoria
+ * usada depende del tamaño del lote y no del archivo.
+ *
+ * CSV: primera línea con los nombres de columna clienteId, empleadoId, medioPago, servicios y,
+ * opcionales, fechaReserva y descuentoAplicado. La columna servicios lleva pares
+ * NOMBRE@fecha separados por ';' (por ejemplo ANTI_STRESS@2025-07-01T10:00).
+ * NDJSON: un objeto por línea con los mismos campos que el alta de reservas.
+ */
+@Service
+public class ImportacionReservasService {
+
+    public static final String TIPO_CSV = "text/csv";
+    public static final String TIPO_NDJSON = "application/x-ndjson";
+
+    private static final List<String> COLUMNAS_OBLIGATORIAS = List.of("clienteId", "empleadoId", "medioPago", "servicios");
+
+    private final ReservaService reservaService;
+    private final ClienteRepository clienteRepository;
+    private final EmpleadoRepository empleadoRepository;
+    private final ServicioCatalog servicioCatalog;
+    private final ObjectMapper objectMapper;
+
+    @Value("${reservas.importacion.lote:100}")
+    private int tamanoLote;
+
+    // Clientes y empleados recordados durante una importación (los ids sin fila también se recuerdan)
+    @Value("${reservas.importacion.cache-max:10000}")
+    private long cacheMax;
+
+    public enum Formato {
+        CSV, NDJSON;
+
+        public static Formato desde(String contentType) {
+            if (contentType != null && contentType.startsWith(TIPO_CSV)) {
+                return CSV;
+            }
+            if (contentType != null && contentType.startsWith(TIPO_NDJSON)) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Formato no soportado: use " + TIPO_CSV + " o " + TIPO_NDJSON);
+        }
+    }
+
+    public ImportacionReservasService(ReservaService reservaService, ClienteRepository clienteRepository,
+                                      EmpleadoRepository empleadoRepository, ServicioCatalog servicioCatalog,
+                                      ObjectMapper objectMapper) {
+        this.reservaService = reservaService;
+        this.clienteRepository = clienteRepository;
+        this.empleadoRepository = empleadoRepository;
+        this.servicioCatalog = servicioCatalog;
+        this.objectMapper = objectMapper;
+    }
+
+    public void importar(InputStream entrada, Formato formato, OutputStream salida) throws IOException {
+        Importacion importacion = new Importacion(salida);
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+
+        Map<String, Integer> columnas = null;
+        String linea;
+        int numero = 0;
+        List<Fila> lote = new ArrayList<>(tamanoLote);
+        while ((linea = lector.readLine()) != null) {
+            numero++;
+            if (linea.isBlank()) {
+                continue;
+            }
+            if (formato == Formato.CSV && columnas == null) {
+                columnas = leerEncabezado(linea);
+                if (columnas == null) {
+                    importacion.escribir(numero, null, "Faltan columnas obligatorias: " + COLUMNAS_OBLIGATORIAS);
+                    break;
+                }
+                continue;
+            }
+
+            Fila fila = new Fila(numero);
+            try {
+                fila.datos = formato == Formato.CSV ? leerCsv(linea, columnas) : objectMapper.readValue(linea, ReservaImportada.class);
+            } catch (IOException | RuntimeException e) {
+                fila.error = "Línea inválida: " + e.getMessage();
+            }
+            // La línea "null" de NDJSON se lee sin error pero no trae una reserva
+            if (fila.error == null && fila.datos == null) {
+                fila.error = "Línea inválida: se esperaba un objeto";
+            }
+            lote.add(fila);
+            if (lote.size() == tamanoLote) {
+                procesar(lote, importacion);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            procesar(lote, importacion);
+        }
+        importacion.cerrar();
+    }
+
+    private void procesar(List<Fila> lote, Importacion importacion) throws IOException {
+        Map<Long, Optional<Cliente>> clientes = resolver(lote, d -> d.clienteId, importacion.clientes,
+                clienteRepository::findAllById, Cliente::getId);
+        Map<Long, Optional<Empleado>> empleados = resolver(lote, d -> d.empleadoId, importacion.empleados,
+                empleadoRepository::findAllById, Empleado::getId);
+
+        List<Fila> validas = new ArrayList<>();
+        List<ReservaService.SolicitudReserva> solicitudes = new ArrayList<>();
+        for (Fila fila : lote) {
+            if (fila.error == null) {
+                try {
+                    solicitudes.add(armarSolicitud(fila.datos, clientes, empleados));
+                    validas.add(fila);
+                } catch (IllegalArgumentException e) {
+                    fila.error = e.getMessage();
+                }
+            }
+        }
+
+        // El lote se guarda en una sola transacción: si falla entero (por ejemplo, se agotó la
+        // espera del bloqueo de un empleado) no quedó nada guardado y se rechazan todas sus filas,
+        // así el informe sigue cubriendo cada fila y termina con el resumen
+        List<ReservaService.ResultadoAlta> resultados;
+        try {
+            resultados = solicitudes.isEmpty() ? List.of() : reservaService.createReservas(solicitudes);
+        } catch (RuntimeException e) {
+            resultados = Collections.nCopies(solicitudes.size(), ReservaService.ResultadoAlta.rechazada(
+                    "No se pudo guardar el lote: " + e.getMessage()));
+        }
+        for (int i = 0; i < validas.size(); i++) {
+            ReservaService.ResultadoAlta resultado = resultados.get(i);
+            validas.get(i).reservaId = resultado.isCreada() ? resultado.getReserva().getId() : null;
+            validas.get(i).error = resultado.getError();
+        }
+        for (Fila fila : lote) {
+            importacion.escribir(fila.numero, fila.reservaId, fila.error);
+        }
+        importacion.salida.flush();
+    }
+
+    /*
+     * Ids del lote resueltos contra la cache de la importación; los que falten se buscan con una
+     * sola consulta. El resultado es propio del lote, así un desalojo de la cache no lo afecta.
+     */
+    private <T> Map<Long, Optional<T>> resolver(List<Fila> lote, Function<ReservaImportada, Long> id, Cache<Long, Optional<T>> cache,
+                                                Function<Set<Long>, List<T>> buscar, Function<T, Long> idDe) {
+        Map<Long, Optional<T>> resueltos = new HashMap<>();
+        Set<Long> faltantes = new HashSet<>();
+        for (Fila fila : lote) {
+            Long valor = fila.datos != null ? id.apply(fila.datos) : null;
+            if (valor != null && !resueltos.containsKey(valor)) {
+                Optional<T> enCache = cache.getIfPresent(valor);
+                if (enCache != null) {
+                    resueltos.put(valor, enCache);
+                } else {
+                    faltantes.add(valor);
+                }
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            for (T entidad : buscar.apply(faltantes)) {
+                resueltos.put(idDe.apply(entidad), Optional.of(entidad));
+            }
+            faltantes.forEach(faltante -> resueltos.putIfAbsent(faltante, Optional.empty()));
+            faltantes.forEach(faltante -> cache.put(faltante, resueltos.get(faltante)));
+        }
+        return resueltos;
+    }
+
+    private ReservaService.SolicitudReserva armarSolicitud(ReservaImportada datos, Map<Long, Optional<Cliente>> clientes,
+                                                           Map<Long, Optional<Empleado>> empleados) {
+        if (datos.clienteId == null || datos.empleadoId == null) {
+            throw new IllegalArgumentException("clienteId y empleadoId son obligatorios");
+        }
+        Cliente cliente = clientes.get(datos.clienteId)
+                .orElseThrow(() -> new IllegalArgumentException("Cliente no encontrado: " + datos.clienteId));
+        Empleado empleado = empleados.get(datos.empleadoId)
+                .orElseThrow(() -> new IllegalArgumentException("Empleado no encontrado: " + datos.empleadoId));
+        if (empleado.getRol() == null) {
+            throw new IllegalArgumentException("El empleado debe tener un rol asignado");
+        }
+        if (datos.medioPago == null) {
+            throw new IllegalArgumentException("El medio de pago es obligatorio");
+        }
+        if (datos.servicios == null || datos.servicios.isEmpty()) {
+            throw new IllegalArgumentException("Debe seleccionar al menos un servicio");
+        }
+
+        List<ReservaService.ReservaServicioDTO> serviciosDTO = new ArrayList<>();
+        for (ServicioImportado servicio : datos.servicios) {
+            if (servicio == null) {
+                throw new IllegalArgumentException("Servicio vacío en la lista de servicios");
+            }
+            if (servicio.fechaServicio == null) {
+                throw new IllegalArgumentException("Falta la fecha del servicio " + servicio.servicio);
+            }
+            if (servicioCatalog.findByNombre(servicio.servicio).isEmpty()) {
+                throw new IllegalArgumentException("Servicio no encontrado: " + servicio.servicio);
+            }
+            ReservaService.ReservaServicioDTO dto = new ReservaService.ReservaServicioDTO();
+            dto.setServicioNombre(servicio.servicio);
+            dto.setFechaServicio(servicio.fechaServicio);
+            serviciosDTO.add(dto);
+        }
+
+        Reserva reserva = new Reserva();
+        reserva.setCliente(cliente);
+        reserva.setEmpleado(empleado);
+        // Sin fecha de reserva explícita se usa la del primer servicio
+        reserva.setFechaReserva(datos.fechaReserva != null ? datos.fechaReserva
+                : serviciosDTO.stream().map(ReservaService.ReservaServicioDTO::getFechaServicio).min(Comparator.naturalOrder()).get());
+        reserva.setStatus(Reserva.Status.PENDIENTE);
+        reserva.setMedioPago(Reserva.MedioPago.valueOf(datos.medioPago));
+        reserva.setDescuentoAplicado(datos.descuentoAplicado);
+        return new ReservaService.SolicitudReserva(reserva, serviciosDTO);
+    }
+
+    private Map<String, Integer> leerEncabezado(String linea) {
+        Map<String, Integer> columnas = new HashMap<>();
+        String[] nombres = linea.split(",", -1);
+        for (int i = 0; i < nombres.length; i++) {
+            columnas.put(nombres[i].trim().replace("\uFEFF", ""), i);
+        }
+        return columnas.keySet().containsAll(COLUMNAS_OBLIGATORIAS) ? columnas : null;
+    }
+
+    private ReservaImportada leerCsv(String linea, Map<String, Integer> columnas) {
+        String[] valores = linea.split(",", -1);
+        ReservaImportada datos = new ReservaImportada();
+        try {
+            datos.clienteId = Long.valueOf(valor(valores, columnas, "clienteId"));
+            datos.empleadoId = Long.valueOf(valor(valores, columnas, "empleadoId"));
+            datos.medioPago = valor(valores, columnas, "medioPago");
+            String fechaReserva = valor(valores, columnas, "fechaReserva");
+            datos.fechaReserva = fechaReserva != null ? LocalDateTime.parse(fechaReserva) : null;
+            String descuento = valor(valores, columnas, "descuentoAplicado");
+            datos.descuentoAplicado = descuento != null ? Integer.valueOf(descuento) : null;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+
+        datos.servicios = new ArrayList<>();
+        String servicios = valor(valores, columnas, "servicios");
+        if (servicios != null) {
+            for (String par : servicios.split(";")) {
+                int separador = par.indexOf('@');
+                if (separador < 0) {
+                    throw new IllegalArgumentException("Servicio sin fecha: " + par);
+                }
+                ServicioImportado servicio = new ServicioImportado();
+                servicio.servicio = par.substring(0, separador).trim();
+                try {
+                    servicio.fechaServicio = LocalDateTime.parse(par.substring(separador + 1).trim());
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException(e.getMessage());
+                }
+                datos.servicios.add(servicio);
+            }
+        }
+        return datos;
+    }
+
+    private static String valor(String[] valores, Map<String, Integer> columnas, String columna) {
+        Integer indice = columnas.get(columna);
+        if (indice == null || indice >= valores.length || valores[indice].isBlank()) {
+            return null;
+        }
+        return valores[indice].trim();
+    }
+
+    // Estado de una importación en curso: caches acotadas y totales del resumen final
+    private class Importacion {
+        private final OutputStream salida;
+        private final Cache<Long, Optional<Cliente>> clientes = Caffeine.newBuilder().maximumSize(cacheMax).build();
+        private final Cache<Long, Optional<Empleado>> empleados = Caffeine.newBuilder().maximumSize(cacheMax).build();
+        private int creadas;
+        private int rechazadas;
+
+        Importacion(OutputStream salida) {
+            this.salida = salida;
+        }
+
+        void escribir(int fila, Long reservaId, String error) throws IOException {
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("fila", fila);
+            if (error == null) {
+                resultado.put("estado", "CREADA");
+                resultado.put("reservaId", reservaId);
+                creadas++;
+            } else {
+                resultado.put("estado", "RECHAZADA");
+                resultado.put("mensaje", error);
+                rechazadas++;
+            }
+            linea(resultado);
+        }
+
+        void cerrar() throws IOException {
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("resumen", true);
+            resumen.put("creadas", creadas);
+            resumen.put("rechazadas", rechazadas);
+            linea(resumen);
+            salida.flush();
+        }
+
+        private void linea(Map<String, Object> contenido) throws IOException {
+            salida.write(objectMapper.writeValueAsBytes(contenido));
+            salida.write('\n');
+        }
+    }
+
+    private static class Fila {
+        private final int numero;
+        private ReservaImportada datos;
+        private Long reservaId;
+        private String error;
+
+        Fila(int numero) {
+            this.numero = numero;
+        }
+    }
+
+    public static class ReservaImportada {
+        public Long clienteId;
+        public Long empleadoId;
+        public LocalDateTime fechaReserva;
+        public String medioPago;
+        public Integer descuentoAplicado;
+        public List<ServicioImportado> servicios;
+    }
+
+    public static class ServicioImportado {
+        public String servicio;
+        public LocalDateTime fechaServicio;
+    }
+}
@@ -0,0 +1,51 @@
+package com.backendspa.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Transporte local que guarda los correos en memoria en lugar de enviarlos.
+ * Se activa con email.transport=memoria (perfil de pruebas y desarrollo sin SendGrid).
+ */
+@Component
+@ConditionalOnProperty(name = "email.transport", havingValue = "memoria")
+public class InMemoryEmailTransport implements EmailTransport {
+
+    private final List<CorreoEnviado> enviados = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void send(String toEmail, String subject, String body, byte[] attachment, String attachmentName) {
+        enviados.add(new CorreoEnviado(toEmail, subject, body, attachmentName));
+    }
+
+    public List<CorreoEnviado> getEnviados() {
+        return new ArrayList<>(enviados);
+    }
+
+    public void clear() {
+        enviados.clear();
+    }
+
+    public static class CorreoEnviado {
+        private final String destinatario;
+        private final String asunto;
+        private final String cuerpo;
+        private final String adjuntoNombre;
+
+        public CorreoEnviado(String destinatario, String asunto, String cuerpo, String adjuntoNombre) {
+            this.destinatario = destinatario;
+            this.asunto = asunto;
+            this.cuerpo = cuerpo;
+            this.adjuntoNombre = adjuntoNombre;
+        }
+
+        public String getDestinatario() { return destinatario; }
+        public String getAsunto() { return asunto; }
+        public String getCuerpo() { return cuerpo; }
+        public String getAdjuntoNombre() { return adjuntoNombre; }
+    }
+}
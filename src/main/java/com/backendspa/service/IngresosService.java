@@ -0,0 +1,476 @@
+package com.backendspa.service;
+
+import com.backendspa.dto.IngresoReporte;
+import com.backendspa.entity.*;
+import com.backendspa.repository.EmpleadoRepository;
+import com.backendspa.repository.IngresoResumenRepository;
+import com.backendspa.repository.ReservaRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Resúmenes de ingresos (tabla ingresos_resumen). Cada alta, modificación o baja de una reserva
+ * calcula el aporte de la reserva antes y después del cambio y suma la diferencia a las filas
+ * de día y de mes de cada dimensión, dentro de la transacción que escribe los pagos.
+ *
+ * Aportes de una reserva: cada pago suma su monto al medio de pago y al empleado en su fecha;
+ * cada servicio suma su precio escalado por el descuento de su día (monto del pago del día /
+ * suma de precios del día), así los totales por servicio coinciden con los de los pagos.
+ */
+@Service
+public class IngresosService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngresosService.class);
+
+    // Diferencias menores se consideran cero (errores de redondeo al restar montos)
+    private static final double EPSILON = 0.000001;
+
+    private final IngresoResumenRepository ingresoResumenRepository;
+    private final ReservaRepository reservaRepository;
+    private final EmpleadoRepository empleadoRepository;
+    private final ServicioCatalog servicioCatalog;
+    private final EntityManager entityManager;
+    private final TransactionTemplate nuevaTransaccion;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${ingresos.reconstruccion.lote:500}")
+    private int loteReconstruccion;
+
+    @Value("${ingresos.reporte.max-dias:400}")
+    private long maxDiasReporte;
+
+    @Value("${ingresos.filas-conocidas.vencimiento-minutos:10}")
+    private long vencimientoFilasMinutos;
+
+    // Un solo hilo: nunca corren dos reconstrucciones a la vez
+    private final ExecutorService reconstrucciones = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "ingresos-reconstruccion");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Claves con fila en ingresos_resumen, para no consultarlas en cada reserva. Vencen para
+    // volver a verificar filas que otra instancia pudo borrar (reconstrucción)
+    private Cache<Clave, Boolean> filasConocidas;
+
+    private final AtomicReference<EstadoReconstruccion> estado = new AtomicReference<>(EstadoReconstruccion.inactivo());
+
+    public IngresosService(IngresoResumenRepository ingresoResumenRepository, ReservaRepository reservaRepository,
+                           EmpleadoRepository empleadoRepository, ServicioCatalog servicioCatalog,
+                           EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.ingresoResumenRepository = ingresoResumenRepository;
+        this.reservaRepository = reservaRepository;
+        this.empleadoRepository = empleadoRepository;
+        this.servicioCatalog = servicioCatalog;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void initCache() {
+        filasConocidas = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMinutes(vencimientoFilasMinutos))
+                .build();
+    }
+
+    @PreDestroy
+    void detener() {
+        reconstrucciones.shutdownNow();
+    }
+
+    // Aportes actuales de la reserva (tomar antes de modificarla)
+    public Map<Clave, Acumulado> aportes(Reserva reserva) {
+        Map<Clave, Acumulado> aportes = new HashMap<>();
+        acumularAportes(reserva, aportes);
+        return aportes;
+    }
+
+    public void registrarAlta(Reserva reserva) {
+        aplicar(aportes(reserva), Map.of());
+    }
+
+    // Altas de un mismo lote: una sola pasada ordenada por todas las filas que tocan
+    public void registrarAltas(List<Reserva> reservas) {
+        Map<Clave, Acumulado> aportes = new HashMap<>();
+        reservas.forEach(reserva -> acumularAportes(reserva, aportes));
+        aplicar(aportes, Map.of());
+    }
+
+    public void registrarCambio(Map<Clave, Acumulado> antes, Reserva despues) {
+        aplicar(aportes(despues), antes);
+    }
+
+    public void registrarBaja(Reserva reserva) {
+        aplicar(Map.of(), aportes(reserva));
+    }
+
+    /**
+     * Crea vacías las filas que va a tocar una reserva con estos datos. Se llama antes de abrir
+     * la transacción de la reserva: dentro de ella solo se hacen UPDATE, porque con InnoDB un
+     * UPDATE que no encuentra la fila deja un gap lock que bloquearía el INSERT de otra
+     * transacción, y crear la fila ahí mismo retendría una segunda conexión del pool.
+     */
+    public void prepararFilas(Long empleadoId, Reserva.MedioPago medioPago, List<ReservaService.ReservaServicioDTO> servicios) {
+        Map<Clave, Acumulado> claves = new HashMap<>();
+        for (ReservaService.ReservaServicioDTO dto : servicios) {
+            LocalDate dia = dto.getFechaServicio().toLocalDate();
+            if (medioPago != null) {
+                agregar(claves, IngresoResumen.Dimension.MEDIO_PAGO, medioPago.name(), dia, 0, 0);
+            }
+            agregar(claves, IngresoResumen.Dimension.EMPLEADO, String.valueOf(empleadoId), dia, 0, 0);
+            servicioCatalog.findByNombre(dto.getServicioNombre()).ifPresent(servicio ->
+                    agregar(claves, IngresoResumen.Dimension.SERVICIO, String.valueOf(servicio.getId()), dia, 0, 0));
+        }
+        asegurarFilas(claves.keySet());
+    }
+
+    /*
+     * Suma (despues - antes) a cada fila afectada, en un orden fijo para que dos reservas
+     * concurrentes tomen los locks de las filas en el mismo orden. Normalmente las filas ya
+     * existen: las de "antes" porque la reserva ya aportó a ellas y las de "despues" por
+     * prepararFilas. Si falta alguna (faltó prepararFilas o una reconstrucción la borró entre
+     * medio) se crea en la misma transacción, así el aporte nunca se pierde.
+     */
+    private void aplicar(Map<Clave, Acumulado> despues, Map<Clave, Acumulado> antes) {
+        Map<Clave, Acumulado> diferencias = new TreeMap<>();
+        despues.forEach((clave, acumulado) -> diferencias.computeIfAbsent(clave, c -> new Acumulado()).sumar(acumulado.monto, acumulado.cantidad));
+        antes.forEach((clave, acumulado) -> diferencias.computeIfAbsent(clave, c -> new Acumulado()).sumar(-acumulado.monto, -acumulado.cantidad));
+        diferencias.values().removeIf(diferencia -> Math.abs(diferencia.monto) < EPSILON && diferencia.cantidad == 0);
+        if (diferencias.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<Clave, Acumulado> entry : diferencias.entrySet()) {
+            Clave clave = entry.getKey();
+            Acumulado diferencia = entry.getValue();
+            int filas = ingresoResumenRepository.sumar(clave.granularidad, clave.dimension, clave.periodo, clave.clave,
+                    diferencia.monto, diferencia.cantidad);
+            if (filas == 0) {
+                insertarOSumar(clave, diferencia.monto, diferencia.cantidad);
+            }
+        }
+    }
+
+    // Upsert sobre uk_ingresos_resumen_clave: si otra transacción creó la fila entre medio, suma en lugar de fallar
+    private void insertarOSumar(Clave clave, double monto, long cantidad) {
+        ingresoResumenRepository.insertarOSumar(nuevoId(clave), clave.granularidad.name(), clave.dimension.name(),
+                clave.periodo, clave.clave, monto, cantidad);
+    }
+
+    // Id del mismo generador de la entidad (bloques de id_generadores), que el INSERT nativo no usa por sí solo
+    private Long nuevoId(Clave clave) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        IdentifierGenerator generador = (IdentifierGenerator) session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(IngresoResumen.class).getGenerator();
+        return (Long) generador.generate(session, clave.nuevaFila(0, 0));
+    }
+
+    // Una consulta para las claves que no se conocen todavía; las que falten se insertan vacías
+    private void asegurarFilas(Set<Clave> claves) {
+        List<Clave> desconocidas = new ArrayList<>();
+        for (Clave clave : claves) {
+            if (filasConocidas.getIfPresent(clave) == null) {
+                desconocidas.add(clave);
+            }
+        }
+        if (desconocidas.isEmpty()) {
+            return;
+        }
+
+        Set<LocalDate> periodos = new HashSet<>();
+        Set<String> valores = new HashSet<>();
+        desconocidas.forEach(clave -> {
+            periodos.add(clave.periodo);
+            valores.add(clave.clave);
+        });
+        for (IngresoResumen fila : ingresoResumenRepository.findByPeriodoInAndClaveIn(periodos, valores)) {
+            filasConocidas.put(Clave.de(fila), Boolean.TRUE);
+        }
+        for (Clave clave : desconocidas) {
+            if (filasConocidas.getIfPresent(clave) == null) {
+                try {
+                    nuevaTransaccion.executeWithoutResult(status -> ingresoResumenRepository.saveAndFlush(clave.nuevaFila(0, 0)));
+                } catch (DataIntegrityViolationException e) {
+                    // Otra transacción la creó al mismo tiempo
+                }
+                filasConocidas.put(clave, Boolean.TRUE);
+            }
+        }
+    }
+
+    private void acumularAportes(Reserva reserva, Map<Clave, Acumulado> aportes) {
+        String empleadoId = String.valueOf(reserva.getEmpleado().getId());
+        Map<LocalDate, Double> montoPorDia = new HashMap<>();
+        for (Pago pago : reserva.getPagos()) {
+            agregar(aportes, IngresoResumen.Dimension.MEDIO_PAGO, pago.getMedioPago().name(), pago.getFechaPago(), pago.getMontoTotal(), 1);
+            agregar(aportes, IngresoResumen.Dimension.EMPLEADO, empleadoId, pago.getFechaPago(), pago.getMontoTotal(), 1);
+            montoPorDia.merge(pago.getFechaPago(), pago.getMontoTotal(), Double::sum);
+        }
+
+        Map<LocalDate, Double> preciosPorDia = new HashMap<>();
+        for (ReservaServicio reservaServicio : reserva.getServicios()) {
+            preciosPorDia.merge(reservaServicio.getFechaServicio().toLocalDate(), reservaServicio.getServicio().getPrecio(), Double::sum);
+        }
+        for (ReservaServicio reservaServicio : reserva.getServicios()) {
+            LocalDate dia = reservaServicio.getFechaServicio().toLocalDate();
+            double precios = preciosPorDia.get(dia);
+            double factor = precios > 0 ? montoPorDia.getOrDefault(dia, 0.0) / precios : 0;
+            agregar(aportes, IngresoResumen.Dimension.SERVICIO, String.valueOf(reservaServicio.getServicio().getId()), dia,
+                    reservaServicio.getServicio().getPrecio() * factor, 1);
+        }
+    }
+
+    private static void agregar(Map<Clave, Acumulado> aportes, IngresoResumen.Dimension dimension, String clave,
+                                LocalDate dia, double monto, long cantidad) {
+        aportes.computeIfAbsent(new Clave(IngresoResumen.Granularidad.DIA, dimension, dia, clave), c -> new Acumulado())
+                .sumar(monto, cantidad);
+        aportes.computeIfAbsent(new Clave(IngresoResumen.Granularidad.MES, dimension, dia.withDayOfMonth(1), clave), c -> new Acumulado())
+                .sumar(monto, cantidad);
+    }
+
+    /**
+     * Ingresos de una dimensión entre dos fechas (para MES, los meses que las contienen). Lee
+     * solo las filas del resumen: a lo sumo días (o meses) x claves de la dimensión.
+     */
+    public List<IngresoReporte> getIngresos(IngresoResumen.Granularidad granularidad, IngresoResumen.Dimension dimension,
+                                            LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("La fecha final debe ser posterior a la inicial");
+        }
+        if (granularidad == IngresoResumen.Granularidad.DIA && ChronoUnit.DAYS.between(desde, hasta) > maxDiasReporte) {
+            throw new IllegalArgumentException("El rango diario no puede superar " + maxDiasReporte + " días; use granularidad MES");
+        }
+        if (granularidad == IngresoResumen.Granularidad.MES) {
+            desde = desde.withDayOfMonth(1);
+            hasta = hasta.withDayOfMonth(1);
+        }
+        List<IngresoResumen> filas = ingresoResumenRepository
+                .findByGranularidadAndDimensionAndPeriodoBetweenOrderByPeriodoAscClaveAsc(granularidad, dimension, desde, hasta);
+
+        Map<String, String> nombres = nombres(dimension, filas);
+        List<IngresoReporte> reporte = new ArrayList<>(filas.size());
+        for (IngresoResumen fila : filas) {
+            if (fila.getCantidad() == 0 && Math.abs(fila.getMonto()) < EPSILON) {
+                continue;
+            }
+            reporte.add(new IngresoReporte(fila.getPeriodo(), fila.getClave(), nombres.get(fila.getClave()),
+                    fila.getMonto(), fila.getCantidad()));
+        }
+        return reporte;
+    }
+
+    private Map<String, String> nombres(IngresoResumen.Dimension dimension, List<IngresoResumen> filas) {
+        Map<String, String> nombres = new HashMap<>();
+        Set<String> claves = new HashSet<>();
+        filas.forEach(fila -> claves.add(fila.getClave()));
+        if (dimension == IngresoResumen.Dimension.SERVICIO) {
+            for (String clave : claves) {
+                servicioCatalog.findById(Long.valueOf(clave)).ifPresent(servicio -> nombres.put(clave, servicio.getNombre()));
+            }
+        } else if (dimension == IngresoResumen.Dimension.EMPLEADO && !claves.isEmpty()) {
+            List<Long> ids = claves.stream().map(Long::valueOf).toList();
+            for (Empleado empleado : empleadoRepository.findAllById(ids)) {
+                nombres.put(String.valueOf(empleado.getId()), empleado.getNombre() + " " + empleado.getApellido());
+            }
+        } else {
+            claves.forEach(clave -> nombres.put(clave, clave));
+        }
+        return nombres;
+    }
+
+    /**
+     * Lanza la reconstrucción completa de ingresos_resumen en segundo plano (backfill o
+     * corrección). Devuelve false si ya hay una en curso. Las reservas se leen por lotes de
+     * ingresos.reconstruccion.lote y los totales se reemplazan en una sola transacción al final;
+     * los cambios de reservas confirmados mientras corre pueden no quedar reflejados, así que
+     * conviene lanzarla con poco tráfico.
+     */
+    public boolean iniciarReconstruccion() {
+        EstadoReconstruccion actual = estado.get();
+        if (actual.enCurso || !estado.compareAndSet(actual, EstadoReconstruccion.iniciada())) {
+            return false;
+        }
+        reconstrucciones.submit(() -> {
+            try {
+                long[] totales = reconstruir();
+                estado.set(estado.get().terminada(totales[0], totales[1], null));
+            } catch (RuntimeException e) {
+                log.error("Falló la reconstrucción de ingresos_resumen", e);
+                estado.set(estado.get().terminada(0, 0, e.getMessage()));
+            }
+        });
+        return true;
+    }
+
+    public EstadoReconstruccion getEstadoReconstruccion() {
+        return estado.get();
+    }
+
+    // Devuelve {reservas procesadas, filas escritas}
+    long[] reconstruir() {
+        Map<Clave, Acumulado> totales = new HashMap<>();
+        long reservas = 0;
+        Long ultimoId = 0L;
+        while (true) {
+            List<Long> ids = reservaRepository.findIdsDespuesDe(ultimoId, PageRequest.of(0, loteReconstruccion));
+            if (ids.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Reserva reserva : reservaRepository.findDetalleByIdIn(ids)) {
+                    acumularAportes(reserva, totales);
+                }
+            });
+            reservas += ids.size();
+            ultimoId = ids.get(ids.size() - 1);
+            long procesadas = reservas;
+            estado.set(estado.get().avance(procesadas));
+        }
+
+        // El DELETE deja bloqueadas las filas hasta el commit: una reserva que las actualiza en ese
+        // momento espera, no encuentra la fila y la crea con su aporte sobre los totales nuevos.
+        // Por eso aquí también se escribe con upsert: si esa fila ya apareció, se suma en lugar de fallar
+        Map<Clave, Acumulado> ordenados = new TreeMap<>(totales);
+        transactionTemplate.executeWithoutResult(status -> {
+            ingresoResumenRepository.deleteAllInBatch();
+            ordenados.forEach((clave, acumulado) -> insertarOSumar(clave, acumulado.monto, acumulado.cantidad));
+        });
+        filasConocidas.invalidateAll();
+        return new long[]{reservas, ordenados.size()};
+    }
+
+    // Fila de ingresos_resumen; el orden natural fija el orden en que se toman los locks
+    public static final class Clave implements Comparable<Clave> {
+        private final IngresoResumen.Granularidad granularidad;
+        private final IngresoResumen.Dimension dimension;
+        private final LocalDate periodo;
+        private final String clave;
+
+        Clave(IngresoResumen.Granularidad granularidad, IngresoResumen.Dimension dimension, LocalDate periodo, String clave) {
+            this.granularidad = granularidad;
+            this.dimension = dimension;
+            this.periodo = periodo;
+            this.clave = clave;
+        }
+
+        static Clave de(IngresoResumen fila) {
+            return new Clave(fila.getGranularidad(), fila.getDimension(), fila.getPeriodo(), fila.getClave());
+        }
+
+        IngresoResumen nuevaFila(double monto, long cantidad) {
+            IngresoResumen fila = new IngresoResumen();
+            fila.setGranularidad(granularidad);
+            fila.setDimension(dimension);
+            fila.setPeriodo(periodo);
+            fila.setClave(clave);
+            fila.setMonto(monto);
+            fila.setCantidad(cantidad);
+            return fila;
+        }
+
+        @Override
+        public int compareTo(Clave otra) {
+            int comparacion = granularidad.compareTo(otra.granularidad);
+            if (comparacion == 0) comparacion = dimension.compareTo(otra.dimension);
+            if (comparacion == 0) comparacion = periodo.compareTo(otra.periodo);
+            if (comparacion == 0) comparacion = clave.compareTo(otra.clave);
+            return comparacion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Clave otra)) return false;
+            return granularidad == otra.granularidad && dimension == otra.dimension
+                    && periodo.equals(otra.periodo) && clave.equals(otra.clave);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularidad, dimension, periodo, clave);
+        }
+
+        @Override
+        public String toString() {
+            return granularidad + "/" + dimension + "/" + periodo + "/" + clave;
+        }
+    }
+
+    public static final class Acumulado {
+        private double monto;
+        private long cantidad;
+
+        void sumar(double monto, long cantidad) {
+            this.monto += monto;
+            this.cantidad += cantidad;
+        }
+    }
+
+    public static final class EstadoReconstruccion {
+        private final boolean enCurso;
+        private final LocalDateTime inicio;
+        private final LocalDateTime fin;
+        private final long reservasProcesadas;
+        private final long filasEscritas;
+        private final String error;
+
+        private EstadoReconstruccion(boolean enCurso, LocalDateTime inicio, LocalDateTime fin, long reservasProcesadas,
+                                     long filasEscritas, String error) {
+            this.enCurso = enCurso;
+            this.inicio = inicio;
+            this.fin = fin;
+            this.reservasProcesadas = reservasProcesadas;
+            this.filasEscritas = filasEscritas;
+            this.error = error;
+        }
+
+        static EstadoReconstruccion inactivo() {
+            return new EstadoReconstruccion(false, null, null, 0, 0, null);
+        }
+
+        static EstadoReconstruccion iniciada() {
+            return new EstadoReconstruccion(true, LocalDateTime.now(), null, 0, 0, null);
+        }
+
+        EstadoReconstruccion avance(long reservas) {
+            return new EstadoReconstruccion(true, inicio, null, reservas, 0, null);
+        }
+
+        EstadoReconstruccion terminada(long reservas, long filas, String error) {
+            return new EstadoReconstruccion(false, inicio, LocalDateTime.now(), error == null ? reservas : reservasProcesadas, filas, error);
+        }
+
+        public boolean isEnCurso() { return enCurso; }
+        public LocalDateTime getInicio() { return inicio; }
+        public LocalDateTime getFin() { return fin; }
+        public long getReservasProcesadas() { return reservasProcesadas; }
+        public long getFilasEscritas() { return filasEscritas; }
+        public String getError() { return error; }
+    }
+}
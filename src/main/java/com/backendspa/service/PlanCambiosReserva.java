@@ -0,0 +1,107 @@
+package com.backendspa.service;
+
+import com.backendspa.entity.ReservaServicio;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+/**
+ * Diferencia entre los servicios guardados de una reserva y los que llegan en la modificación.
+ * Las filas existentes se reutilizan siempre que se pueda: primero las idénticas (mismo servicio
+ * y horario), después las que conservan el horario o el servicio y, por último, cualquier par
+ * sobrante. Solo se insertan los servicios que exceden a los guardados y solo se borran los
+ * guardados que sobran.
+ */
+public final class PlanCambiosReserva {
+
+    private final List<ReservaServicio> sinCambios;
+    private final List<Modificacion> modificados;
+    private final List<ReservaServicio> eliminados;
+    private final List<ReservaService.ReservaServicioDTO> nuevos;
+
+    private PlanCambiosReserva(List<ReservaServicio> sinCambios, List<Modificacion> modificados,
+                               List<ReservaServicio> eliminados, List<ReservaService.ReservaServicioDTO> nuevos) {
+        this.sinCambios = Collections.unmodifiableList(sinCambios);
+        this.modificados = Collections.unmodifiableList(modificados);
+        this.eliminados = Collections.unmodifiableList(eliminados);
+        this.nuevos = Collections.unmodifiableList(nuevos);
+    }
+
+    public static PlanCambiosReserva planificar(List<ReservaServicio> actuales, List<ReservaService.ReservaServicioDTO> solicitados) {
+        List<ReservaServicio> libres = new ArrayList<>(actuales);
+        List<ReservaService.ReservaServicioDTO> pendientes = new ArrayList<>(solicitados);
+
+        List<ReservaServicio> sinCambios = new ArrayList<>();
+        List<Modificacion> modificados = new ArrayList<>();
+
+        emparejar(libres, pendientes, (rs, dto) -> mismoServicio(rs, dto) && mismaFecha(rs, dto),
+                (rs, dto) -> sinCambios.add(rs));
+        emparejar(libres, pendientes, PlanCambiosReserva::mismaFecha,
+                (rs, dto) -> modificados.add(new Modificacion(rs, dto)));
+        emparejar(libres, pendientes, PlanCambiosReserva::mismoServicio,
+                (rs, dto) -> modificados.add(new Modificacion(rs, dto)));
+        emparejar(libres, pendientes, (rs, dto) -> true,
+                (rs, dto) -> modificados.add(new Modificacion(rs, dto)));
+
+        return new PlanCambiosReserva(sinCambios, modificados, libres, pendientes);
+    }
+
+    // Cada DTO pendiente toma la primera fila libre que cumpla el criterio; ambos salen de sus listas
+    private static void emparejar(List<ReservaServicio> libres, List<ReservaService.ReservaServicioDTO> pendientes,
+                                  BiPredicate<ReservaServicio, ReservaService.ReservaServicioDTO> criterio,
+                                  BiConsumer<ReservaServicio, ReservaService.ReservaServicioDTO> destino) {
+        Iterator<ReservaService.ReservaServicioDTO> dtos = pendientes.iterator();
+        while (dtos.hasNext() && !libres.isEmpty()) {
+            ReservaService.ReservaServicioDTO dto = dtos.next();
+            for (Iterator<ReservaServicio> filas = libres.iterator(); filas.hasNext(); ) {
+                ReservaServicio rs = filas.next();
+                if (criterio.test(rs, dto)) {
+                    filas.remove();
+                    dtos.remove();
+                    destino.accept(rs, dto);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean mismoServicio(ReservaServicio rs, ReservaService.ReservaServicioDTO dto) {
+        return Objects.equals(rs.getServicio().getNombre(), dto.getServicioNombre());
+    }
+
+    private static boolean mismaFecha(ReservaServicio rs, ReservaService.ReservaServicioDTO dto) {
+        return Objects.equals(rs.getFechaServicio(), dto.getFechaServicio());
+    }
+
+    public List<ReservaServicio> getSinCambios() { return sinCambios; }
+    public List<Modificacion> getModificados() { return modificados; }
+    public List<ReservaServicio> getEliminados() { return eliminados; }
+    public List<ReservaService.ReservaServicioDTO> getNuevos() { return nuevos; }
+
+    public boolean hayBorrados() {
+        return !eliminados.isEmpty() || modificados.stream().anyMatch(Modificacion::cambiaFecha);
+    }
+
+    // Fila existente que se reutiliza con otro servicio y/o horario
+    public static final class Modificacion {
+        private final ReservaServicio actual;
+        private final ReservaService.ReservaServicioDTO destino;
+
+        Modificacion(ReservaServicio actual, ReservaService.ReservaServicioDTO destino) {
+            this.actual = actual;
+            this.destino = destino;
+        }
+
+        public ReservaServicio getActual() { return actual; }
+        public ReservaService.ReservaServicioDTO getDestino() { return destino; }
+
+        public boolean cambiaFecha() {
+            return !mismaFecha(actual, destino);
+        }
+    }
+}
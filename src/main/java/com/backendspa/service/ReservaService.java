@@ -1,39 +1,111 @@
 package com.backendspa.service;
 
+import com.backendspa.dto.PagoResumen;
+import com.backendspa.dto.PosicionReserva;
+import com.backendspa.dto.ReservaResumen;
+import com.backendspa.dto.ServicioReservado;
 import com.backendspa.entity.*;
 import com.backendspa.repository.*;
+import com.google.common.util.concurrent.Striped;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.hibernate.Hibernate;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class ReservaService {
 
+    // Anticipación mínima para reservar un turno
+    public static final int HORAS_ANTICIPACION_MINIMA = 48;
+
+    // Ids por consulta al cargar los pagos de un listado
+    private static final int LOTE_PAGOS = 100;
+
     private final ReservaRepository reservaRepository;
     private final ClienteRepository clienteRepository;
     private final EmpleadoRepository empleadoRepository;
-    private final ServicioRepository servicioRepository;
+    private final ServicioCatalog servicioCatalog;
     private final ReservaServicioRepository reservaServicioRepository;
     private final PagoRepository pagoRepository;
+    private final AgendaIndex agendaIndex;
+    private final AgendaDiariaCache agendaDiariaCache;
+    private final IngresosService ingresosService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    /*
+     * Bloqueos por empleado (striped: cada id cae en una de N franjas). Las altas y
+     * modificaciones de un mismo empleado se serializan en este nodo desde la verificación de
+     * la agenda hasta el commit; las de empleados distintos corren en paralelo. Entre nodos
+     * decide la restricción única de bloques_agenda y, entre ediciones de la misma reserva,
+     * el @Version de Reserva.
+     */
+    @Value("${reservas.bloqueos.franjas:64}")
+    private int franjasBloqueo;
+
+    @Value("${reservas.bloqueos.espera-ms:5000}")
+    private long esperaBloqueoMs;
+
+    private Striped<Lock> bloqueosEmpleado;
+
+    @Value("${reservas.pagina.tamano-defecto:50}")
+    private int tamanoPaginaDefecto;
+
+    @Value("${reservas.pagina.tamano-maximo:200}")
+    private int tamanoPaginaMaximo;
 
     public ReservaService(
             ReservaRepository reservaRepository,
             ClienteRepository clienteRepository,
             EmpleadoRepository empleadoRepository,
-            ServicioRepository servicioRepository,
+            ServicioCatalog servicioCatalog,
             ReservaServicioRepository reservaServicioRepository,
-            PagoRepository pagoRepository
+            PagoRepository pagoRepository,
+            AgendaIndex agendaIndex,
+            AgendaDiariaCache agendaDiariaCache,
+            IngresosService ingresosService,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager
     ) {
         this.reservaRepository = reservaRepository;
         this.clienteRepository = clienteRepository;
         this.empleadoRepository = empleadoRepository;
-        this.servicioRepository = servicioRepository;
+        this.servicioCatalog = servicioCatalog;
         this.reservaServicioRepository = reservaServicioRepository;
         this.pagoRepository = pagoRepository;
+        this.agendaIndex = agendaIndex;
+        this.agendaDiariaCache = agendaDiariaCache;
+        this.ingresosService = ingresosService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void initBloqueos() {
+        bloqueosEmpleado = Striped.lock(franjasBloqueo);
     }
 
     public static class FacturaDetalles {
@@ -56,6 +128,18 @@ public class ReservaService {
     }
 
     public Reserva createReserva(Reserva reserva, List<ReservaServicioDTO> serviciosDTO) {
+        validarAnticipacion(serviciosDTO);
+        Long empleadoId = reserva.getEmpleado().getId();
+        return conBloqueo(List.of(empleadoId), () -> {
+            // Validar que el empleado esté libre en cada turno (fuera de la transacción: el
+            // índice puede leer la base de datos y no conviene retener dos conexiones)
+            verificarDisponibilidad(empleadoId, serviciosDTO, null);
+            ingresosService.prepararFilas(empleadoId, reserva.getMedioPago(), serviciosDTO);
+            return transactionTemplate.execute(status -> crearReserva(reserva, serviciosDTO));
+        });
+    }
+
+    private Reserva crearReserva(Reserva reserva, List<ReservaServicioDTO> serviciosDTO) {
         // Validar cliente
         Cliente cliente = clienteRepository.findById(reserva.getCliente().getId())
                 .orElseThrow(() -> new IllegalArgumentException("Cliente no encontrado"));
@@ -73,15 +157,15 @@ public class ReservaService {
             throw new IllegalArgumentException("El medio de pago es obligatorio");
         }
 
-        // Validar fechas (mínimo 48 horas de antelación)
-        LocalDateTime now = LocalDateTime.now();
-        for (ReservaServicioDTO dto : serviciosDTO) {
-            long diferenciaHora = ChronoUnit.HOURS.between(now, dto.getFechaServicio());
-            if (diferenciaHora < 48) {
-                throw new IllegalArgumentException("Las reservas deben realizarse con al menos 48 horas de antelación.");
-            }
-        }
+        // Guardar la reserva (esto persistirá automáticamente servicios, bloques y pagos debido a cascade)
+        Reserva savedReserva = guardarConBloques(armarReserva(reserva, cliente, empleado, serviciosDTO));
+        registrarBloquesAlConfirmar(savedReserva);
+        ingresosService.registrarAlta(savedReserva);
+        return savedReserva;
+    }
 
+    // Arma la reserva nueva con sus servicios, bloques de agenda y un pago por día, sin guardarla
+    private Reserva armarReserva(Reserva reserva, Cliente cliente, Empleado empleado, List<ReservaServicioDTO> serviciosDTO) {
         // Crear la reserva
         Reserva nuevaReserva = new Reserva();
         nuevaReserva.setCliente(cliente);
@@ -107,13 +191,9 @@ public class ReservaService {
             // Calcular monto total
             double montoTotal = 0;
             for (ReservaServicioDTO dto : serviciosDelDia) {
-                Servicio servicio = servicioRepository.findByNombre(dto.getServicioNombre())
+                Servicio servicio = servicioCatalog.findByNombre(dto.getServicioNombre())
                         .orElseThrow(() -> new IllegalArgumentException("Servicio no encontrado: " + dto.getServicioNombre()));
-                ReservaServicio reservaServicio = new ReservaServicio();
-                reservaServicio.setReserva(nuevaReserva);
-                reservaServicio.setServicio(servicio);
-                reservaServicio.setFechaServicio(dto.getFechaServicio());
-                nuevaReserva.getServicios().add(reservaServicio);
+                nuevaReserva.getServicios().add(nuevoReservaServicio(nuevaReserva, servicio, dto.getFechaServicio()));
                 montoTotal += servicio.getPrecio();
                 valorTotalOriginal += servicio.getPrecio();
             }
@@ -135,18 +215,246 @@ public class ReservaService {
             pago.setDescuentoAplicado((int) descuento); // Guardar el porcentaje de descuento
             nuevaReserva.getPagos().add(pago);
         }
+        return nuevaReserva;
+    }
 
-        // Guardar la reserva (esto persistirá automáticamente servicios y pagos debido a cascade)
-        Reserva savedReserva = reservaRepository.save(nuevaReserva);
-        return savedReserva;
+    /**
+     * Alta de un lote de reservas (importaciones) en una sola transacción, para que los INSERT
+     * de todas salgan agrupados. Cada solicitud se valida por separado y las rechazadas no
+     * frenan al resto; el resultado respeta el orden de las solicitudes. Si la base de datos
+     * rechaza el lote (otro nodo tomó un bloque, o un cliente o empleado ya no existe) se
+     * reintenta fila por fila para saber cuál falló.
+     */
+    public List<ResultadoAlta> createReservas(List<SolicitudReserva> solicitudes) {
+        ResultadoAlta[] resultados = new ResultadoAlta[solicitudes.size()];
+        List<Integer> validas = new ArrayList<>();
+        for (int i = 0; i < solicitudes.size(); i++) {
+            try {
+                validarAnticipacion(solicitudes.get(i).getServicios());
+                validas.add(i);
+            } catch (IllegalArgumentException e) {
+                resultados[i] = ResultadoAlta.rechazada(e.getMessage());
+            }
+        }
+        if (!validas.isEmpty()) {
+            List<Long> empleadoIds = validas.stream()
+                    .map(i -> solicitudes.get(i).getReserva().getEmpleado().getId())
+                    .distinct()
+                    .collect(Collectors.toList());
+            conBloqueo(empleadoIds, () -> {
+                crearLote(solicitudes, validas, resultados);
+                return null;
+            });
+        }
+        return Arrays.asList(resultados);
+    }
+
+    private void crearLote(List<SolicitudReserva> solicitudes, List<Integer> validas, ResultadoAlta[] resultados) {
+        // Cada fila se verifica contra la agenda y contra los bloques que ya tomaron las filas anteriores del lote
+        Map<Long, Set<LocalDateTime>> tomados = new HashMap<>();
+        List<Integer> disponibles = new ArrayList<>();
+        for (int i : validas) {
+            SolicitudReserva solicitud = solicitudes.get(i);
+            Long empleadoId = solicitud.getReserva().getEmpleado().getId();
+            try {
+                verificarDisponibilidad(empleadoId, solicitud.getServicios(), null);
+                List<LocalDateTime> bloques = solicitud.getServicios().stream()
+                        .flatMap(dto -> agendaIndex.bloquesDe(dto.getFechaServicio()).stream())
+                        .collect(Collectors.toList());
+                Set<LocalDateTime> delEmpleado = tomados.computeIfAbsent(empleadoId, id -> new HashSet<>());
+                if (bloques.stream().anyMatch(delEmpleado::contains)) {
+                    throw new IllegalArgumentException("El empleado ya tiene un turno reservado en ese horario en otra fila del lote");
+                }
+                delEmpleado.addAll(bloques);
+                disponibles.add(i);
+            } catch (IllegalArgumentException e) {
+                resultados[i] = ResultadoAlta.rechazada(e.getMessage());
+            }
+        }
+        if (disponibles.isEmpty()) {
+            return;
+        }
+        for (int i : disponibles) {
+            SolicitudReserva solicitud = solicitudes.get(i);
+            ingresosService.prepararFilas(solicitud.getReserva().getEmpleado().getId(), solicitud.getReserva().getMedioPago(),
+                    solicitud.getServicios());
+        }
+
+        try {
+            List<Reserva> guardadas = transactionTemplate.execute(status -> {
+                List<Reserva> nuevas = new ArrayList<>();
+                for (int i : disponibles) {
+                    SolicitudReserva solicitud = solicitudes.get(i);
+                    // Referencias sin SELECT: el importador ya validó cliente y empleado
+                    Cliente cliente = clienteRepository.getReferenceById(solicitud.getReserva().getCliente().getId());
+                    Empleado empleado = empleadoRepository.getReferenceById(solicitud.getReserva().getEmpleado().getId());
+                    nuevas.add(reservaRepository.save(armarReserva(solicitud.getReserva(), cliente, empleado, solicitud.getServicios())));
+                }
+                reservaRepository.flush();
+                nuevas.forEach(this::registrarBloquesAlConfirmar);
+                ingresosService.registrarAltas(nuevas);
+                return nuevas;
+            });
+            for (int k = 0; k < disponibles.size(); k++) {
+                resultados[disponibles.get(k)] = ResultadoAlta.creada(guardadas.get(k));
+            }
+        } catch (DataIntegrityViolationException e) {
+            for (int i : disponibles) {
+                SolicitudReserva solicitud = solicitudes.get(i);
+                try {
+                    resultados[i] = ResultadoAlta.creada(createReserva(solicitud.getReserva(), solicitud.getServicios()));
+                } catch (RuntimeException ex) {
+                    resultados[i] = ResultadoAlta.rechazada(ex.getMessage());
+                }
+            }
+        }
     }
 
+    @Transactional(readOnly = true)
     public List<Reserva> getReservasByClienteId(Long clienteId) {
-        return reservaRepository.findByClienteId(clienteId);
+        return cargarPagos(reservaRepository.findByClienteId(clienteId));
     }
 
+    // Listado completo: solo para las rutas de exportación explícitas
+    @Transactional(readOnly = true)
     public List<Reserva> getAllReservas() {
-        return reservaRepository.findAll();
+        return cargarPagos(reservaRepository.findAll());
+    }
+
+    /**
+     * Devuelve una página de reservas ordenadas por (fechaReserva, id) a partir del cursor
+     * recibido (null para la primera página). El tamaño se limita a reservas.pagina.tamano-maximo.
+     */
+    @Transactional(readOnly = true)
+    public PaginaReservas<Reserva> getReservasPage(String cursor, Integer tamano) {
+        return paginar(cursor, tamano, this::getReservasDetalle);
+    }
+
+    // Igual que getReservasPage pero con la proyección de lectura
+    @Transactional(readOnly = true)
+    public PaginaReservas<ReservaResumen> getResumenesPage(String cursor, Integer tamano) {
+        return paginar(cursor, tamano, this::getResumenes);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReservaResumen> getResumenesByClienteId(Long clienteId) {
+        return completarResumenes(reservaRepository.findResumenByClienteId(clienteId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReservaResumen> getAgendaEmpleado(Long empleadoId, LocalDate fecha) {
+        return completarResumenes(reservaRepository.findResumenByEmpleadoIdAndFechaReservaBetween(
+                empleadoId, fecha.atStartOfDay(), fecha.atTime(LocalTime.MAX)));
+    }
+
+    // Sin @Transactional: si la agenda está en cache y verificada hace poco no se abre transacción ni se pide conexión
+    public AgendaDiariaCache.AgendaDiaria getAgendaDiaria(Long empleadoId, LocalDate fecha) {
+        return agendaDiariaCache.obtener(empleadoId, fecha,
+                () -> reservaRepository.findHuellaByEmpleadoIdAndFechaReservaBetween(
+                        empleadoId, fecha.atStartOfDay(), fecha.atTime(LocalTime.MAX)),
+                () -> getAgendaEmpleado(empleadoId, fecha));
+    }
+
+    private <T> PaginaReservas<T> paginar(String cursor, Integer tamano, Function<List<Long>, List<T>> cargar) {
+        int limite = tamano == null || tamano <= 0 ? tamanoPaginaDefecto : Math.min(tamano, tamanoPaginaMaximo);
+        // Se pide un elemento de más para saber si hay página siguiente
+        PageRequest pageRequest = PageRequest.of(0, limite + 1);
+
+        List<PosicionReserva> posiciones;
+        if (cursor == null || cursor.isBlank()) {
+            posiciones = reservaRepository.findPosicionesPrimeraPagina(pageRequest);
+        } else {
+            CursorReserva posicion = CursorReserva.decode(cursor);
+            posiciones = reservaRepository.findPosicionesPaginaDespuesDe(posicion.fechaReserva, posicion.id, pageRequest);
+        }
+        boolean haySiguiente = posiciones.size() > limite;
+        if (haySiguiente) {
+            posiciones = posiciones.subList(0, limite);
+        }
+
+        List<Long> ids = posiciones.stream().map(PosicionReserva::getId).collect(Collectors.toList());
+        List<T> elementos = ids.isEmpty() ? new ArrayList<>() : cargar.apply(ids);
+        // El cursor sale de la última clave leída, no del último elemento cargado: si una reserva
+        // de la página se borró entre las dos consultas, la siguiente página sigue desde el mismo lugar
+        String siguienteCursor = null;
+        if (haySiguiente) {
+            PosicionReserva ultima = posiciones.get(posiciones.size() - 1);
+            siguienteCursor = new CursorReserva(ultima.getFechaReserva(), ultima.getId()).encode();
+        }
+        return new PaginaReservas<>(elementos, siguienteCursor);
+    }
+
+    private List<ReservaResumen> getResumenes(List<Long> ids) {
+        Map<Long, ReservaResumen> porId = reservaRepository.findResumenByIdIn(ids).stream()
+                .collect(Collectors.toMap(ReservaResumen::getId, resumen -> resumen));
+        List<ReservaResumen> resumenes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ReservaResumen resumen = porId.get(id);
+            if (resumen != null) {
+                resumenes.add(resumen);
+            }
+        }
+        return completarResumenes(resumenes);
+    }
+
+    // Agrega servicios y pagos a los resúmenes: dos consultas en total, sin importar cuántas reservas haya
+    private List<ReservaResumen> completarResumenes(List<ReservaResumen> resumenes) {
+        if (resumenes.isEmpty()) {
+            return resumenes;
+        }
+        List<Long> ids = resumenes.stream().map(ReservaResumen::getId).collect(Collectors.toList());
+        Map<Long, List<ServicioReservado>> servicios = reservaServicioRepository.findServiciosReservados(ids).stream()
+                .collect(Collectors.groupingBy(ServicioReservado::getReservaId));
+        Map<Long, List<PagoResumen>> pagos = pagoRepository.findPagosResumen(ids).stream()
+                .collect(Collectors.groupingBy(PagoResumen::getReservaId));
+        for (ReservaResumen resumen : resumenes) {
+            resumen.setServicios(servicios.getOrDefault(resumen.getId(), new ArrayList<>()));
+            resumen.setPagos(pagos.getOrDefault(resumen.getId(), new ArrayList<>()));
+        }
+        return resumenes;
+    }
+
+    /*
+     * Carga las reservas con todas sus asociaciones en un número fijo de consultas:
+     * una para reserva + cliente + empleado + servicios, y una por cada LOTE_PAGOS reservas para los pagos.
+     * Devuelve las reservas en el mismo orden que los ids.
+     */
+    private List<Reserva> getReservasDetalle(List<Long> ids) {
+        Map<Long, Reserva> porId = reservaRepository.findDetalleByIdIn(ids).stream()
+                .collect(Collectors.toMap(Reserva::getId, reserva -> reserva));
+        List<Reserva> reservas = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Reserva reserva = porId.get(id);
+            if (reserva != null) {
+                reservas.add(reserva);
+            }
+        }
+        return cargarPagos(reservas);
+    }
+
+    // Carga los pagos de todas las reservas, de a LOTE_PAGOS ids por consulta, sin depender de
+    // cargas diferidas posteriores (que fuera de la transacción dependerían de open-in-view)
+    private List<Reserva> cargarPagos(List<Reserva> reservas) {
+        List<Long> pendientes = reservas.stream()
+                .filter(reserva -> !Hibernate.isInitialized(reserva.getPagos()))
+                .map(Reserva::getId)
+                .collect(Collectors.toList());
+        for (int desde = 0; desde < pendientes.size(); desde += LOTE_PAGOS) {
+            reservaRepository.findConPagosByIdIn(pendientes.subList(desde, Math.min(desde + LOTE_PAGOS, pendientes.size())));
+        }
+        return reservas;
+    }
+
+    /**
+     * Servicios y pagos de un cliente para un día. Solo lee las filas de ese día, así que el
+     * costo no depende de cuántas reservas tenga el cliente en su historial.
+     */
+    @Transactional(readOnly = true)
+    public ConsumoDelDia getConsumoDelDia(Long clienteId, LocalDate fecha) {
+        List<ReservaServicio> servicios = reservaServicioRepository.findByClienteIdAndFechaServicio(
+                clienteId, fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay());
+        List<Pago> pagos = servicios.isEmpty() ? new ArrayList<>() : pagoRepository.findByClienteIdAndFechaPago(clienteId, fecha);
+        return new ConsumoDelDia(servicios, pagos);
     }
 
     public Optional<Reserva> getReservaById(Long id) {
@@ -154,6 +462,26 @@ public class ReservaService {
     }
 
     public Reserva updateReserva(Long id, Reserva reservaDetails, List<ReservaServicioDTO> serviciosDTO) {
+        Long empleadoAnterior = reservaRepository.findEmpleadoIdById(id)
+                .orElseThrow(() -> new RuntimeException("Reserva no encontrada"));
+        Long empleadoNuevo = reservaDetails.getEmpleado().getId();
+        // Se bloquean el empleado actual y el nuevo, porque se liberan turnos de uno y se ocupan del otro
+        return conBloqueo(List.of(empleadoAnterior, empleadoNuevo), () -> {
+            // Validar que el empleado esté libre (los turnos actuales de esta reserva no cuentan).
+            // Una reserva que se cancela no ocupa la agenda
+            if (reservaDetails.getStatus() != Reserva.Status.CANCELADA) {
+                verificarDisponibilidad(empleadoNuevo, serviciosDTO, id);
+            }
+            ingresosService.prepararFilas(empleadoNuevo, reservaDetails.getMedioPago(), serviciosDTO);
+            try {
+                return transactionTemplate.execute(status -> modificarReserva(id, reservaDetails, serviciosDTO));
+            } catch (OptimisticLockingFailureException e) {
+                throw new IllegalStateException("La reserva fue modificada por otra operación; vuelva a cargarla e intente de nuevo");
+            }
+        });
+    }
+
+    private Reserva modificarReserva(Long id, Reserva reservaDetails, List<ReservaServicioDTO> serviciosDTO) {
         Reserva reserva = reservaRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Reserva no encontrada"));
 
@@ -161,6 +489,11 @@ public class ReservaService {
         if (reservaDetails.getMedioPago() == null) {
             throw new IllegalArgumentException("El medio de pago es obligatorio");
         }
+        invalidarAgendaAlConfirmar(reserva);
+        // Cambiar solo la fecha de un servicio no toca ninguna columna de la reserva: sin este
+        // incremento la versión quedaría igual y otros nodos no verían el cambio en la huella de la agenda
+        entityManager.lock(reserva, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        Map<IngresosService.Clave, IngresosService.Acumulado> aportesAnteriores = ingresosService.aportes(reserva);
 
         // Actualizar campos
         reserva.setCliente(reservaDetails.getCliente());
@@ -171,56 +504,365 @@ public class ReservaService {
         reserva.setDescuentoAplicado(reservaDetails.getDescuentoAplicado());
         reserva.setHistorial(reservaDetails.getHistorial());
 
-        // Limpiar servicios y pagos existentes
-        reserva.getServicios().clear();
-        reserva.getPagos().clear();
-
-        // Agrupar servicios por fecha para pagos
-        Map<LocalDate, List<ReservaServicioDTO>> serviciosPorDia = serviciosDTO.stream()
-                .collect(Collectors.groupingBy(dto -> dto.getFechaServicio().toLocalDate()));
+        // Resolver los servicios antes de tocar la reserva
+        Map<ReservaServicioDTO, Servicio> servicios = new IdentityHashMap<>();
+        for (ReservaServicioDTO dto : serviciosDTO) {
+            servicios.put(dto, servicioCatalog.findByNombre(dto.getServicioNombre())
+                    .orElseThrow(() -> new IllegalArgumentException("Servicio no encontrado: " + dto.getServicioNombre())));
+        }
 
-        // Crear nuevos pagos
-        for (Map.Entry<LocalDate, List<ReservaServicioDTO>> entry : serviciosPorDia.entrySet()) {
-            LocalDate fechaPago = entry.getKey();
-            List<ReservaServicioDTO> serviciosDelDia = entry.getValue();
+        // Solo se insertan, modifican o borran los servicios que cambiaron
+        PlanCambiosReserva plan = PlanCambiosReserva.planificar(reserva.getServicios(), serviciosDTO);
+
+        // Primero los borrados y un flush, para que los bloques liberados puedan volver a ocuparse
+        // sin chocar con la restricción única: la cola de acciones de Hibernate ejecuta los INSERT
+        // antes que los DELETE dentro de un mismo flush
+        Set<ReservaServicio> eliminados = Collections.newSetFromMap(new IdentityHashMap<>());
+        eliminados.addAll(plan.getEliminados());
+        reserva.getServicios().removeIf(eliminados::contains);
+        for (PlanCambiosReserva.Modificacion modificacion : plan.getModificados()) {
+            if (modificacion.cambiaFecha()) {
+                Set<LocalDateTime> destino = new HashSet<>(agendaIndex.bloquesDe(modificacion.getDestino().getFechaServicio()));
+                modificacion.getActual().getBloques().removeIf(bloque -> !destino.contains(bloque.getInicio()));
+            }
+        }
+        if (plan.hayBorrados()) {
+            reservaRepository.flush();
+        }
 
-            double montoTotal = 0;
-            for (ReservaServicioDTO dto : serviciosDelDia) {
-                Servicio servicio = servicioRepository.findByNombre(dto.getServicioNombre())
-                        .orElseThrow(() -> new IllegalArgumentException("Servicio no encontrado: " + dto.getServicioNombre()));
-                ReservaServicio reservaServicio = new ReservaServicio();
-                reservaServicio.setReserva(reserva);
-                reservaServicio.setServicio(servicio);
+        // Los bloques que se conservan pasan al empleado nuevo con un UPDATE
+        for (ReservaServicio reservaServicio : reserva.getServicios()) {
+            for (BloqueAgenda bloque : reservaServicio.getBloques()) {
+                if (!bloque.getEmpleado().getId().equals(reserva.getEmpleado().getId())) {
+                    bloque.setEmpleado(reserva.getEmpleado());
+                }
+            }
+        }
+        for (PlanCambiosReserva.Modificacion modificacion : plan.getModificados()) {
+            ReservaServicio reservaServicio = modificacion.getActual();
+            ReservaServicioDTO dto = modificacion.getDestino();
+            if (!reservaServicio.getServicio().getId().equals(servicios.get(dto).getId())) {
+                reservaServicio.setServicio(servicios.get(dto));
+            }
+            if (modificacion.cambiaFecha()) {
                 reservaServicio.setFechaServicio(dto.getFechaServicio());
-                reserva.getServicios().add(reservaServicio);
-                montoTotal += servicio.getPrecio();
+                Set<LocalDateTime> conservados = reservaServicio.getBloques().stream()
+                        .map(BloqueAgenda::getInicio)
+                        .collect(Collectors.toSet());
+                for (LocalDateTime inicio : agendaIndex.bloquesDe(dto.getFechaServicio())) {
+                    if (!conservados.contains(inicio)) {
+                        reservaServicio.getBloques().add(nuevoBloque(reservaServicio, inicio));
+                    }
+                }
             }
+        }
+        for (ReservaServicioDTO dto : plan.getNuevos()) {
+            reserva.getServicios().add(nuevoReservaServicio(reserva, servicios.get(dto), dto.getFechaServicio()));
+        }
+
+        // Al cancelar se borran los bloques en esta misma transacción, así el horario queda libre
+        // apenas confirma; si una reserva cancelada se reactiva, vuelve a tomar los suyos
+        if (reserva.getStatus() == Reserva.Status.CANCELADA) {
+            reserva.getServicios().forEach(reservaServicio -> reservaServicio.getBloques().clear());
+        } else {
+            for (ReservaServicio reservaServicio : reserva.getServicios()) {
+                if (reservaServicio.getBloques().isEmpty()) {
+                    for (LocalDateTime inicio : agendaIndex.bloquesDe(reservaServicio.getFechaServicio())) {
+                        reservaServicio.getBloques().add(nuevoBloque(reservaServicio, inicio));
+                    }
+                }
+            }
+        }
+
+        recalcularPagos(reserva, serviciosDTO, servicios);
+
+        Reserva updatedReserva = guardarConBloques(reserva);
+        invalidarAgendaAlConfirmar(updatedReserva);
+        ingresosService.registrarCambio(aportesAnteriores, updatedReserva);
+        return updatedReserva;
+    }
+
+    @Transactional
+    public void deleteReserva(Long id) {
+        reservaRepository.findById(id).ifPresent(reserva -> {
+            invalidarAgendaAlConfirmar(reserva);
+            ingresosService.registrarBaja(reserva);
+            reservaRepository.delete(reserva);
+        });
+    }
+
+    // Validar fechas (mínimo 48 horas de antelación)
+    private void validarAnticipacion(List<ReservaServicioDTO> serviciosDTO) {
+        LocalDateTime now = LocalDateTime.now();
+        for (ReservaServicioDTO dto : serviciosDTO) {
+            long diferenciaHora = ChronoUnit.HOURS.between(now, dto.getFechaServicio());
+            if (diferenciaHora < HORAS_ANTICIPACION_MINIMA) {
+                throw new IllegalArgumentException("Las reservas deben realizarse con al menos 48 horas de antelación.");
+            }
+        }
+    }
+
+    private <T> T conBloqueo(List<Long> empleadoIds, Supplier<T> accion) {
+        // bulkGet devuelve las franjas en un orden fijo, así dos operaciones nunca se bloquean mutuamente
+        List<Lock> bloqueos = new ArrayList<>();
+        for (Lock bloqueo : bloqueosEmpleado.bulkGet(new HashSet<>(empleadoIds))) {
+            if (!bloqueos.contains(bloqueo)) {
+                bloqueos.add(bloqueo);
+            }
+        }
+        List<Lock> tomados = new ArrayList<>();
+        try {
+            for (Lock bloqueo : bloqueos) {
+                if (!bloqueo.tryLock(esperaBloqueoMs, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("La agenda del empleado está ocupada; intente nuevamente");
+                }
+                tomados.add(bloqueo);
+            }
+            return accion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operación interrumpida", e);
+        } finally {
+            for (int i = tomados.size() - 1; i >= 0; i--) {
+                tomados.get(i).unlock();
+            }
+        }
+    }
+
+    private void verificarDisponibilidad(Long empleadoId, List<ReservaServicioDTO> serviciosDTO, Long reservaPropia) {
+        Set<LocalDateTime> solicitados = new HashSet<>();
+        for (ReservaServicioDTO dto : serviciosDTO) {
+            List<LocalDateTime> bloques = agendaIndex.bloquesDe(dto.getFechaServicio());
+            for (LocalDateTime bloque : bloques) {
+                if (!solicitados.add(bloque)) {
+                    throw new IllegalArgumentException("Los servicios de la reserva se superponen en el horario " + dto.getFechaServicio());
+                }
+            }
+            if (!agendaIndex.estanLibres(empleadoId, bloques, reservaPropia)) {
+                throw new IllegalArgumentException("El empleado ya tiene un turno reservado en el horario " + dto.getFechaServicio());
+            }
+        }
+    }
+
+    private ReservaServicio nuevoReservaServicio(Reserva reserva, Servicio servicio, LocalDateTime fechaServicio) {
+        ReservaServicio reservaServicio = new ReservaServicio();
+        reservaServicio.setReserva(reserva);
+        reservaServicio.setServicio(servicio);
+        reservaServicio.setFechaServicio(fechaServicio);
+        for (LocalDateTime inicio : agendaIndex.bloquesDe(fechaServicio)) {
+            reservaServicio.getBloques().add(nuevoBloque(reservaServicio, inicio));
+        }
+        return reservaServicio;
+    }
 
+    private BloqueAgenda nuevoBloque(ReservaServicio reservaServicio, LocalDateTime inicio) {
+        BloqueAgenda bloque = new BloqueAgenda();
+        bloque.setEmpleado(reservaServicio.getReserva().getEmpleado());
+        bloque.setInicio(inicio);
+        bloque.setReservaServicio(reservaServicio);
+        return bloque;
+    }
+
+    /*
+     * Un pago por día con servicios. Los pagos de días que siguen en la reserva se actualizan en
+     * el lugar: si el total, el medio de pago y el descuento no cambiaron, Hibernate no emite
+     * ningún UPDATE. Solo se insertan los días nuevos y se borran los que quedaron sin servicios.
+     */
+    private void recalcularPagos(Reserva reserva, List<ReservaServicioDTO> serviciosDTO, Map<ReservaServicioDTO, Servicio> servicios) {
+        Map<LocalDate, Double> totalesPorDia = new TreeMap<>();
+        for (ReservaServicioDTO dto : serviciosDTO) {
+            totalesPorDia.merge(dto.getFechaServicio().toLocalDate(), servicios.get(dto).getPrecio(), Double::sum);
+        }
+
+        Map<LocalDate, Pago> pagosPorDia = new HashMap<>();
+        for (Iterator<Pago> pagos = reserva.getPagos().iterator(); pagos.hasNext(); ) {
+            Pago pago = pagos.next();
+            if (!totalesPorDia.containsKey(pago.getFechaPago()) || pagosPorDia.putIfAbsent(pago.getFechaPago(), pago) != null) {
+                pagos.remove();
+            }
+        }
+
+        for (Map.Entry<LocalDate, Double> entry : totalesPorDia.entrySet()) {
+            double montoTotal = entry.getValue();
             if (reserva.getMedioPago() == Reserva.MedioPago.TARJETA_DEBITO && reserva.getDescuentoAplicado() != null) {
                 montoTotal *= (1 - reserva.getDescuentoAplicado() / 100.0);
             }
 
-            Pago pago = new Pago();
+            Pago pago = pagosPorDia.get(entry.getKey());
+            if (pago == null) {
+                pago = new Pago();
+                pago.setReserva(reserva);
+                pago.setFechaPago(entry.getKey());
+                reserva.getPagos().add(pago);
+            }
             pago.setCliente(reserva.getCliente());
-            pago.setReserva(reserva);
             pago.setMontoTotal(montoTotal);
             pago.setMedioPago(reserva.getMedioPago());
-            pago.setFechaPago(fechaPago);
             pago.setDescuentoAplicado(reserva.getDescuentoAplicado());
-            reserva.getPagos().add(pago);
         }
+    }
 
-        return reservaRepository.save(reserva);
+    // La restricción única de bloques_agenda resuelve las carreras que el índice no ve (otro nodo, misma ventana).
+    // Cualquier otra violación de integridad (claves foráneas, otras únicas) se propaga tal cual
+    private Reserva guardarConBloques(Reserva reserva) {
+        try {
+            return reservaRepository.saveAndFlush(reserva);
+        } catch (DataIntegrityViolationException e) {
+            if (!esBloqueOcupado(e)) {
+                throw e;
+            }
+            reserva.getServicios().forEach(rs -> agendaIndex.invalidar(reserva.getEmpleado().getId(), rs.getFechaServicio().toLocalDate()));
+            throw new IllegalArgumentException("El empleado ya tiene un turno reservado en ese horario");
+        }
     }
 
-    public void deleteReserva(Long id) {
-        reservaRepository.deleteById(id);
+    // MySQL informa la clave como tabla.restricción y H2 en mayúsculas: se busca el nombre dentro del informado
+    private static boolean esBloqueOcupado(DataIntegrityViolationException e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacion && violacion.getConstraintName() != null) {
+                return violacion.getConstraintName().toLowerCase(Locale.ROOT).contains(BloqueAgenda.UK_EMPLEADO_INICIO);
+            }
+        }
+        return false;
+    }
+
+    private void registrarBloquesAlConfirmar(Reserva reserva) {
+        Long empleadoId = reserva.getEmpleado().getId();
+        Long reservaId = reserva.getId();
+        List<LocalDateTime> bloques = reserva.getServicios().stream()
+                .flatMap(rs -> rs.getBloques().stream())
+                .map(BloqueAgenda::getInicio)
+                .collect(Collectors.toList());
+        LocalDate diaReserva = reserva.getFechaReserva() != null ? reserva.getFechaReserva().toLocalDate() : null;
+        alConfirmar(() -> {
+            agendaIndex.registrar(empleadoId, bloques, reservaId);
+            invalidarAgendaDiaria(empleadoId, diaReserva);
+        });
+    }
+
+    // Los días tocados por la reserva se vuelven a leer de la base de datos en la próxima consulta
+    private void invalidarAgendaAlConfirmar(Reserva reserva) {
+        Long empleadoId = reserva.getEmpleado().getId();
+        Set<LocalDate> dias = reserva.getServicios().stream()
+                .flatMap(rs -> agendaIndex.bloquesDe(rs.getFechaServicio()).stream())
+                .map(LocalDateTime::toLocalDate)
+                .collect(Collectors.toSet());
+        LocalDate diaReserva = reserva.getFechaReserva() != null ? reserva.getFechaReserva().toLocalDate() : null;
+        alConfirmar(() -> {
+            dias.forEach(dia -> agendaIndex.invalidar(empleadoId, dia));
+            invalidarAgendaDiaria(empleadoId, diaReserva);
+        });
+    }
+
+    // La agenda del profesional lista las reservas por su fechaReserva, no por la de cada servicio
+    private void invalidarAgendaDiaria(Long empleadoId, LocalDate diaReserva) {
+        if (diaReserva != null) {
+            agendaDiariaCache.invalidar(empleadoId, diaReserva);
+        }
     }
 
+    private void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    @Transactional(readOnly = true)
     public List<Reserva> getReservasByEmpleadoAndDate(Long empleadoId, LocalDateTime date) {
         LocalDateTime startOfDay = date.withHour(0).withMinute(0).withSecond(0).withNano(0);
         LocalDateTime endOfDay = date.withHour(23).withMinute(59).withSecond(59).withNano(999999999);
-        return reservaRepository.findByEmpleadoIdAndFechaReservaBetween(empleadoId, startOfDay, endOfDay);
+        return cargarPagos(reservaRepository.findByEmpleadoIdAndFechaReservaBetween(empleadoId, startOfDay, endOfDay));
+    }
+
+    public static class ConsumoDelDia {
+        private final List<ReservaServicio> servicios;
+        private final List<Pago> pagos;
+
+        public ConsumoDelDia(List<ReservaServicio> servicios, List<Pago> pagos) {
+            this.servicios = servicios;
+            this.pagos = pagos;
+        }
+
+        public List<ReservaServicio> getServicios() { return servicios; }
+        public List<Pago> getPagos() { return pagos; }
+    }
+
+    public static class PaginaReservas<T> {
+        private final List<T> reservas;
+        private final String siguienteCursor;
+
+        public PaginaReservas(List<T> reservas, String siguienteCursor) {
+            this.reservas = reservas;
+            this.siguienteCursor = siguienteCursor;
+        }
+
+        public List<T> getReservas() { return reservas; }
+        public String getSiguienteCursor() { return siguienteCursor; }
+    }
+
+    // Cursor opaco: "fechaReserva|id" en Base64 URL-safe
+    private static class CursorReserva {
+        private final LocalDateTime fechaReserva;
+        private final Long id;
+
+        CursorReserva(LocalDateTime fechaReserva, Long id) {
+            this.fechaReserva = fechaReserva;
+            this.id = id;
+        }
+
+        String encode() {
+            String valor = fechaReserva + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static CursorReserva decode(String cursor) {
+            try {
+                String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separador = valor.lastIndexOf('|');
+                return new CursorReserva(LocalDateTime.parse(valor.substring(0, separador)),
+                        Long.parseLong(valor.substring(separador + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+        }
+    }
+
+    public static class SolicitudReserva {
+        private final Reserva reserva;
+        private final List<ReservaServicioDTO> servicios;
+
+        public SolicitudReserva(Reserva reserva, List<ReservaServicioDTO> servicios) {
+            this.reserva = reserva;
+            this.servicios = servicios;
+        }
+
+        public Reserva getReserva() { return reserva; }
+        public List<ReservaServicioDTO> getServicios() { return servicios; }
+    }
+
+    // Resultado de cada solicitud de un alta por lote: la reserva creada o el motivo del rechazo
+    public static class ResultadoAlta {
+        private final Reserva reserva;
+        private final String error;
+
+        private ResultadoAlta(Reserva reserva, String error) {
+            this.reserva = reserva;
+            this.error = error;
+        }
+
+        static ResultadoAlta creada(Reserva reserva) { return new ResultadoAlta(reserva, null); }
+        static ResultadoAlta rechazada(String error) { return new ResultadoAlta(null, error); }
+
+        public boolean isCreada() { return reserva != null; }
+        public Reserva getReserva() { return reserva; }
+        public String getError() { return error; }
     }
 
     public static class ReservaServicioDTO {
@@ -0,0 +1,126 @@
+package com.backendspa.service;
+
+import com.sendgrid.Client;
+import com.sendgrid.Method;
+import com.sendgrid.Request;
+import com.sendgrid.Response;
+import com.sendgrid.SendGrid;
+import com.sendgrid.helpers.mail.Mail;
+import com.sendgrid.helpers.mail.objects.Attachments;
+import com.sendgrid.helpers.mail.objects.Content;
+import com.sendgrid.helpers.mail.objects.Email;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.http.impl.client.HttpClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Base64;
+
+@Component
+@ConditionalOnProperty(name = "email.transport", havingValue = "sendgrid", matchIfMissing = true)
+public class SendGridEmailTransport implements EmailTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(SendGridEmailTransport.class);
+
+    private final MeterRegistry registry;
+
+    @Value("${sendgrid.api-key}")
+    private String sendGridApiKey;
+
+    @Value("${sendgrid.from-email}")
+    private String fromEmail;
+
+    // Una conexión por hilo del worker del outbox
+    @Value("${email.outbox.hilos:2}")
+    private int maxConexiones;
+
+    // Un único cliente HTTP reutilizado por todos los envíos
+    private Client client;
+    private SendGrid sendGrid;
+
+    public SendGridEmailTransport(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    void init() {
+        client = new Client(HttpClients.custom()
+                .setMaxConnTotal(maxConexiones)
+                .setMaxConnPerRoute(maxConexiones)
+                .build());
+        sendGrid = new SendGrid(sendGridApiKey, client);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        client.close();
+    }
+
+    @Override
+    public void send(String toEmail, String subject, String body, byte[] attachment, String attachmentName) throws IOException {
+        if (sendGridApiKey == null || sendGridApiKey.trim().isEmpty()) {
+            throw new IllegalStateException("La clave API de SendGrid no está configurada.");
+        }
+        if (fromEmail == null || fromEmail.trim().isEmpty()) {
+            throw new IllegalStateException("El email de origen de SendGrid no está configurado.");
+        }
+
+        Email from = new Email(fromEmail);
+        Email to = new Email(toEmail);
+        Content content = new Content("text/plain", body);
+        Mail mail = new Mail(from, subject, to, content);
+
+        // Añadir el adjunto (PDF); la API de SendGrid lo recibe en base64
+        if (attachment != null) {
+            Attachments attachments = new Attachments();
+            attachments.setContent(Base64.getEncoder().encodeToString(attachment));
+            attachments.setType("application/pdf");
+            attachments.setFilename(attachmentName);
+            attachments.setDisposition("attachment");
+            mail.addAttachments(attachments);
+        }
+
+        Request request = new Request();
+        request.setMethod(Method.POST);
+        request.setEndpoint("mail/send");
+        request.setBody(mail.build());
+        // Latencia de cada llamada (spa.sendgrid.envios, por resultado) y fallos por motivo
+        Timer.Sample muestra = Timer.start(registry);
+        Response response;
+        try {
+            response = sendGrid.api(request);
+        } catch (IOException e) {
+            registrarEnvio(muestra, "error", "io");
+            throw e;
+        }
+        if (response.getStatusCode() >= 400) {
+            registrarEnvio(muestra, "error", "http_" + response.getStatusCode());
+            logger.error("Error al enviar correo a {}: Código {}, Cuerpo: {}", toEmail, response.getStatusCode(), response.getBody());
+            throw new IOException("Error enviando correo: " + response.getBody());
+        }
+        registrarEnvio(muestra, "ok", null);
+        logger.info("Correo enviado exitosamente a {} con estado {}", toEmail, response.getStatusCode());
+    }
+
+    private void registrarEnvio(Timer.Sample muestra, String resultado, String motivo) {
+        muestra.stop(Timer.builder("spa.sendgrid.envios")
+                .description("Llamadas a la API de SendGrid")
+                .tag("resultado", resultado)
+                .register(registry));
+        if (motivo != null) {
+            Counter.builder("spa.sendgrid.fallos")
+                    .description("Envíos rechazados por SendGrid o fallidos por red")
+                    .tag("motivo", motivo)
+                    .register(registry)
+                    .increment();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.backendspa.service;
+
+import com.backendspa.entity.Servicio;
+import com.backendspa.repository.ServicioRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Catálogo de servicios en memoria. Se mantiene una instantánea inmutable indexada por
+ * nombre y por id que se reemplaza completa en cada refresh (escrituras del admin o
+ * vencimiento del TTL), así que las lecturas no toman locks ni consultan la base de datos.
+ */
+@Service
+public class ServicioCatalog {
+
+    private final ServicioRepository servicioRepository;
+
+    // Vencimiento de la instantánea, para tomar cambios hechos desde otra instancia
+    @Value("${servicios.catalogo.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    private volatile Instantanea instantanea;
+
+    public ServicioCatalog(ServicioRepository servicioRepository) {
+        this.servicioRepository = servicioRepository;
+    }
+
+    public Optional<Servicio> findByNombre(String nombre) {
+        return Optional.ofNullable(actual().porNombre.get(nombre));
+    }
+
+    public Optional<Servicio> findById(Long id) {
+        return Optional.ofNullable(actual().porId.get(id));
+    }
+
+    public List<Servicio> findAll() {
+        return actual().servicios;
+    }
+
+    public long getVersion() {
+        return actual().version;
+    }
+
+    /**
+     * Vuelve a leer la tabla de servicios y publica una nueva instantánea.
+     */
+    public synchronized void refresh() {
+        long version = instantanea != null ? instantanea.version + 1 : 1;
+        List<Servicio> servicios = new ArrayList<>();
+        Map<String, Servicio> porNombre = new HashMap<>();
+        Map<Long, Servicio> porId = new HashMap<>();
+        for (Servicio servicio : servicioRepository.findAll()) {
+            Servicio copia = copiar(servicio);
+            servicios.add(copia);
+            porNombre.put(copia.getNombre(), copia);
+            porId.put(copia.getId(), copia);
+        }
+        instantanea = new Instantanea(version, servicios, porNombre, porId);
+    }
+
+    private Instantanea actual() {
+        Instantanea actual = instantanea;
+        if (actual == null || actual.vencida(ttlMinutes)) {
+            synchronized (this) {
+                if (instantanea == actual) {
+                    refresh();
+                }
+                actual = instantanea;
+            }
+        }
+        return actual;
+    }
+
+    // Copia desvinculada del contexto de persistencia, para que nadie modifique el catálogo compartido
+    private Servicio copiar(Servicio servicio) {
+        Servicio copia = new Servicio();
+        copia.setId(servicio.getId());
+        copia.setNombre(servicio.getNombre());
+        copia.setDescripcion(servicio.getDescripcion());
+        copia.setPrecio(servicio.getPrecio());
+        return copia;
+    }
+
+    private static final class Instantanea {
+        private final long version;
+        private final long cargadaEn;
+        private final List<Servicio> servicios;
+        private final Map<String, Servicio> porNombre;
+        private final Map<Long, Servicio> porId;
+
+        private Instantanea(long version, List<Servicio> servicios, Map<String, Servicio> porNombre, Map<Long, Servicio> porId) {
+            this.version = version;
+            this.cargadaEn = System.currentTimeMillis();
+            this.servicios = Collections.unmodifiableList(servicios);
+            this.porNombre = Collections.unmodifiableMap(porNombre);
+            this.porId = Collections.unmodifiableMap(porId);
+        }
+
+        private boolean vencida(long ttlMinutes) {
+            return System.currentTimeMillis() - cargadaEn > ttlMinutes * 60_000L;
+        }
+    }
+}
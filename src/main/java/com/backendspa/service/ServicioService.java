@@ -0,0 +1,52 @@
+package com.backendspa.service;
+
+import com.backendspa.entity.Servicio;
+import com.backendspa.repository.ServicioRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class ServicioService {
+
+    private final ServicioRepository servicioRepository;
+    private final ServicioCatalog servicioCatalog;
+
+    public ServicioService(ServicioRepository servicioRepository, ServicioCatalog servicioCatalog) {
+        this.servicioRepository = servicioRepository;
+        this.servicioCatalog = servicioCatalog;
+    }
+
+    public List<Servicio> getAllServicios() {
+        return servicioCatalog.findAll();
+    }
+
+    public Optional<Servicio> getServicioById(Long id) {
+        return servicioCatalog.findById(id);
+    }
+
+    public Servicio createServicio(Servicio servicio) {
+        Servicio nuevoServicio = servicioRepository.save(servicio);
+        servicioCatalog.refresh();
+        return nuevoServicio;
+    }
+
+    public Servicio updateServicio(Long id, Servicio servicioDetails) {
+        Servicio servicio = servicioRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Servicio no encontrado"));
+        servicio.setNombre(servicioDetails.getNombre());
+        servicio.setDescripcion(servicioDetails.getDescripcion());
+        servicio.setPrecio(servicioDetails.getPrecio());
+        Servicio updatedServicio = servicioRepository.save(servicio);
+        servicioCatalog.refresh();
+        return updatedServicio;
+    }
+
+    public void deleteServicio(Long id) {
+        Servicio servicio = servicioRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Servicio no encontrado"));
+        servicioRepository.delete(servicio);
+        servicioCatalog.refresh();
+    }
+}
@@ -0,0 +1,3 @@
+-- Indice para la paginacion por cursor de reservas sobre (fecha_reserva, id).
+-- La aplicacion corre con ddl-auto=validate: ejecutar antes de desplegar.
+CREATE INDEX idx_reservas_fecha_id ON reservas (fecha_reserva, id);
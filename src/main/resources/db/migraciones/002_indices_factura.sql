@@ -0,0 +1,3 @@
+-- Indices para armar una factura leyendo solo las filas del dia del cliente.
+CREATE INDEX idx_reserva_servicios_fecha ON reserva_servicios (fecha_servicio, reserva_id);
+CREATE INDEX idx_pagos_cliente_fecha ON pagos (cliente_id, fecha_pago);
@@ -0,0 +1,17 @@
+-- Tabla outbox de correos: /send-invoice solo inserta la fila y EmailOutboxWorker la envia.
+CREATE TABLE email_outbox (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    destinatario VARCHAR(255) NOT NULL,
+    asunto VARCHAR(255) NOT NULL,
+    cuerpo TEXT,
+    adjunto_nombre VARCHAR(255),
+    adjunto_base64 LONGTEXT,
+    estado VARCHAR(20) NOT NULL,
+    intentos INT NOT NULL,
+    proximo_intento DATETIME(6) NOT NULL,
+    ultimo_error VARCHAR(1000),
+    creado_en DATETIME(6) NOT NULL,
+    enviado_en DATETIME(6),
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_email_outbox_estado_proximo ON email_outbox (estado, proximo_intento);
@@ -0,0 +1,55 @@
+-- Bloques de 15 minutos ocupados por cada turno. La clave unica (empleado_id, inicio) impide
+-- reservas superpuestas del mismo empleado aunque lleguen a nodos distintos.
+CREATE TABLE bloques_agenda (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    empleado_id BIGINT NOT NULL,
+    inicio DATETIME(6) NOT NULL,
+    reserva_servicio_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_bloques_agenda_empleado_inicio UNIQUE (empleado_id, inicio),
+    CONSTRAINT fk_bloques_agenda_empleado FOREIGN KEY (empleado_id) REFERENCES empleados (id),
+    CONSTRAINT fk_bloques_agenda_reserva_servicio FOREIGN KEY (reserva_servicio_id) REFERENCES reserva_servicios (id)
+);
+
+-- Bloques de los turnos futuros ya existentes. Cada turno ocupa desde su inicio (truncado al
+-- bloque de 15 minutos) hasta fecha_servicio + duracion, como AgendaIndex.bloquesDe.
+-- @duracion_turno debe coincidir con reservas.turno.duracion-minutos de la aplicacion.
+SET @duracion_turno = 60;
+
+-- Verificacion previa: turnos activos del mismo empleado que ya se superponen. Si devuelve filas,
+-- hay que mover o cancelar esas reservas antes de seguir; el INSERT de abajo falla con la clave
+-- unica en lugar de descartar bloques en silencio.
+WITH turnos AS (
+    SELECT r.empleado_id, rs.id AS reserva_servicio_id, rs.fecha_servicio,
+           DATE_SUB(DATE_FORMAT(rs.fecha_servicio, '%Y-%m-%d %H:%i:00'),
+                    INTERVAL MINUTE(rs.fecha_servicio) % 15 MINUTE) AS primer_bloque,
+           DATE_ADD(rs.fecha_servicio, INTERVAL @duracion_turno MINUTE) AS fin
+    FROM reserva_servicios rs
+    JOIN reservas r ON r.id = rs.reserva_id
+    WHERE rs.fecha_servicio >= NOW() AND r.status <> 'CANCELADA'
+)
+SELECT t1.empleado_id, t1.reserva_servicio_id, t1.fecha_servicio,
+       t2.reserva_servicio_id AS superpuesto_con, t2.fecha_servicio AS superpuesto_fecha
+FROM turnos t1
+JOIN turnos t2 ON t2.empleado_id = t1.empleado_id AND t2.reserva_servicio_id > t1.reserva_servicio_id
+WHERE t1.primer_bloque < t2.fin AND t2.primer_bloque < t1.fin
+ORDER BY t1.empleado_id, t1.fecha_servicio;
+
+INSERT INTO bloques_agenda (empleado_id, inicio, reserva_servicio_id)
+WITH RECURSIVE desplazamientos (minutos) AS (
+    SELECT 0
+    UNION ALL
+    SELECT minutos + 15 FROM desplazamientos WHERE minutos + 15 < @duracion_turno + 15
+),
+turnos AS (
+    SELECT r.empleado_id, rs.id AS reserva_servicio_id, rs.fecha_servicio,
+           DATE_SUB(DATE_FORMAT(rs.fecha_servicio, '%Y-%m-%d %H:%i:00'),
+                    INTERVAL MINUTE(rs.fecha_servicio) % 15 MINUTE) AS primer_bloque
+    FROM reserva_servicios rs
+    JOIN reservas r ON r.id = rs.reserva_id
+    WHERE rs.fecha_servicio >= NOW() AND r.status <> 'CANCELADA'
+)
+SELECT t.empleado_id, DATE_ADD(t.primer_bloque, INTERVAL d.minutos MINUTE), t.reserva_servicio_id
+FROM turnos t
+JOIN desplazamientos d
+  ON DATE_ADD(t.primer_bloque, INTERVAL d.minutos MINUTE) < DATE_ADD(t.fecha_servicio, INTERVAL @duracion_turno MINUTE);
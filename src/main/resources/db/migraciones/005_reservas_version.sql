@@ -0,0 +1,2 @@
+-- Columna de bloqueo optimista (@Version) de Reserva; las filas existentes empiezan en 0.
+ALTER TABLE reservas ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,18 @@
+-- Contadores de ids por bloques (TablaIdsGenerator, optimizador pooled-lo) para reservas,
+-- reserva_servicios, bloques_agenda y pagos. proximo_id es el primer id libre de cada tabla.
+-- Ejecutar con la aplicación detenida: a partir de esta versión los ids los asigna Hibernate y
+-- un nodo anterior que siguiera insertando con AUTO_INCREMENT podría tomar ids ya reservados.
+CREATE TABLE id_generadores (
+    entidad VARCHAR(255) NOT NULL,
+    proximo_id BIGINT,
+    PRIMARY KEY (entidad)
+);
+
+INSERT INTO id_generadores (entidad, proximo_id) SELECT 'reservas', COALESCE(MAX(id), 0) + 1 FROM reservas;
+INSERT INTO id_generadores (entidad, proximo_id) SELECT 'reserva_servicios', COALESCE(MAX(id), 0) + 1 FROM reserva_servicios;
+INSERT INTO id_generadores (entidad, proximo_id) SELECT 'bloques_agenda', COALESCE(MAX(id), 0) + 1 FROM bloques_agenda;
+INSERT INTO id_generadores (entidad, proximo_id) SELECT 'pagos', COALESCE(MAX(id), 0) + 1 FROM pagos;
+
+-- Las columnas id conservan AUTO_INCREMENT, pero ya no debe usarse: un INSERT manual sin id
+-- podría tomar un id que Hibernate reservó en su bloque y todavía no usó. Los scripts que
+-- inserten en estas tablas tienen que reservar el id actualizando antes id_generadores.
@@ -0,0 +1,18 @@
+-- Ingresos pre-agregados por día y por mes (medio de pago, servicio y empleado).
+CREATE TABLE ingresos_resumen (
+    id BIGINT NOT NULL,
+    granularidad VARCHAR(10) NOT NULL,
+    dimension VARCHAR(20) NOT NULL,
+    periodo DATE NOT NULL,
+    clave VARCHAR(64) NOT NULL,
+    monto DOUBLE NOT NULL,
+    cantidad BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_ingresos_resumen_clave UNIQUE (granularidad, dimension, periodo, clave)
+);
+
+-- Contador de ids por bloques (ver 006_id_generadores.sql)
+INSERT INTO id_generadores (entidad, proximo_id) VALUES ('ingresos_resumen', 1);
+
+-- La tabla empieza vacía: después de desplegar, cargar el historial con
+-- POST /api/admin/ingresos/reconstruccion (recorre todas las reservas en segundo plano).
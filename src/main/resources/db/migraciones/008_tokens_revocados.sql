@@ -0,0 +1,10 @@
+-- Tokens revocados antes de vencer (logout y refresh tokens ya rotados), por jti. Al arrancar se
+-- cargan en memoria; las filas vencidas se purgan solas.
+CREATE TABLE tokens_revocados (
+    jti VARCHAR(36) NOT NULL,
+    expira_en DATETIME(6) NOT NULL,
+    revocado_en DATETIME(6) NOT NULL,
+    PRIMARY KEY (jti)
+);
+
+CREATE INDEX idx_tokens_revocados_expira ON tokens_revocados (expira_en);
@@ -0,0 +1,5 @@
+-- El adjunto del outbox se guarda como bytes en lugar de base64 en LONGTEXT (un tercio menos por
+-- fila y sin la copia en String). Las filas pendientes se convierten antes de borrar la columna.
+ALTER TABLE email_outbox ADD COLUMN adjunto LONGBLOB;
+UPDATE email_outbox SET adjunto = FROM_BASE64(adjunto_base64) WHERE adjunto_base64 IS NOT NULL;
+ALTER TABLE email_outbox DROP COLUMN adjunto_base64;
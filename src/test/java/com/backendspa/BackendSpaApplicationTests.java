@@ -1,21 +1,72 @@
 package com.backendspa;
 
+import com.backendspa.dto.IngresoReporte;
 import com.backendspa.entity.*;
+import com.backendspa.metricas.MetricasSolicitudFilter;
 import com.backendspa.repository.*;
+import com.backendspa.security.JwtClaims;
+import com.backendspa.security.JwtUtil;
+import com.backendspa.security.PoliticaContrasenas;
+import com.backendspa.security.RateLimitFilter;
+import com.backendspa.security.RevocacionTokens;
+import com.backendspa.security.SpaUserDetails;
+import com.backendspa.security.SpaUserDetailsService;
+import com.backendspa.service.AgendaDiariaCache;
+import com.backendspa.service.ClienteService;
+import com.backendspa.service.EmpleadoService;
+import com.backendspa.service.ImportacionReservasService;
+import com.backendspa.service.IngresosService;
 import com.backendspa.service.ReservaService;
+import com.backendspa.service.ServicioCatalog;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.util.concurrent.Striped;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.HandlerMapping;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -42,6 +93,60 @@ class BackendSpaApplicationTests {
 	@Autowired
 	private PagoRepository pagoRepository;
 
+	@Autowired
+	private BloqueAgendaRepository bloqueAgendaRepository;
+
+	@Autowired
+	private ServicioCatalog servicioCatalog;
+
+	@Autowired
+	private ImportacionReservasService importacionReservasService;
+
+	@Autowired
+	private IngresosService ingresosService;
+
+	@Autowired
+	private IngresoResumenRepository ingresoResumenRepository;
+
+	@Autowired
+	private AgendaDiariaCache agendaDiariaCache;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private PoliticaContrasenas politicaContrasenas;
+
+	@Autowired
+	private RateLimitFilter rateLimitFilter;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private RevocacionTokens revocacionTokens;
+
+	@Autowired
+	private MetricasSolicitudFilter metricasSolicitudFilter;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ClienteService clienteService;
+
+	@Autowired
+	private SpaUserDetailsService spaUserDetailsService;
+
+	@Autowired
+	private EmpleadoService empleadoService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
 	private Cliente cliente;
 	private Empleado empleado;
 	private Servicio servicio1;
@@ -50,13 +155,15 @@ class BackendSpaApplicationTests {
 	@BeforeEach
 	@Transactional
 	void setUp() {
-		// Limpiar la base de datos
+		// Limpiar la base de datos (las reservas primero: el cascade borra servicios, bloques y pagos)
+		reservaRepository.deleteAll();
 		reservaServicioRepository.deleteAll();
 		pagoRepository.deleteAll();
-		reservaRepository.deleteAll();
 		clienteRepository.deleteAll();
 		empleadoRepository.deleteAll();
 		servicioRepository.deleteAll();
+		// Ejecutar ya los borrados pendientes, antes de volver a insertar los mismos dni/email
+		reservaRepository.flush();
 
 		// Crear un cliente
 		cliente = new Cliente();
@@ -77,18 +184,24 @@ class BackendSpaApplicationTests {
 		empleado.setRol(Empleado.Rol.MASAJISTA_TERAPEUTICO);
 		empleado.setPassword("encoded_password");
 		empleado.setTelefono("0987654321");
-		empleado = empleadoRepository.save(empleado);
+		// Por el servicio: invalida el índice de roles, que puede haber quedado con el empleado de otro test
+		empleado = empleadoService.createEmpleado(empleado);
 
 		// Crear servicios
 		servicio1 = new Servicio();
 		servicio1.setNombre("ANTI_STRESS");
+		servicio1.setDescripcion("Masaje anti stress");
 		servicio1.setPrecio(100.0);
 		servicio1 = servicioRepository.save(servicio1);
 
 		servicio2 = new Servicio();
 		servicio2.setNombre("DESCONTRACTURANTE");
+		servicio2.setDescripcion("Masaje descontracturante");
 		servicio2.setPrecio(120.0);
 		servicio2 = servicioRepository.save(servicio2);
+
+		// Los servicios se guardaron directo en el repositorio: publicar el catálogo actualizado
+		servicioCatalog.refresh();
 	}
 
 	@Test
@@ -109,12 +222,13 @@ class BackendSpaApplicationTests {
 		List<ReservaService.ReservaServicioDTO> serviciosDTO = new ArrayList<>();
 		ReservaService.ReservaServicioDTO dto1 = new ReservaService.ReservaServicioDTO();
 		dto1.setServicioNombre("ANTI_STRESS");
-		dto1.setFechaServicio(LocalDateTime.now().plusDays(3));
+		dto1.setFechaServicio(LocalDate.now().plusDays(3).atTime(10, 0));
 		serviciosDTO.add(dto1);
 
+		// Mismo día, turno siguiente: el empleado no puede atender dos servicios a la vez
 		ReservaService.ReservaServicioDTO dto2 = new ReservaService.ReservaServicioDTO();
 		dto2.setServicioNombre("DESCONTRACTURANTE");
-		dto2.setFechaServicio(LocalDateTime.now().plusDays(3));
+		dto2.setFechaServicio(LocalDate.now().plusDays(3).atTime(11, 0));
 		serviciosDTO.add(dto2);
 
 		Reserva savedReserva = reservaService.createReserva(reserva, serviciosDTO);
@@ -181,4 +295,525 @@ class BackendSpaApplicationTests {
 			reservaService.createReserva(reserva, serviciosDTO);
 		}, "Las reservas deben realizarse con al menos 48 horas de antelación.");
 	}
-}
\ No newline at end of file
+
+	// Sin @Transactional: cada reserva se confirma por separado, como en producción
+	@Test
+	void testReservaSuperpuestaMismoEmpleado() {
+		LocalDateTime turno = LocalDate.now().plusDays(5).atTime(15, 0);
+		reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("ANTI_STRESS", turno)));
+
+		// Otro turno que empieza dentro del primero
+		assertThrows(IllegalArgumentException.class, () ->
+				reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("DESCONTRACTURANTE", turno.plusMinutes(30)))));
+
+		// Uno que empieza cuando termina el primero sí entra
+		Reserva siguiente = reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("DESCONTRACTURANTE", turno.plusHours(1))));
+		assertEquals(1, siguiente.getServicios().size());
+	}
+
+	// Sin @Transactional: los bloques se borran al confirmar la cancelación y el índice se invalida después
+	@Test
+	void testCancelarReservaLiberaElHorario() {
+		LocalDateTime turno = LocalDate.now().plusDays(10).atTime(14, 0);
+		LocalDate dia = turno.toLocalDate();
+		Reserva creada = reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("ANTI_STRESS", turno)));
+
+		Reserva cancelacion = nuevaReserva();
+		cancelacion.setStatus(Reserva.Status.CANCELADA);
+		reservaService.updateReserva(creada.getId(), cancelacion, List.of(servicioDTO("ANTI_STRESS", turno)));
+		assertTrue(bloqueAgendaRepository.findOcupados(empleado.getId(), dia.atStartOfDay(), dia.plusDays(1).atStartOfDay()).isEmpty());
+
+		// El mismo horario se vuelve a reservar
+		Reserva nueva = reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("DESCONTRACTURANTE", turno)));
+		assertEquals(4, bloqueAgendaRepository.findOcupados(empleado.getId(), dia.atStartOfDay(), dia.plusDays(1).atStartOfDay()).stream()
+				.filter(bloque -> bloque.getReservaId().equals(nueva.getId()))
+				.count());
+
+		// Reactivar la cancelada ya no entra: el horario es de la nueva
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+				reservaService.updateReserva(creada.getId(), nuevaReserva(), List.of(servicioDTO("ANTI_STRESS", turno))));
+		assertEquals("El empleado ya tiene un turno reservado en el horario " + turno, e.getMessage());
+	}
+
+	// Bloques liberados por otro nodo: el día cargado en el índice todavía los ve ocupados
+	@Test
+	void testConflictoDelIndiceSeVerificaContraLaBaseDeDatos() {
+		LocalDateTime turno = LocalDate.now().plusDays(11).atTime(15, 0);
+		reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("ANTI_STRESS", turno)));
+		bloqueAgendaRepository.deleteAllInBatch();
+
+		Reserva nueva = reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("DESCONTRACTURANTE", turno)));
+		assertEquals(1, nueva.getServicios().size());
+	}
+
+	// Bloque tomado por otro nodo que el índice todavía no vio: decide la restricción única
+	@Test
+	void testBloqueTomadoPorOtroNodoSeRechazaConLaRestriccionUnica() {
+		LocalDateTime turno = LocalDate.now().plusDays(12).atTime(9, 0);
+		Reserva creada = reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("ANTI_STRESS", turno)));
+		BloqueAgenda ajeno = new BloqueAgenda();
+		ajeno.setEmpleado(empleado);
+		ajeno.setInicio(turno.plusHours(7));
+		ajeno.setReservaServicio(reservaServicioRepository.findAll().stream()
+				.filter(rs -> rs.getReserva().getId().equals(creada.getId()))
+				.findFirst().get());
+		bloqueAgendaRepository.save(ajeno);
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+				reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("DESCONTRACTURANTE", turno.plusHours(7)))));
+		assertEquals("El empleado ya tiene un turno reservado en ese horario", e.getMessage());
+	}
+
+	@Test
+	@Transactional
+	void testActualizarReservaConservaFilasSinCambios() {
+		LocalDateTime turno = LocalDate.now().plusDays(6).atTime(10, 0);
+		Reserva creada = reservaService.createReserva(nuevaReserva(), List.of(
+				servicioDTO("ANTI_STRESS", turno),
+				servicioDTO("DESCONTRACTURANTE", turno.plusDays(1))));
+		List<Long> servicios = creada.getServicios().stream().map(ReservaServicio::getId).toList();
+		List<Long> pagos = creada.getPagos().stream().map(Pago::getId).sorted().toList();
+
+		// Mismo primer servicio; el segundo se corre una hora y se pasa a débito con descuento
+		Reserva cambios = nuevaReserva();
+		cambios.setMedioPago(Reserva.MedioPago.TARJETA_DEBITO);
+		cambios.setDescuentoAplicado(15);
+		Reserva actualizada = reservaService.updateReserva(creada.getId(), cambios, List.of(
+				servicioDTO("ANTI_STRESS", turno),
+				servicioDTO("DESCONTRACTURANTE", turno.plusDays(1).plusHours(1))));
+
+		assertEquals(servicios, actualizada.getServicios().stream().map(ReservaServicio::getId).toList());
+		assertEquals(pagos, actualizada.getPagos().stream().map(Pago::getId).sorted().toList());
+		assertEquals(100.0 * 0.85, actualizada.getPagos().stream()
+				.filter(p -> p.getFechaPago().equals(turno.toLocalDate()))
+				.findFirst().get().getMontoTotal(), 0.01);
+		ReservaServicio movido = actualizada.getServicios().stream()
+				.filter(rs -> rs.getServicio().getNombre().equals("DESCONTRACTURANTE"))
+				.findFirst().get();
+		assertEquals(turno.plusDays(1).plusHours(1), movido.getFechaServicio());
+		assertEquals(4, movido.getBloques().size());
+	}
+
+	@Test
+	@Transactional
+	void testImportarReservasInformaCadaFila() throws Exception {
+		String turno = LocalDate.now().plusDays(7).atTime(10, 0).toString();
+		String csv = String.join("\n",
+				"clienteId,empleadoId,medioPago,servicios",
+				cliente.getId() + "," + empleado.getId() + ",EFECTIVO,ANTI_STRESS@" + turno,
+				cliente.getId() + "," + empleado.getId() + ",EFECTIVO,INEXISTENTE@" + turno,
+				// Mismo empleado y horario que la primera fila
+				cliente.getId() + "," + empleado.getId() + ",EFECTIVO,DESCONTRACTURANTE@" + turno);
+
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		importacionReservasService.importar(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+				ImportacionReservasService.Formato.CSV, salida);
+
+		String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(4, lineas.length);
+		assertTrue(lineas[0].contains("\"fila\":2") && lineas[0].contains("CREADA"));
+		assertTrue(lineas[1].contains("\"fila\":3") && lineas[1].contains("Servicio no encontrado"));
+		assertTrue(lineas[2].contains("\"fila\":4") && lineas[2].contains("RECHAZADA"));
+		assertTrue(lineas[3].contains("\"creadas\":1") && lineas[3].contains("\"rechazadas\":2"));
+		assertEquals(1, reservaRepository.count());
+	}
+
+	// Sin @Transactional: el bloqueo del empleado lo toma otro hilo, como otra solicitud en curso
+	@Test
+	@SuppressWarnings("unchecked")
+	void testImportarReservasRechazaFilasNulasYLotesFallidosSinCortarElInforme() throws Exception {
+		String turno = LocalDate.now().plusDays(7).atTime(10, 0).toString();
+		String valida = "{\"clienteId\":" + cliente.getId() + ",\"empleadoId\":" + empleado.getId()
+				+ ",\"medioPago\":\"EFECTIVO\",\"servicios\":[{\"servicio\":\"ANTI_STRESS\",\"fechaServicio\":\"" + turno + "\"}]}";
+		String servicioNulo = "{\"clienteId\":" + cliente.getId() + ",\"empleadoId\":" + empleado.getId()
+				+ ",\"medioPago\":\"EFECTIVO\",\"servicios\":[null]}";
+		String ndjson = String.join("\n", "null", servicioNulo, valida);
+
+		String[] lineas = importarNdjson(ndjson);
+		assertEquals(4, lineas.length);
+		assertTrue(lineas[0].contains("\"fila\":1") && lineas[0].contains("se esperaba un objeto"), lineas[0]);
+		assertTrue(lineas[1].contains("\"fila\":2") && lineas[1].contains("Servicio vacío"), lineas[1]);
+		assertTrue(lineas[2].contains("\"fila\":3") && lineas[2].contains("CREADA"), lineas[2]);
+		assertTrue(lineas[3].contains("\"creadas\":1") && lineas[3].contains("\"rechazadas\":2"));
+
+		// El bloqueo del empleado no se libera a tiempo: el lote entero queda rechazado y el informe termina igual
+		ReservaService sinProxy = AopTestUtils.getTargetObject(reservaService);
+		Lock bloqueo = ((Striped<Lock>) ReflectionTestUtils.getField(sinProxy, "bloqueosEmpleado")).get(empleado.getId());
+		CountDownLatch tomado = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		Thread otraSolicitud = new Thread(() -> {
+			bloqueo.lock();
+			try {
+				tomado.countDown();
+				liberar.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				bloqueo.unlock();
+			}
+		});
+		otraSolicitud.start();
+		tomado.await();
+		ReflectionTestUtils.setField(sinProxy, "esperaBloqueoMs", 50L);
+		try {
+			String otroTurno = LocalDate.now().plusDays(7).atTime(15, 0).toString();
+			lineas = importarNdjson(valida.replace(turno, otroTurno));
+		} finally {
+			ReflectionTestUtils.setField(sinProxy, "esperaBloqueoMs", 5000L);
+			liberar.countDown();
+			otraSolicitud.join();
+		}
+		assertEquals(2, lineas.length);
+		assertTrue(lineas[0].contains("RECHAZADA") && lineas[0].contains("No se pudo guardar el lote"), lineas[0]);
+		assertTrue(lineas[1].contains("\"creadas\":0") && lineas[1].contains("\"rechazadas\":1"));
+		assertEquals(1, reservaRepository.count());
+	}
+
+	// Sin @Transactional: el resumen se actualiza en la misma transacción que cada cambio de la reserva
+	@Test
+	void testResumenIngresosSigueLosCambiosDeLaReserva() {
+		LocalDateTime turno = LocalDate.now().plusDays(8).atTime(11, 0);
+		LocalDate dia = turno.toLocalDate();
+		Reserva creada = reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("ANTI_STRESS", turno)));
+
+		List<IngresoReporte> porServicio = ingresosService.getIngresos(IngresoResumen.Granularidad.DIA,
+				IngresoResumen.Dimension.SERVICIO, dia, dia);
+		assertEquals(1, porServicio.size());
+		assertEquals("ANTI_STRESS", porServicio.get(0).getNombre());
+		assertEquals(100.0, porServicio.get(0).getMonto(), 0.01);
+
+		// Cambio de servicio: el aporte anterior se descuenta y el nuevo se suma
+		reservaService.updateReserva(creada.getId(), nuevaReserva(), List.of(servicioDTO("DESCONTRACTURANTE", turno)));
+		porServicio = ingresosService.getIngresos(IngresoResumen.Granularidad.DIA, IngresoResumen.Dimension.SERVICIO, dia, dia);
+		assertEquals(1, porServicio.size());
+		assertEquals("DESCONTRACTURANTE", porServicio.get(0).getNombre());
+		assertEquals(120.0, porServicio.get(0).getMonto(), 0.01);
+		IngresoReporte delMes = ingresosService.getIngresos(IngresoResumen.Granularidad.MES,
+				IngresoResumen.Dimension.EMPLEADO, dia, dia).stream()
+				.filter(fila -> fila.getClave().equals(String.valueOf(empleado.getId())))
+				.findFirst().get();
+		assertEquals(1L, delMes.getCantidad());
+		assertEquals(120.0, delMes.getMonto(), 0.01);
+
+		reservaService.deleteReserva(creada.getId());
+		assertTrue(ingresosService.getIngresos(IngresoResumen.Granularidad.DIA, IngresoResumen.Dimension.MEDIO_PAGO,
+				dia, dia).isEmpty());
+	}
+
+	@Test
+	void testResumenIngresosCreaLaFilaQueFaltaEnLugarDePerderElAporte() {
+		LocalDate dia = LocalDate.now().plusDays(9);
+		reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("ANTI_STRESS", dia.atTime(11, 0))));
+
+		// Otra instancia reconstruye el resumen y las filas desaparecen, pero este nodo las sigue dando por existentes
+		ingresoResumenRepository.deleteAllInBatch();
+		reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("ANTI_STRESS", dia.atTime(14, 0))));
+
+		List<IngresoReporte> porServicio = ingresosService.getIngresos(IngresoResumen.Granularidad.DIA,
+				IngresoResumen.Dimension.SERVICIO, dia, dia);
+		assertEquals(1, porServicio.size());
+		assertEquals(100.0, porServicio.get(0).getMonto(), 0.01);
+		assertEquals(1L, porServicio.get(0).getCantidad());
+
+		// La reconstrucción recupera el aporte de la primera reserva
+		IngresosService sinProxy = AopTestUtils.getTargetObject(ingresosService);
+		ReflectionTestUtils.invokeMethod(sinProxy, "reconstruir");
+		IngresoReporte delDia = ingresosService.getIngresos(IngresoResumen.Granularidad.DIA,
+				IngresoResumen.Dimension.SERVICIO, dia, dia).get(0);
+		assertEquals(200.0, delDia.getMonto(), 0.01);
+		assertEquals(2L, delDia.getCantidad());
+	}
+
+	// Sin @Transactional: la disponibilidad sale del índice, que solo ve reservas confirmadas
+	@Test
+	void testEndpointDisponibilidadDelEmpleado() throws Exception {
+		LocalDate dia = LocalDate.now().plusDays(13);
+		reservaService.createReserva(nuevaReserva(), List.of(servicioDTO("ANTI_STRESS", dia.atTime(10, 0))));
+
+		String cuerpo = mockMvc().perform(get("/api/empleados/" + empleado.getId() + "/disponibilidad")
+						.param("desde", dia.toString())
+						.param("hasta", dia.toString())
+						.with(user(cliente.getEmail()).authorities(new SimpleGrantedAuthority("ROLE_CLIENTE"))))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		// 09:00 termina justo cuando empieza el turno de las 10:00; el siguiente inicio libre es 11:00
+		assertTrue(cuerpo.contains("\"" + dia.atTime(9, 0) + ":00\""), cuerpo);
+		assertFalse(cuerpo.contains("\"" + dia.atTime(9, 15) + ":00\""), cuerpo);
+		assertFalse(cuerpo.contains("\"" + dia.atTime(10, 45) + ":00\""), cuerpo);
+		assertTrue(cuerpo.contains("\"" + dia.atTime(11, 0) + ":00\""), cuerpo);
+
+		mockMvc().perform(get("/api/empleados/" + empleado.getId() + "/disponibilidad")
+						.param("desde", dia.toString())
+						.param("hasta", dia.plusDays(40).toString())
+						.with(user(cliente.getEmail()).authorities(new SimpleGrantedAuthority("ROLE_CLIENTE"))))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testEndpointDisponibilidadDelServicio() throws Exception {
+		LocalDate dia = LocalDate.now().plusDays(14);
+
+		mockMvc().perform(get("/api/servicios/ANTI_STRESS/disponibilidad")
+						.param("desde", dia.toString())
+						.param("hasta", dia.toString())
+						.param("limite", "2")
+						.with(user(cliente.getEmail()).authorities(new SimpleGrantedAuthority("ROLE_CLIENTE"))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].inicio").value(dia.atTime(9, 0) + ":00"))
+				.andExpect(jsonPath("$[0].empleadoIds[0]").value(empleado.getId()))
+				.andExpect(jsonPath("$[1].inicio").value(dia.atTime(9, 15) + ":00"));
+
+		mockMvc().perform(get("/api/servicios/INEXISTENTE/disponibilidad")
+						.with(user(cliente.getEmail()).authorities(new SimpleGrantedAuthority("ROLE_CLIENTE"))))
+				.andExpect(status().isNotFound());
+	}
+
+	// Sin @Transactional: la agenda se invalida después del commit de cada reserva
+	@Test
+	void testAgendaDiariaSeInvalidaConLasReservasDelEmpleado() {
+		LocalDate dia = LocalDate.now().plusDays(9);
+		AgendaDiariaCache.AgendaDiaria vacia = reservaService.getAgendaDiaria(empleado.getId(), dia);
+		assertEquals(0, vacia.getCantidad());
+		assertSame(vacia, reservaService.getAgendaDiaria(empleado.getId(), dia));
+
+		Reserva reserva = nuevaReserva();
+		reserva.setFechaReserva(dia.atTime(16, 0));
+		reservaService.createReserva(reserva, List.of(servicioDTO("ANTI_STRESS", dia.atTime(16, 0))));
+
+		AgendaDiariaCache.AgendaDiaria conReserva = reservaService.getAgendaDiaria(empleado.getId(), dia);
+		assertEquals(1, conReserva.getCantidad());
+		assertNotEquals(vacia.getEtag(), conReserva.getEtag());
+	}
+
+	@Test
+	void testAgendaDiariaDetectaCambiosDeOtroNodoAlVerificarLaHuella() {
+		LocalDate dia = LocalDate.now().plusDays(9);
+		Reserva reserva = nuevaReserva();
+		reserva.setFechaReserva(dia.atTime(16, 0));
+		Reserva creada = reservaService.createReserva(reserva, List.of(servicioDTO("ANTI_STRESS", dia.atTime(16, 0))));
+		AgendaDiariaCache.AgendaDiaria conReserva = reservaService.getAgendaDiaria(empleado.getId(), dia);
+		assertEquals(1, conReserva.getCantidad());
+
+		// Otra instancia cancela la reserva: a este nodo no le llega la invalidación
+		Reserva cancelada = reservaRepository.findById(creada.getId()).get();
+		cancelada.setStatus(Reserva.Status.CANCELADA);
+		reservaRepository.save(cancelada);
+
+		// Dentro del intervalo de verificación se sigue sirviendo la agenda guardada
+		assertSame(conReserva, reservaService.getAgendaDiaria(empleado.getId(), dia));
+
+		AgendaDiariaCache cache = AopTestUtils.getTargetObject(agendaDiariaCache);
+		ReflectionTestUtils.setField(cache, "verificacionSegundos", 0L);
+		try {
+			AgendaDiariaCache.AgendaDiaria actualizada = reservaService.getAgendaDiaria(empleado.getId(), dia);
+			assertNotEquals(conReserva.getEtag(), actualizada.getEtag());
+			assertTrue(new String(actualizada.getJson(), StandardCharsets.UTF_8).contains("CANCELADA"));
+
+			// Sin cambios la huella coincide y se devuelve la misma agenda
+			assertSame(actualizada, reservaService.getAgendaDiaria(empleado.getId(), dia));
+		} finally {
+			ReflectionTestUtils.setField(cache, "verificacionSegundos", 5L);
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testAgendaDiariaDetectaUnServicioMovidoDentroDelDia() {
+		LocalDate dia = LocalDate.now().plusDays(9);
+		Reserva reserva = nuevaReserva();
+		reserva.setFechaReserva(dia.atTime(10, 0));
+		Reserva creada = reservaService.createReserva(reserva, List.of(servicioDTO("ANTI_STRESS", dia.atTime(10, 0))));
+		AgendaDiariaCache.AgendaDiaria original = reservaService.getAgendaDiaria(empleado.getId(), dia);
+		long versionOriginal = reservaRepository.findById(creada.getId()).get().getVersion();
+
+		// Solo cambia la hora del servicio: ninguna columna de la reserva cambia
+		AgendaDiariaCache cache = AopTestUtils.getTargetObject(agendaDiariaCache);
+		Map<Object, Object> agendas = ((Cache<Object, Object>) ReflectionTestUtils.getField(cache, "agendas")).asMap();
+		Map<Object, Object> deOtroNodo = new HashMap<>(agendas);
+		Reserva cambios = nuevaReserva();
+		cambios.setFechaReserva(dia.atTime(10, 0));
+		reservaService.updateReserva(creada.getId(), cambios, List.of(servicioDTO("ANTI_STRESS", dia.atTime(15, 0))));
+		assertTrue(reservaRepository.findById(creada.getId()).get().getVersion() > versionOriginal);
+
+		// Otro nodo que no recibió la invalidación sigue teniendo la agenda anterior
+		agendas.putAll(deOtroNodo);
+		assertSame(original, reservaService.getAgendaDiaria(empleado.getId(), dia));
+
+		ReflectionTestUtils.setField(cache, "verificacionSegundos", 0L);
+		try {
+			AgendaDiariaCache.AgendaDiaria actualizada = reservaService.getAgendaDiaria(empleado.getId(), dia);
+			assertNotEquals(original.getEtag(), actualizada.getEtag());
+			assertTrue(new String(actualizada.getJson(), StandardCharsets.UTF_8).contains(dia.atTime(15, 0) + ":00"));
+		} finally {
+			ReflectionTestUtils.setField(cache, "verificacionSegundos", 5L);
+		}
+	}
+
+	@Test
+	void testHashesAnterioresSiguenValidandoYSePidenRegenerar() {
+		// Hash guardado antes de la política: bcrypt sin prefijo y con el costo por defecto
+		String anterior = new BCryptPasswordEncoder().encode("secreta");
+		assertTrue(passwordEncoder.matches("secreta", anterior));
+		assertTrue(politicaContrasenas.necesitaRehash(anterior));
+
+		String nuevo = passwordEncoder.encode("secreta");
+		assertTrue(nuevo.startsWith("{bcrypt}$2a$04$"));
+		assertTrue(passwordEncoder.matches("secreta", nuevo));
+		assertFalse(politicaContrasenas.necesitaRehash(nuevo));
+	}
+
+	// Sin @Transactional: el desalojo de la identidad ocurre al confirmar el cambio
+	@Test
+	void testCambioDePasswordRechazaLaAnteriorDeInmediato() {
+		Cliente cuenta = new Cliente();
+		cuenta.setDni("55111222");
+		cuenta.setNombre("Cuenta");
+		cuenta.setApellido("Password");
+		cuenta.setEmail("password@cliente.com");
+		cuenta.setPassword("vieja");
+		Long id = clienteService.createCliente(cuenta).getId();
+		assertTrue(passwordEncoder.matches("vieja", spaUserDetailsService.buscarPorEmail("password@cliente.com").getPassword()));
+
+		Cliente cambios = new Cliente();
+		cambios.setDni("55111222");
+		cambios.setNombre("Cuenta");
+		cambios.setApellido("Password");
+		cambios.setEmail("password@cliente.com");
+		cambios.setPassword("nueva");
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			clienteService.updateCliente(id, cambios);
+			// Un login concurrente antes del commit todavía lee (y cachea) la fila anterior
+			SpaUserDetails concurrente = CompletableFuture.supplyAsync(
+					() -> spaUserDetailsService.buscarPorEmail("password@cliente.com")).join();
+			assertTrue(passwordEncoder.matches("vieja", concurrente.getPassword()));
+		});
+
+		String hash = spaUserDetailsService.buscarPorEmail("password@cliente.com").getPassword();
+		assertFalse(passwordEncoder.matches("vieja", hash));
+		assertTrue(passwordEncoder.matches("nueva", hash));
+	}
+
+	// Sin @Transactional: el índice por rol se invalida al confirmar cada escritura
+	@Test
+	void testIndicePorRolDevuelveCopiasYVence() throws Exception {
+		assertTrue(idsParaServicio("DESCONTRACTURANTE").contains(empleado.getId()));
+		// Quien recibe la lista trabaja sobre copias: modificarlas no toca el índice
+		empleadoService.getEmpleadosForServicio("DESCONTRACTURANTE").forEach(e -> e.setNombre("Modificado"));
+		assertTrue(empleadoService.getEmpleadosForServicio("DESCONTRACTURANTE").stream()
+				.noneMatch(e -> e.getNombre().equals("Modificado")));
+
+		// Cambio de rol a través del servicio: el índice lo refleja de inmediato
+		Empleado cambios = new Empleado();
+		cambios.setDni(empleado.getDni());
+		cambios.setNombre(empleado.getNombre());
+		cambios.setApellido(empleado.getApellido());
+		cambios.setEmail(empleado.getEmail());
+		cambios.setPassword(empleado.getPassword());
+		cambios.setRol(Empleado.Rol.ESTETICISTA);
+		empleadoService.updateEmpleado(empleado.getId(), cambios);
+		assertFalse(idsParaServicio("DESCONTRACTURANTE").contains(empleado.getId()));
+		assertTrue(idsParaServicio("LIMPIEZA_PROFUNDA").contains(empleado.getId()));
+
+		// Baja hecha por otra instancia (directo en la base de datos): se toma cuando el rol vence
+		empleadoRepository.deleteById(empleado.getId());
+		assertTrue(idsParaServicio("LIMPIEZA_PROFUNDA").contains(empleado.getId()));
+		Object indice = AopTestUtils.getTargetObject(empleadoService);
+		ReflectionTestUtils.setField(indice, "ttlRolesMinutes", 0L);
+		try {
+			Thread.sleep(5);
+			assertFalse(idsParaServicio("LIMPIEZA_PROFUNDA").contains(empleado.getId()));
+		} finally {
+			ReflectionTestUtils.setField(indice, "ttlRolesMinutes", 5L);
+		}
+	}
+
+	@Test
+	void testLoginLimitadoPorIp() throws Exception {
+		// ratelimit.politicas: POST /api/auth/login ip=10/min
+		for (int i = 0; i < 10; i++) {
+			assertEquals(200, intentarLogin("10.0.0.1").getStatus());
+		}
+		MockHttpServletResponse rechazada = intentarLogin("10.0.0.1");
+		assertEquals(429, rechazada.getStatus());
+		assertTrue(Integer.parseInt(rechazada.getHeader("Retry-After")) >= 1);
+		// Otra IP tiene su propia cubeta
+		assertEquals(200, intentarLogin("10.0.0.2").getStatus());
+	}
+
+	@Test
+	void testRefreshTokenSeRevocaUnaSolaVezYSobreviveALaRecarga() {
+		SpaUserDetails usuario = new SpaUserDetails(empleado, "EMPLEADO");
+		JwtClaims acceso = jwtUtil.parseToken(jwtUtil.generateToken(usuario));
+		JwtClaims refresh = jwtUtil.parseToken(jwtUtil.generateRefreshToken(usuario));
+		assertFalse(acceso.isRefresh());
+		assertTrue(refresh.isRefresh());
+		assertNotEquals(acceso.getJti(), refresh.getJti());
+
+		// Rotación: el primer uso revoca el token, el segundo se detecta como reutilización
+		assertFalse(revocacionTokens.estaRevocado(refresh.getJti()));
+		assertTrue(revocacionTokens.revocar(refresh.getJti(), refresh.getExpiration()));
+		assertFalse(revocacionTokens.revocar(refresh.getJti(), refresh.getExpiration()));
+		assertTrue(revocacionTokens.estaRevocado(refresh.getJti()));
+
+		// El filtro se reconstruye desde tokens_revocados sin perder la revocación
+		revocacionTokens.recargar();
+		assertTrue(revocacionTokens.estaRevocado(refresh.getJti()));
+		assertFalse(revocacionTokens.estaRevocado(acceso.getJti()));
+	}
+
+	@Test
+	void testMetricasCuentanSentenciasYEntidadesPorSolicitud() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/metricas-prueba");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/metricas-prueba");
+		metricasSolicitudFilter.doFilter(request, new MockHttpServletResponse(),
+				(req, res) -> clienteRepository.findAll());
+
+		DistributionSummary sentencias = meterRegistry.find("spa.solicitud.sentencias").tag("uri", "/api/metricas-prueba").summary();
+		DistributionSummary entidades = meterRegistry.find("spa.solicitud.entidades").tag("uri", "/api/metricas-prueba").summary();
+		assertEquals(1, sentencias.count());
+		assertEquals(1.0, sentencias.totalAmount(), 0.01);
+		assertEquals(1.0, entidades.totalAmount(), 0.01);
+	}
+
+	private MockHttpServletResponse intentarLogin(String ip) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+		request.setRemoteAddr(ip);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		rateLimitFilter.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
+	private List<Long> idsParaServicio(String servicio) {
+		return empleadoService.getEmpleadosForServicio(servicio).stream().map(Empleado::getId).toList();
+	}
+
+	private MockMvc mockMvc() {
+		return MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+	}
+
+	private String[] importarNdjson(String ndjson) throws Exception {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		importacionReservasService.importar(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+				ImportacionReservasService.Formato.NDJSON, salida);
+		return salida.toString(StandardCharsets.UTF_8).split("\n");
+	}
+
+	private Reserva nuevaReserva() {
+		Reserva reserva = new Reserva();
+		reserva.setCliente(cliente);
+		reserva.setEmpleado(empleado);
+		reserva.setFechaReserva(LocalDateTime.now().plusDays(5));
+		reserva.setMedioPago(Reserva.MedioPago.EFECTIVO);
+		reserva.setStatus(Reserva.Status.PENDIENTE);
+		return reserva;
+	}
+
+	private ReservaService.ReservaServicioDTO servicioDTO(String nombre, LocalDateTime fecha) {
+		ReservaService.ReservaServicioDTO dto = new ReservaService.ReservaServicioDTO();
+		dto.setServicioNombre(nombre);
+		dto.setFechaServicio(fecha);
+		return dto;
+	}
+}
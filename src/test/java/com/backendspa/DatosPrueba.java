@@ -0,0 +1,80 @@
+package com.backendspa;
+
+import com.backendspa.entity.*;
+import com.backendspa.repository.ClienteRepository;
+import com.backendspa.repository.EmpleadoRepository;
+import com.backendspa.repository.ServicioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+// Datos comunes de los tests. Cada clase usa su propio apellido (que también arma el email) y su
+// rango de DNI, así no choca con las filas de otras clases que comparten la base de datos.
+@Component
+public class DatosPrueba {
+
+	public static final String PASSWORD = "encoded_password";
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private EmpleadoRepository empleadoRepository;
+
+	@Autowired
+	private ServicioRepository servicioRepository;
+
+	// Cliente "Cliente <apellido>" con email <apellido>@cliente.com
+	public Cliente cliente(String apellido, String dni) {
+		Cliente cliente = new Cliente();
+		cliente.setDni(dni);
+		cliente.setNombre("Cliente");
+		cliente.setApellido(apellido);
+		cliente.setEmail(apellido.toLowerCase() + "@cliente.com");
+		cliente.setPassword(PASSWORD);
+		return clienteRepository.save(cliente);
+	}
+
+	// Empleado "Empleado <apellido>" con email <apellido>@empleado.com
+	public Empleado empleado(String apellido, String dni, Empleado.Rol rol) {
+		Empleado empleado = new Empleado();
+		empleado.setDni(dni);
+		empleado.setNombre("Empleado");
+		empleado.setApellido(apellido);
+		empleado.setEmail(apellido.toLowerCase() + "@empleado.com");
+		empleado.setRol(rol);
+		empleado.setPassword(PASSWORD);
+		return empleadoRepository.save(empleado);
+	}
+
+	// Quien reserva por nombre tiene que refrescar ServicioCatalog después
+	public Servicio servicio(String nombre, double precio) {
+		Servicio servicio = new Servicio();
+		servicio.setNombre(nombre);
+		servicio.setDescripcion(nombre);
+		servicio.setPrecio(precio);
+		return servicioRepository.save(servicio);
+	}
+
+	// Reserva PENDIENTE en efectivo, sin guardar, con cada servicio en la misma fecha
+	public static Reserva reserva(Cliente cliente, Empleado empleado, LocalDateTime fecha, Servicio... servicios) {
+		Reserva reserva = new Reserva();
+		reserva.setCliente(cliente);
+		reserva.setEmpleado(empleado);
+		reserva.setFechaReserva(fecha);
+		reserva.setStatus(Reserva.Status.PENDIENTE);
+		reserva.setMedioPago(Reserva.MedioPago.EFECTIVO);
+		reserva.setServicios(new ArrayList<>());
+		reserva.setPagos(new ArrayList<>());
+		for (Servicio servicio : servicios) {
+			ReservaServicio reservaServicio = new ReservaServicio();
+			reservaServicio.setReserva(reserva);
+			reservaServicio.setServicio(servicio);
+			reservaServicio.setFechaServicio(fecha);
+			reserva.getServicios().add(reservaServicio);
+		}
+		return reserva;
+	}
+}
@@ -0,0 +1,168 @@
+package com.backendspa;
+
+import com.backendspa.dto.TurnoLibre;
+import com.backendspa.entity.Empleado;
+import com.backendspa.service.AgendaIndex;
+import com.backendspa.service.DisponibilidadService;
+import com.backendspa.service.EmpleadoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Operaciones de DisponibilidadService sobre mapas de ocupación armados a mano (sin contexto de Spring).
+// Bloque i = 00:00 + 15 * i minutos: 09:00 es el 36, 16:00 el 64 (primer bit de la segunda palabra) y 20:00 el 80
+class DisponibilidadServiceTests {
+
+	private static final long EMPLEADO_A = 1L;
+	private static final long EMPLEADO_B = 2L;
+
+	private AgendaIndex agendaIndex;
+	private EmpleadoService empleadoService;
+	private DisponibilidadService disponibilidadService;
+	private LocalDate dia;
+
+	@BeforeEach
+	void setUp() {
+		agendaIndex = mock(AgendaIndex.class);
+		empleadoService = mock(EmpleadoService.class);
+		when(agendaIndex.getDuracionTurnoMinutos()).thenReturn(60);
+		when(agendaIndex.ocupacion(any(), any())).thenAnswer(invocacion -> new long[AgendaIndex.PALABRAS_POR_DIA]);
+		disponibilidadService = new DisponibilidadService(agendaIndex, empleadoService);
+		ReflectionTestUtils.setField(disponibilidadService, "apertura", LocalTime.of(9, 0));
+		ReflectionTestUtils.setField(disponibilidadService, "cierre", LocalTime.of(20, 0));
+		ReflectionTestUtils.setField(disponibilidadService, "maxDias", 31);
+		// Lejos del mínimo de 48 horas
+		dia = LocalDate.now().plusDays(10);
+	}
+
+	@Test
+	void desplazarMueveBitsEntrePalabras() {
+		long[] bits = bits(0, 63, 64, 70, 95);
+
+		assertArrayEquals(bits(62, 63, 69, 94), desplazar(bits, 1));
+		assertArrayEquals(bits(0, 6, 31), desplazar(bits, 64));
+		assertArrayEquals(bits(5, 30), desplazar(bits, 65));
+		assertArrayEquals(bits(), desplazar(bits, 96));
+	}
+
+	@Test
+	void turnoQueCruzaElLimiteDePalabraNecesitaLosCuatroBloquesLibres() {
+		// Ocupados 15:15 y 16:30: entre ambos solo entra el turno de 15:30 a 16:30 (bloques 62..65)
+		ocupar(EMPLEADO_A, dia, 61, 66);
+
+		List<Integer> inicios = bloques(disponibilidadService.getDisponibilidadEmpleado(EMPLEADO_A, dia, dia));
+
+		assertTrue(inicios.contains(57));
+		for (int bloque = 58; bloque <= 66; bloque++) {
+			assertEquals(bloque == 62, inicios.contains(bloque), "Bloque " + bloque);
+		}
+		assertTrue(inicios.contains(67));
+	}
+
+	@Test
+	void soloSeEmpiezaDentroDelHorarioDeAtencion() {
+		List<Integer> inicios = bloques(disponibilidadService.getDisponibilidadEmpleado(EMPLEADO_A, dia, dia));
+
+		// De 09:00 a 19:00: el último turno termina justo al cierre
+		assertEquals(rango(36, 76), inicios);
+	}
+
+	@Test
+	void anticipacionMinimaCortaElDiaEnElPrimerBloqueCompleto() {
+		assertEquals(53, primerInicio(dia.atTime(13, 7)));
+		assertEquals(53, primerInicio(dia.atTime(13, 15)));
+		// Antes de la apertura manda el horario; el día anterior al mínimo no tiene inicios
+		assertEquals(36, primerInicio(dia.atTime(6, 0)));
+		assertArrayEquals(bits(), iniciosLibres(dia.minusDays(1), dia.atTime(6, 0)));
+		// Después del último inicio posible el día queda vacío
+		assertArrayEquals(bits(), iniciosLibres(dia, dia.atTime(19, 1)));
+	}
+
+	@Test
+	void disponibilidadDelServicioUneLosEmpleados() {
+		when(empleadoService.getEmpleadosForServicio("ANTI_STRESS")).thenReturn(List.of(empleado(EMPLEADO_A), empleado(EMPLEADO_B)));
+		// A ocupado de 09:00 a 12:00, B de 13:00 a 20:00
+		ocupar(EMPLEADO_A, dia, rango(36, 47).stream().mapToInt(Integer::intValue).toArray());
+		ocupar(EMPLEADO_B, dia, rango(52, 79).stream().mapToInt(Integer::intValue).toArray());
+
+		List<TurnoLibre> turnos = disponibilidadService.getDisponibilidadServicio("ANTI_STRESS", dia, dia, 100);
+
+		assertEquals(rango(36, 76), bloques(turnos.stream().map(TurnoLibre::getInicio).toList()));
+		assertEquals(List.of(EMPLEADO_B), turno(turnos, 36).getEmpleadoIds());
+		assertEquals(List.of(EMPLEADO_B), turno(turnos, 47).getEmpleadoIds());
+		assertEquals(List.of(EMPLEADO_A, EMPLEADO_B), turno(turnos, 48).getEmpleadoIds());
+		assertEquals(List.of(EMPLEADO_A), turno(turnos, 49).getEmpleadoIds());
+		assertEquals(List.of(EMPLEADO_A), turno(turnos, 76).getEmpleadoIds());
+
+		// El límite corta en los primeros horarios
+		List<TurnoLibre> primeros = disponibilidadService.getDisponibilidadServicio("ANTI_STRESS", dia, dia, 3);
+		assertEquals(rango(36, 38), bloques(primeros.stream().map(TurnoLibre::getInicio).toList()));
+		assertFalse(primeros.stream().anyMatch(t -> t.getEmpleadoIds().contains(EMPLEADO_A)));
+	}
+
+	private void ocupar(long empleadoId, LocalDate fecha, int... bloques) {
+		when(agendaIndex.ocupacion(eq(empleadoId), eq(fecha))).thenAnswer(invocacion -> bits(bloques));
+	}
+
+	private long[] desplazar(long[] bits, int n) {
+		return ReflectionTestUtils.invokeMethod(disponibilidadService, "desplazar", bits, n);
+	}
+
+	private long[] iniciosLibres(LocalDate fecha, LocalDateTime minimo) {
+		return ReflectionTestUtils.invokeMethod(disponibilidadService, "iniciosLibres", EMPLEADO_A, fecha, minimo);
+	}
+
+	private int primerInicio(LocalDateTime minimo) {
+		long[] inicios = iniciosLibres(minimo.toLocalDate(), minimo);
+		return inicios[0] != 0 ? Long.numberOfTrailingZeros(inicios[0]) : 64 + Long.numberOfTrailingZeros(inicios[1]);
+	}
+
+	private static long[] bits(int... bloques) {
+		long[] bits = new long[AgendaIndex.PALABRAS_POR_DIA];
+		for (int bloque : bloques) {
+			bits[bloque >>> 6] |= 1L << (bloque & 63);
+		}
+		return bits;
+	}
+
+	private static List<Integer> rango(int desde, int hasta) {
+		List<Integer> rango = new ArrayList<>();
+		for (int bloque = desde; bloque <= hasta; bloque++) {
+			rango.add(bloque);
+		}
+		return rango;
+	}
+
+	private List<Integer> bloques(List<LocalDateTime> inicios) {
+		return inicios.stream()
+				.map(inicio -> (inicio.getHour() * 60 + inicio.getMinute()) / AgendaIndex.MINUTOS_BLOQUE)
+				.toList();
+	}
+
+	private TurnoLibre turno(List<TurnoLibre> turnos, int bloque) {
+		return turnos.stream()
+				.filter(t -> bloques(List.of(t.getInicio())).get(0) == bloque)
+				.findFirst().get();
+	}
+
+	private static Empleado empleado(long id) {
+		Empleado empleado = new Empleado();
+		empleado.setId(id);
+		return empleado;
+	}
+}
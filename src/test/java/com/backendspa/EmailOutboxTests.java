@@ -0,0 +1,176 @@
+package com.backendspa;
+
+import com.backendspa.entity.EmailOutbox;
+import com.backendspa.repository.EmailOutboxRepository;
+import com.backendspa.service.EmailOutboxWorker;
+import com.backendspa.service.EmailTransport;
+import com.backendspa.service.InMemoryEmailTransport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Sin @Transactional: el worker reclama y guarda cada fila en sus propias transacciones.
+// El sondeo periódico está apagado en el perfil de pruebas; se llama a procesarPendientes a mano.
+@SpringBootTest
+@ActiveProfiles("test")
+class EmailOutboxTests {
+
+	@Autowired
+	private EmailOutboxWorker emailOutboxWorker;
+
+	@Autowired
+	private InMemoryEmailTransport inMemoryEmailTransport;
+
+	@Autowired
+	private EmailOutboxRepository emailOutboxRepository;
+
+	@BeforeEach
+	void setUp() {
+		emailOutboxRepository.deleteAll();
+		inMemoryEmailTransport.clear();
+	}
+
+	@Test
+	void correoPendienteSeEntregaYLiberaElAdjunto() throws Exception {
+		EmailOutbox correo = guardar(EmailOutbox.Estado.PENDIENTE, LocalDateTime.now().minusSeconds(1));
+
+		emailOutboxWorker.procesarPendientes();
+
+		EmailOutbox enviado = esperarFinDelEnvio(correo.getId());
+		assertEquals(EmailOutbox.Estado.ENVIADO, enviado.getEstado());
+		assertEquals(1, enviado.getIntentos());
+		assertNotNull(enviado.getEnviadoEn());
+		assertNull(enviado.getAdjunto());
+		assertEquals(1, inMemoryEmailTransport.getEnviados().size());
+		assertEquals("cliente@outbox.com", inMemoryEmailTransport.getEnviados().get(0).getDestinatario());
+		assertEquals("factura.pdf", inMemoryEmailTransport.getEnviados().get(0).getAdjuntoNombre());
+	}
+
+	@Test
+	void correoProgramadoParaMasTardeNoSeToma() {
+		guardar(EmailOutbox.Estado.PENDIENTE, LocalDateTime.now().plusMinutes(5));
+
+		emailOutboxWorker.procesarPendientes();
+
+		assertEquals(EmailOutbox.Estado.PENDIENTE, emailOutboxRepository.findAll().get(0).getEstado());
+		assertTrue(inMemoryEmailTransport.getEnviados().isEmpty());
+	}
+
+	@Test
+	void fallosSeReintentanConBackoffExponencialYLuegoSeDescartan() throws Exception {
+		AtomicInteger llamadas = new AtomicInteger();
+		EmailOutboxWorker worker = nuevoWorker((destinatario, asunto, cuerpo, adjunto, nombre) -> {
+			llamadas.incrementAndGet();
+			throw new IOException("SendGrid respondió 503");
+		});
+		EmailOutbox correo = guardar(EmailOutbox.Estado.PENDIENTE, LocalDateTime.now().minusSeconds(1));
+
+		// max-intentos = 3, backoff inicial 30 s: 30 s después del primer fallo, 60 s después del segundo
+		long[] esperas = {30, 60};
+		for (int intento = 1; intento <= 2; intento++) {
+			LocalDateTime antes = LocalDateTime.now();
+			worker.procesarPendientes();
+			EmailOutbox fallido = esperarFinDelEnvio(correo.getId());
+			assertEquals(EmailOutbox.Estado.PENDIENTE, fallido.getEstado());
+			assertEquals(intento, fallido.getIntentos());
+			assertEquals("SendGrid respondió 503", fallido.getUltimoError());
+			long espera = Duration.between(antes, fallido.getProximoIntento()).getSeconds();
+			assertTrue(espera >= esperas[intento - 1] - 1 && espera <= esperas[intento - 1] + 1,
+					"Espera del intento " + intento + ": " + espera + " s");
+
+			// Todavía no venció el backoff: no se vuelve a tomar
+			worker.procesarPendientes();
+			assertEquals(intento, llamadas.get());
+			adelantarProximoIntento(correo.getId());
+		}
+
+		worker.procesarPendientes();
+		EmailOutbox descartado = esperarFinDelEnvio(correo.getId());
+		assertEquals(EmailOutbox.Estado.DESCARTADO, descartado.getEstado());
+		assertEquals(3, descartado.getIntentos());
+		assertEquals(3, llamadas.get());
+
+		// Una fila descartada no se reclama nunca más
+		adelantarProximoIntento(correo.getId());
+		worker.procesarPendientes();
+		Thread.sleep(100);
+		assertEquals(3, llamadas.get());
+		assertEquals(EmailOutbox.Estado.DESCARTADO, emailOutboxRepository.findById(correo.getId()).get().getEstado());
+		ReflectionTestUtils.invokeMethod(worker, "shutdown");
+	}
+
+	@Test
+	void filaEnviandoConLeaseVencidoSeRetoma() throws Exception {
+		// Otro worker la reclamó y murió antes de terminar: el lease ya venció
+		EmailOutbox abandonado = guardar(EmailOutbox.Estado.ENVIANDO, LocalDateTime.now().minusSeconds(1));
+		// Este otro sigue dentro de su lease y no se toca
+		EmailOutbox enCurso = guardar(EmailOutbox.Estado.ENVIANDO, LocalDateTime.now().plusMinutes(5));
+
+		emailOutboxWorker.procesarPendientes();
+
+		assertEquals(EmailOutbox.Estado.ENVIADO, esperarFinDelEnvio(abandonado.getId()).getEstado());
+		assertEquals(EmailOutbox.Estado.ENVIANDO, emailOutboxRepository.findById(enCurso.getId()).get().getEstado());
+		assertEquals(1, inMemoryEmailTransport.getEnviados().size());
+	}
+
+	private EmailOutbox guardar(EmailOutbox.Estado estado, LocalDateTime proximoIntento) {
+		EmailOutbox correo = new EmailOutbox();
+		correo.setDestinatario("cliente@outbox.com");
+		correo.setAsunto("Factura");
+		correo.setCuerpo("Adjuntamos su factura");
+		correo.setAdjuntoNombre("factura.pdf");
+		correo.setAdjunto("%PDF-".getBytes(StandardCharsets.US_ASCII));
+		correo.setEstado(estado);
+		correo.setIntentos(0);
+		correo.setProximoIntento(proximoIntento);
+		correo.setCreadoEn(LocalDateTime.now());
+		return emailOutboxRepository.save(correo);
+	}
+
+	private void adelantarProximoIntento(Long id) {
+		EmailOutbox correo = emailOutboxRepository.findById(id).get();
+		correo.setProximoIntento(LocalDateTime.now().minusSeconds(1));
+		emailOutboxRepository.save(correo);
+	}
+
+	// El envío corre en el pool del worker: se espera a que la fila deje de estar reclamada
+	private EmailOutbox esperarFinDelEnvio(Long id) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 10_000;
+		while (System.currentTimeMillis() < limite) {
+			EmailOutbox correo = emailOutboxRepository.findById(id).get();
+			if (correo.getEstado() != EmailOutbox.Estado.ENVIANDO) {
+				return correo;
+			}
+			Thread.sleep(20);
+		}
+		fail("El correo " + id + " sigue en ENVIANDO");
+		return null;
+	}
+
+	private EmailOutboxWorker nuevoWorker(EmailTransport transporte) {
+		EmailOutboxWorker worker = new EmailOutboxWorker(emailOutboxRepository, transporte);
+		ReflectionTestUtils.setField(worker, "hilos", 1);
+		ReflectionTestUtils.setField(worker, "capacidadCola", 10);
+		ReflectionTestUtils.setField(worker, "maxIntentos", 3);
+		ReflectionTestUtils.setField(worker, "backoffInicialSegundos", 30L);
+		ReflectionTestUtils.setField(worker, "backoffMaximoSegundos", 3600L);
+		ReflectionTestUtils.setField(worker, "leaseSegundos", 300L);
+		ReflectionTestUtils.invokeMethod(worker, "init");
+		return worker;
+	}
+}
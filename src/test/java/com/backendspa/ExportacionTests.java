@@ -0,0 +1,105 @@
+package com.backendspa;
+
+import com.backendspa.entity.*;
+import com.backendspa.repository.*;
+import com.backendspa.service.ExportacionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sin @Transactional: la exportación lee con una conexión de su propio pool y solo ve datos confirmados.
+// Los datos creados se borran en @AfterEach.
+@SpringBootTest
+@ActiveProfiles("test")
+class ExportacionTests {
+
+	private static final int RESERVAS = 30;
+
+	@Autowired
+	private DatosPrueba datosPrueba;
+
+	@Autowired
+	private ExportacionService exportacionService;
+
+	@Autowired
+	private ReservaRepository reservaRepository;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private EmpleadoRepository empleadoRepository;
+
+	@Autowired
+	private ServicioRepository servicioRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Cliente cliente;
+	private Empleado empleado;
+	private Servicio servicio;
+	private final List<Reserva> reservas = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		cliente = datosPrueba.cliente("Exportacion", "60111222");
+		empleado = datosPrueba.empleado("Exportacion", "60333444", Empleado.Rol.MASAJISTA_TERAPEUTICO);
+		servicio = datosPrueba.servicio("EXPORTACION_MASAJE", 100.0);
+
+		LocalDateTime base = LocalDateTime.now().plusDays(10).withNano(0);
+		for (int i = 0; i < RESERVAS; i++) {
+			reservas.add(reservaRepository.save(DatosPrueba.reserva(cliente, empleado, base.plusMinutes(i), servicio)));
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		reservaRepository.deleteAll(reservas);
+		empleadoRepository.delete(empleado);
+		clienteRepository.delete(cliente);
+		servicioRepository.delete(servicio);
+	}
+
+	@Test
+	void exportacionCsvRecorreLasReservasConUnSoloCursor() throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		String[] lineas = exportar();
+
+		assertTrue(lineas[0].startsWith("id,fechaReserva,status"));
+		assertEquals(RESERVAS, Arrays.stream(lineas).filter(linea -> linea.contains(",Cliente,Exportacion,")).count());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void cadaExportacionDevuelveSuConexionYSuPermiso() throws Exception {
+		// Más exportaciones seguidas que exportacion.max-concurrentes: ninguna se queda con el pool
+		for (int i = 0; i < 5; i++) {
+			assertEquals(RESERVAS, Arrays.stream(exportar()).filter(linea -> linea.contains(",Cliente,Exportacion,")).count());
+		}
+	}
+
+	private String[] exportar() throws Exception {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		exportacionService.exportarReservas(ExportacionService.Formato.CSV).orElseThrow().writeTo(salida);
+		return salida.toString(StandardCharsets.UTF_8).split("\n");
+	}
+}
@@ -0,0 +1,178 @@
+package com.backendspa;
+
+import com.backendspa.controller.FacturaController;
+import com.backendspa.entity.Cliente;
+import com.backendspa.entity.Empleado;
+import com.backendspa.entity.Reserva;
+import com.backendspa.service.FacturaPdfRenderer;
+import com.backendspa.service.FacturaService;
+import com.backendspa.service.ReservaService;
+import com.backendspa.service.ServicioCatalog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// PDF de FacturaPdfRenderer: estructura del documento, cache por contenido y ETag de GET /{invoiceNumber}/pdf
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class FacturaPdfTests {
+
+	@Autowired
+	private DatosPrueba datosPrueba;
+
+	@Autowired
+	private FacturaPdfRenderer facturaPdfRenderer;
+
+	@Autowired
+	private FacturaService facturaService;
+
+	@Autowired
+	private FacturaController facturaController;
+
+	@Autowired
+	private ReservaService reservaService;
+
+	@Autowired
+	private ServicioCatalog servicioCatalog;
+
+	private Cliente cliente;
+	private Empleado empleado;
+
+	@BeforeEach
+	void setUp() {
+		cliente = datosPrueba.cliente("Pdf", "50111222");
+		empleado = datosPrueba.empleado("Pdf", "50333444", Empleado.Rol.MASAJISTA_TERAPEUTICO);
+		datosPrueba.servicio("PDF_MASAJE", 100.0);
+		servicioCatalog.refresh();
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void pdfTieneEncabezadoXrefYTrailerValidos() {
+		byte[] contenido = facturaPdfRenderer.render(factura("INV-20261020", "Masaje (relajante) ñandú", 100.0)).getContenido();
+		String pdf = new String(contenido, StandardCharsets.ISO_8859_1);
+
+		assertTrue(pdf.startsWith("%PDF-1.4\n"));
+		assertTrue(pdf.endsWith("%%EOF\n"));
+
+		// startxref apunta a la tabla xref y cada entrada en uso, al comienzo de su objeto
+		Matcher startxref = Pattern.compile("startxref\n(\\d+)\n%%EOF\n$").matcher(pdf);
+		assertTrue(startxref.find());
+		int inicioXref = Integer.parseInt(startxref.group(1));
+		assertTrue(pdf.startsWith("xref\n0 ", inicioXref));
+		Matcher entradas = Pattern.compile("(\\d{10}) 00000 n \n").matcher(pdf.substring(inicioXref));
+		int objeto = 0;
+		while (entradas.find()) {
+			objeto++;
+			int offset = Integer.parseInt(entradas.group(1));
+			assertTrue(pdf.startsWith(objeto + " 0 obj\n", offset), "Offset incorrecto del objeto " + objeto);
+		}
+		// Catálogo, páginas, dos fuentes y un par página/contenido
+		assertEquals(6, objeto);
+		assertTrue(pdf.contains("/Size 7 /Root 1 0 R"));
+
+		// /Length del stream igual a los bytes entre stream y endstream
+		Matcher stream = Pattern.compile("<< /Length (\\d+) >>\nstream\n").matcher(pdf);
+		assertTrue(stream.find());
+		int largo = Integer.parseInt(stream.group(1));
+		assertTrue(pdf.startsWith("\nendstream", stream.end() + largo));
+
+		// Paréntesis escapados y caracteres fuera de ASCII como octales WinAnsi
+		assertTrue(pdf.contains("Masaje \\(relajante\\) \\361and\\372"));
+	}
+
+	@Test
+	void facturasConElMismoContenidoDevuelvenElPdfDeLaCache() {
+		FacturaPdfRenderer.PdfFactura primero = facturaPdfRenderer.render(factura("INV-20261021", "Masaje", 100.0));
+		FacturaPdfRenderer.PdfFactura segundo = facturaPdfRenderer.render(factura("INV-20261021", "Masaje", 100.0));
+		FacturaPdfRenderer.PdfFactura otro = facturaPdfRenderer.render(factura("INV-20261021", "Masaje", 120.0));
+
+		assertEquals(primero.getHash(), segundo.getHash());
+		assertSame(primero.getContenido(), segundo.getContenido());
+		assertNotEquals(primero.getHash(), otro.getHash());
+	}
+
+	@Test
+	void pdfDelEndpointDevuelveEtagY304SiNoCambio() {
+		LocalDate dia = LocalDate.now().plusDays(5);
+		reservar(dia);
+		String invoiceNumber = "INV-" + dia.format(DateTimeFormatter.BASIC_ISO_DATE);
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+				cliente.getEmail(), null, List.of(new SimpleGrantedAuthority("ROLE_CLIENTE"))));
+
+		ResponseEntity<?> respuesta = facturaController.getInvoicePdf(invoiceNumber, null);
+		assertEquals(HttpStatus.OK, respuesta.getStatusCode());
+		assertEquals(MediaType.APPLICATION_PDF, respuesta.getHeaders().getContentType());
+		String etag = respuesta.getHeaders().getETag();
+		byte[] contenido = ((ByteArrayResource) respuesta.getBody()).getByteArray();
+		assertEquals("\"" + facturaPdfRenderer.render(facturaDelDia(invoiceNumber)).getHash() + "\"", etag);
+		assertEquals(contenido.length, respuesta.getHeaders().getContentLength());
+		String disposicion = respuesta.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION);
+		assertTrue(disposicion.startsWith("inline;"), disposicion);
+		assertTrue(disposicion.contains("Factura_" + invoiceNumber + ".pdf"), disposicion);
+
+		ResponseEntity<?> noModificado = facturaController.getInvoicePdf(invoiceNumber, etag);
+		assertEquals(HttpStatus.NOT_MODIFIED, noModificado.getStatusCode());
+		assertEquals(etag, noModificado.getHeaders().getETag());
+		assertNull(noModificado.getBody());
+
+		// Un ETag viejo recibe el PDF completo
+		ResponseEntity<?> otroEtag = facturaController.getInvoicePdf(invoiceNumber, "\"otro\"");
+		assertEquals(HttpStatus.OK, otroEtag.getStatusCode());
+		assertArrayEquals(contenido, ((ByteArrayResource) otroEtag.getBody()).getByteArray());
+	}
+
+	private void reservar(LocalDate dia) {
+		Reserva reserva = new Reserva();
+		reserva.setCliente(cliente);
+		reserva.setEmpleado(empleado);
+		reserva.setFechaReserva(dia.atTime(9, 0));
+		reserva.setMedioPago(Reserva.MedioPago.EFECTIVO);
+		reserva.setStatus(Reserva.Status.PENDIENTE);
+		ReservaService.ReservaServicioDTO dto = new ReservaService.ReservaServicioDTO();
+		dto.setServicioNombre("PDF_MASAJE");
+		dto.setFechaServicio(dia.atTime(10, 0));
+		reservaService.createReserva(reserva, List.of(dto));
+	}
+
+	private FacturaService.Factura facturaDelDia(String invoiceNumber) {
+		return facturaService.generarFactura(cliente, invoiceNumber);
+	}
+
+	private FacturaService.Factura factura(String invoiceNumber, String servicio, double precio) {
+		List<FacturaService.Factura.Linea> lineas = List.of(new FacturaService.Factura.Linea(servicio, precio, "2026-10-20T10:00"));
+		return new FacturaService.Factura(invoiceNumber, cliente, "2026-10-20T09:00", lineas,
+				Reserva.MedioPago.EFECTIVO, precio, 0, precio);
+	}
+}
@@ -0,0 +1,164 @@
+package com.backendspa;
+
+import com.backendspa.entity.Cliente;
+import com.backendspa.entity.Empleado;
+import com.backendspa.repository.ClienteRepository;
+import com.backendspa.repository.EmpleadoRepository;
+import com.backendspa.security.JwtClaims;
+import com.backendspa.security.JwtRequestFilter;
+import com.backendspa.security.JwtUtil;
+import com.backendspa.security.SpaUserDetails;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Cache de claims de JwtUtil y principal sin estado de JwtRequestFilter
+@SpringBootTest
+@ActiveProfiles("test")
+class JwtAutenticacionTests {
+
+	@Autowired
+	private DatosPrueba datosPrueba;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private JwtRequestFilter jwtRequestFilter;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private EmpleadoRepository empleadoRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Value("${jwt.secret}")
+	private String secret;
+
+	private Cliente cliente;
+	private Empleado empleado;
+
+	@BeforeEach
+	void setUp() {
+		cliente = datosPrueba.cliente("Jwt", "40111222");
+		empleado = datosPrueba.empleado("Jwt", "40333444", Empleado.Rol.MASAJISTA_TERAPEUTICO);
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+		clienteRepository.delete(cliente);
+		empleadoRepository.delete(empleado);
+	}
+
+	@Test
+	void tokenDeLaCacheSeDevuelveSoloParaElMismoToken() {
+		String token = jwtUtil.generateToken(new SpaUserDetails(cliente, "CLIENTE"));
+		JwtClaims claims = jwtUtil.parseToken(token);
+		assertSame(claims, jwtUtil.parseToken(token));
+
+		// Mismo header y firma con otro payload: la firma coincide con una entrada de la cache,
+		// pero el token no, así que se verifica de nuevo y se rechaza
+		String[] partes = token.split("\\.");
+		String payload = "{\"sub\":\"" + empleado.getEmail() + "\",\"id\":" + empleado.getId()
+				+ ",\"roles\":[\"ROLE_ADMIN\"],\"exp\":" + (System.currentTimeMillis() / 1000 + 3600) + "}";
+		String alterado = partes[0] + "."
+				+ Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+				+ "." + partes[2];
+		assertThrows(JwtException.class, () -> jwtUtil.parseToken(alterado));
+		assertSame(claims, jwtUtil.parseToken(token));
+	}
+
+	@Test
+	void principalSinEstadoSeArmaConLosClaimsDelToken() throws Exception {
+		String token = jwtUtil.generateToken(new SpaUserDetails(empleado, "EMPLEADO"));
+		jwtUtil.parseToken(token);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		SpaUserDetails principal = autenticar(token);
+
+		assertEquals(empleado.getId(), principal.getId());
+		assertEquals(empleado.getEmail(), principal.getUsername());
+		assertEquals("EMPLEADO", principal.getUserType());
+		assertEquals(List.of("ROLE_MASAJISTA_TERAPEUTICO"), autoridades());
+		assertEquals(0, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void principalSinEstadoDeUnCliente() throws Exception {
+		SpaUserDetails principal = autenticar(jwtUtil.generateToken(new SpaUserDetails(cliente, "CLIENTE")));
+
+		assertEquals(cliente.getId(), principal.getId());
+		assertEquals("CLIENTE", principal.getUserType());
+		assertEquals(List.of("ROLE_CLIENTE"), autoridades());
+	}
+
+	@Test
+	void tokenSinIdNiRolesSeResuelveContraLaBaseDeDatos() throws Exception {
+		// Token emitido antes de que JwtUtil escribiera los claims id y roles
+		long ahora = System.currentTimeMillis();
+		String token = Jwts.builder()
+				.setSubject(empleado.getEmail())
+				.setIssuedAt(new Date(ahora))
+				.setExpiration(new Date(ahora + 60000))
+				.signWith(SignatureAlgorithm.HS512, secret)
+				.compact();
+		JwtClaims claims = jwtUtil.parseToken(token);
+		assertNull(claims.getId());
+		assertTrue(claims.getRoles().isEmpty());
+
+		SpaUserDetails principal = autenticar(token);
+
+		assertEquals(empleado.getId(), principal.getId());
+		assertEquals("EMPLEADO", principal.getUserType());
+		assertEquals(List.of("ROLE_MASAJISTA_TERAPEUTICO"), autoridades());
+	}
+
+	private SpaUserDetails autenticar(String token) throws Exception {
+		SecurityContextHolder.clearContext();
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reservas");
+		request.addHeader("Authorization", "Bearer " + token);
+		jwtRequestFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		assertNotNull(authentication, "El filtro no autenticó la solicitud");
+		return (SpaUserDetails) authentication.getPrincipal();
+	}
+
+	private List<String> autoridades() {
+		return SecurityContextHolder.getContext().getAuthentication().getAuthorities().stream()
+				.map(GrantedAuthority::getAuthority)
+				.toList();
+	}
+}
@@ -0,0 +1,51 @@
+package com.backendspa;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+// Con Tomcat real: server.forward-headers-strategy=native lo aplica la RemoteIpValve, que MockMvc no ejecuta.
+// Base de datos propia para no recrear el esquema del contexto que comparten los demás tests.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:proxydb;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"management.server.port=0"
+})
+@ActiveProfiles("test")
+class RateLimitProxyTests {
+
+	@LocalServerPort
+	private int puerto;
+
+	private final HttpClient http = HttpClient.newHttpClient();
+
+	@Test
+	void limitePorIpUsaLaIpDeXForwardedForDetrasDeUnProxyInterno() throws Exception {
+		// Las solicitudes llegan desde 127.0.0.1 (proxy interno): cada cliente tiene su cubeta de 10/min
+		for (int i = 0; i < 10; i++) {
+			assertNotEquals(429, login("203.0.113.7").statusCode());
+		}
+		HttpResponse<String> rechazada = login("203.0.113.7");
+		assertEquals(429, rechazada.statusCode());
+		assertNotEquals(429, login("203.0.113.8").statusCode());
+		// Los proxies internos que agregan su IP al final de la cadena se saltean
+		assertEquals(429, login("203.0.113.7, 10.0.0.5").statusCode());
+	}
+
+	private HttpResponse<String> login(String xForwardedFor) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + puerto + "/api/auth/login"))
+				.header("Content-Type", "application/json")
+				.header("X-Forwarded-For", xForwardedFor)
+				.POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"nadie@proxy.com\",\"password\":\"x\"}"))
+				.build();
+		return http.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
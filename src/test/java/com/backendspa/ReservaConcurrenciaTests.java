@@ -0,0 +1,187 @@
+package com.backendspa;
+
+import com.backendspa.entity.*;
+import com.backendspa.repository.*;
+import com.backendspa.service.ReservaService;
+import com.backendspa.service.ServicioCatalog;
+import com.google.common.util.concurrent.Striped;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sin @Transactional: cada escritor confirma su propia transacción, como en producción.
+// Los datos creados se borran en @AfterEach.
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservaConcurrenciaTests {
+
+	private static final int ESCRITORES = 64;
+	private static final int EMPLEADOS = 4;
+
+	@Autowired
+	private DatosPrueba datosPrueba;
+
+	@Autowired
+	private ReservaService reservaService;
+
+	@Autowired
+	private ReservaRepository reservaRepository;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private EmpleadoRepository empleadoRepository;
+
+	@Autowired
+	private ServicioRepository servicioRepository;
+
+	@Autowired
+	private ServicioCatalog servicioCatalog;
+
+	private Cliente cliente;
+	private List<Empleado> empleados;
+	private Servicio servicio;
+	private final List<Long> reservasCreadas = new CopyOnWriteArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		cliente = datosPrueba.cliente("Concurrencia", "30999000");
+		empleados = new ArrayList<>();
+		for (int i = 0; i < EMPLEADOS; i++) {
+			empleados.add(datosPrueba.empleado("Concurrencia" + i, "3099910" + i, Empleado.Rol.TERAPEUTA_SPA));
+		}
+		servicio = datosPrueba.servicio("CONCURRENCIA_MASAJE", 100.0);
+		servicioCatalog.refresh();
+	}
+
+	@AfterEach
+	void tearDown() {
+		reservasCreadas.forEach(reservaService::deleteReserva);
+		empleadoRepository.deleteAll(empleados);
+		clienteRepository.delete(cliente);
+		servicioRepository.delete(servicio);
+		servicioCatalog.refresh();
+	}
+
+	@Test
+	void escritoresConcurrentesNoSuperponenTurnosDelMismoEmpleado() throws Exception {
+		// 16 escritores por empleado, con inicios cada 30 minutos: cada turno de 60 minutos
+		// choca con el anterior y el siguiente, y todos arrancan a la vez
+		LocalDateTime base = LocalDate.now().plusDays(7).atTime(9, 0);
+		CountDownLatch largada = new CountDownLatch(1);
+		Map<String, Integer> errores = new ConcurrentHashMap<>();
+		ExecutorService pool = Executors.newFixedThreadPool(ESCRITORES);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < ESCRITORES; i++) {
+			Empleado empleado = empleados.get(i % EMPLEADOS);
+			LocalDateTime turno = base.plusMinutes(30L * (i / EMPLEADOS));
+			tareas.add(pool.submit(() -> {
+				largada.await();
+				try {
+					reservasCreadas.add(reservaService.createReserva(nuevaReserva(empleado, turno), List.of(servicioDTO(turno))).getId());
+				} catch (IllegalArgumentException e) {
+					// Rechazo del índice o, si la carrera llegó a la base, de la restricción única
+					boolean superpuesta = e.getMessage().equals("El empleado ya tiene un turno reservado en el horario " + turno)
+							|| e.getMessage().equals("El empleado ya tiene un turno reservado en ese horario");
+					errores.merge(superpuesta ? "superpuesta" : "IllegalArgumentException: " + e.getMessage(), 1, Integer::sum);
+				} catch (RuntimeException e) {
+					errores.merge(e.getClass().getSimpleName() + ": " + e.getMessage(), 1, Integer::sum);
+				}
+				return null;
+			}));
+		}
+		largada.countDown();
+		for (Future<?> tarea : tareas) {
+			tarea.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		// Solo se rechazan reservas por superposición, nunca por otros errores
+		assertEquals(ESCRITORES, reservasCreadas.size() + errores.getOrDefault("superpuesta", 0), "Errores: " + errores);
+
+		for (Empleado empleado : empleados) {
+			List<LocalDateTime> turnos = new ArrayList<>();
+			for (Reserva reserva : reservaRepository.findByEmpleadoId(empleado.getId())) {
+				reserva.getServicios().forEach(rs -> turnos.add(rs.getFechaServicio()));
+			}
+			turnos.sort(null);
+			assertFalse(turnos.isEmpty(), "El empleado " + empleado.getId() + " no obtuvo ningún turno");
+			for (int i = 1; i < turnos.size(); i++) {
+				assertTrue(!turnos.get(i).isBefore(turnos.get(i - 1).plusMinutes(60)),
+						"Turnos superpuestos: " + turnos.get(i - 1) + " y " + turnos.get(i));
+			}
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void escritoresDeEmpleadosDistintosNoSeEsperan() throws Exception {
+		// Se toma a mano el bloqueo de un empleado, como si tuviera una reserva en curso
+		ReservaService sinProxy = AopTestUtils.getTargetObject(reservaService);
+		Striped<Lock> bloqueos = (Striped<Lock>) ReflectionTestUtils.getField(sinProxy, "bloqueosEmpleado");
+		Empleado ocupado = empleados.get(0);
+		Empleado libre = empleados.stream()
+				.filter(empleado -> bloqueos.get(empleado.getId()) != bloqueos.get(ocupado.getId()))
+				.findFirst()
+				.orElseThrow(() -> new AssertionError("Todos los empleados cayeron en la misma franja"));
+		LocalDateTime turno = LocalDate.now().plusDays(8).atTime(10, 0);
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		Lock bloqueo = bloqueos.get(ocupado.getId());
+		bloqueo.lock();
+		Future<Reserva> delOcupado;
+		try {
+			delOcupado = pool.submit(() -> reservaService.createReserva(nuevaReserva(ocupado, turno), List.of(servicioDTO(turno))));
+			// El otro empleado reserva el mismo horario mientras el primero sigue bloqueado
+			Reserva delLibre = pool.submit(() -> reservaService.createReserva(nuevaReserva(libre, turno), List.of(servicioDTO(turno))))
+					.get(5, TimeUnit.SECONDS);
+			reservasCreadas.add(delLibre.getId());
+			assertFalse(delOcupado.isDone(), "La reserva del empleado bloqueado no esperó su turno");
+		} finally {
+			bloqueo.unlock();
+		}
+		reservasCreadas.add(delOcupado.get(5, TimeUnit.SECONDS).getId());
+		pool.shutdown();
+	}
+
+	private Reserva nuevaReserva(Empleado empleado, LocalDateTime turno) {
+		Reserva reserva = new Reserva();
+		reserva.setCliente(cliente);
+		reserva.setEmpleado(empleado);
+		reserva.setFechaReserva(turno);
+		reserva.setMedioPago(Reserva.MedioPago.EFECTIVO);
+		reserva.setStatus(Reserva.Status.PENDIENTE);
+		return reserva;
+	}
+
+	private ReservaService.ReservaServicioDTO servicioDTO(LocalDateTime fecha) {
+		ReservaService.ReservaServicioDTO dto = new ReservaService.ReservaServicioDTO();
+		dto.setServicioNombre(servicio.getNombre());
+		dto.setFechaServicio(fecha);
+		return dto;
+	}
+}
@@ -0,0 +1,118 @@
+package com.backendspa;
+
+import com.backendspa.entity.*;
+import com.backendspa.repository.*;
+import com.backendspa.service.ReservaService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ReservaFetchTests {
+
+	// Más de un lote de pagos (100 reservas por consulta)
+	private static final int RESERVAS = 150;
+
+	@Autowired
+	private DatosPrueba datosPrueba;
+
+	@Autowired
+	private ReservaService reservaService;
+
+	@Autowired
+	private ReservaRepository reservaRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Cliente cliente;
+
+	@BeforeEach
+	void setUp() {
+		cliente = datosPrueba.cliente("Fetch", "20111222");
+		Empleado empleado = datosPrueba.empleado("Fetch", "20333444", Empleado.Rol.MASAJISTA_TERAPEUTICO);
+		Servicio masaje = datosPrueba.servicio("FETCH_MASAJE", 100.0);
+		Servicio facial = datosPrueba.servicio("FETCH_FACIAL", 80.0);
+
+		LocalDateTime base = LocalDateTime.now().plusDays(10).withNano(0);
+		for (int i = 0; i < RESERVAS; i++) {
+			Reserva reserva = DatosPrueba.reserva(cliente, empleado, base.plusMinutes(i), masaje, facial);
+			Pago pago = new Pago();
+			pago.setCliente(cliente);
+			pago.setReserva(reserva);
+			pago.setMontoTotal(180.0);
+			pago.setMedioPago(Reserva.MedioPago.EFECTIVO);
+			pago.setFechaPago(reserva.getFechaReserva().toLocalDate());
+			reserva.getPagos().add(pago);
+			reservaRepository.save(reserva);
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void paginaDeReservasUsaUnNumeroAcotadoDeConsultas() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		ReservaService.PaginaReservas<Reserva> pagina = reservaService.getReservasPage(null, RESERVAS);
+		// Todos los pagos quedan cargados antes de salir del servicio
+		assertTrue(pagina.getReservas().stream().allMatch(reserva -> Hibernate.isInitialized(reserva.getPagos())));
+		int servicios = 0;
+		int pagos = 0;
+		for (Reserva reserva : pagina.getReservas()) {
+			reserva.getCliente().getNombre();
+			reserva.getEmpleado().getNombre();
+			for (ReservaServicio reservaServicio : reserva.getServicios()) {
+				reservaServicio.getServicio().getNombre();
+				servicios++;
+			}
+			pagos += reserva.getPagos().size();
+		}
+
+		assertEquals(RESERVAS, pagina.getReservas().size());
+		assertEquals(RESERVAS * 2, servicios);
+		assertEquals(RESERVAS, pagos);
+		// claves de la página + reservas con cliente/empleado/servicios + dos lotes de pagos
+		assertEquals(4, statistics.getPrepareStatementCount(),
+				"Sentencias ejecutadas: " + statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void reservasDelClienteNoDisparanConsultasPorReserva() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		List<Reserva> reservas = reservaService.getReservasByClienteId(cliente.getId());
+		assertTrue(reservas.stream().allMatch(reserva -> Hibernate.isInitialized(reserva.getPagos())));
+		reservas.forEach(reserva -> {
+			reserva.getEmpleado().getNombre();
+			reserva.getServicios().forEach(rs -> rs.getServicio().getNombre());
+			reserva.getPagos().size();
+		});
+
+		assertEquals(RESERVAS, reservas.size());
+		// reservas con cliente/empleado/servicios + dos lotes de pagos, ninguna carga diferida después
+		assertEquals(3, statistics.getPrepareStatementCount(),
+				"Sentencias ejecutadas: " + statistics.getPrepareStatementCount());
+	}
+}
@@ -0,0 +1,131 @@
+package com.backendspa;
+
+import com.backendspa.entity.*;
+import com.backendspa.service.IngresosService;
+import com.backendspa.service.ReservaService;
+import com.backendspa.service.ServicioCatalog;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Idas y vueltas a la base de datos por reserva, antes y después de los lotes JDBC. La misma
+ * reserva se guarda con los lotes de la configuración y con la sesión en jdbc batch size 0, que
+ * ejecuta cada INSERT por separado como pasaba con IDENTITY.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ReservaLotesTests {
+
+	// 1 reserva + 5 servicios + 20 bloques de agenda + 3 pagos
+	private static final int FILAS_POR_RESERVA = 29;
+
+	@Autowired
+	private DatosPrueba datosPrueba;
+
+	@Autowired
+	private ReservaService reservaService;
+
+	@Autowired
+	private ServicioCatalog servicioCatalog;
+
+	@Autowired
+	private IngresosService ingresosService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Cliente cliente;
+	private Empleado empleado;
+
+	@BeforeEach
+	void setUp() {
+		cliente = datosPrueba.cliente("Lotes", "30111222");
+		empleado = datosPrueba.empleado("Lotes", "30333444", Empleado.Rol.MASAJISTA_TERAPEUTICO);
+		datosPrueba.servicio("LOTES_MASAJE", 100.0);
+		datosPrueba.servicio("LOTES_FACIAL", 100.0);
+		servicioCatalog.refresh();
+	}
+
+	@Test
+	void reservaDeCincoServiciosEnTresDiasSeInsertaPorLotes() {
+		LocalDate dia = LocalDate.now().plusDays(20);
+		// Primera reserva en los mismos días: deja cargada la agenda y reservados los bloques de ids
+		reservaService.createReserva(nuevaReserva(), servicios(dia, 9));
+
+		long conLotes = sentenciasDeAlta(dia, 14);
+
+		Session session = entityManager.unwrap(Session.class);
+		session.setJdbcBatchSize(0);
+		long sinLotes;
+		try {
+			sinLotes = sentenciasDeAlta(dia, 16);
+		} finally {
+			session.setJdbcBatchSize(null);
+		}
+
+		// Sin lotes: al menos una sentencia por fila insertada
+		assertTrue(sinLotes >= FILAS_POR_RESERVA, "Sentencias de alta sin lotes: " + sinLotes);
+		// Con lotes: uno por tabla, con margen para una renovación de ids de id_generadores
+		assertTrue(conLotes <= 6, "Sentencias de alta con lotes: " + conLotes);
+		assertTrue(conLotes * 4 < sinLotes, "Sentencias de alta: " + conLotes + " con lotes, " + sinLotes + " sin lotes");
+	}
+
+	/*
+	 * Sentencias para guardar una reserva de cinco servicios, sin contar un UPDATE por fila de
+	 * ingresos_resumen que toca la reserva (ya creadas por la primera reserva del test)
+	 */
+	private long sentenciasDeAlta(LocalDate dia, int hora) {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		Reserva reserva = reservaService.createReserva(nuevaReserva(), servicios(dia, hora));
+
+		assertEquals(5, reserva.getServicios().size());
+		assertEquals(3, reserva.getPagos().size());
+		assertEquals(FILAS_POR_RESERVA, statistics.getEntityInsertCount());
+		return statistics.getPrepareStatementCount() - ingresosService.aportes(reserva).size();
+	}
+
+	private Reserva nuevaReserva() {
+		Reserva reserva = new Reserva();
+		reserva.setCliente(cliente);
+		reserva.setEmpleado(empleado);
+		reserva.setFechaReserva(LocalDateTime.now().plusDays(20));
+		reserva.setMedioPago(Reserva.MedioPago.EFECTIVO);
+		reserva.setStatus(Reserva.Status.PENDIENTE);
+		return reserva;
+	}
+
+	// Cinco servicios de una hora repartidos en tres días a partir de la hora indicada
+	private List<ReservaService.ReservaServicioDTO> servicios(LocalDate dia, int hora) {
+		List<ReservaService.ReservaServicioDTO> servicios = new ArrayList<>();
+		int[][] turnos = {{0, 0}, {0, 1}, {1, 0}, {1, 1}, {2, 0}};
+		for (int[] turno : turnos) {
+			ReservaService.ReservaServicioDTO dto = new ReservaService.ReservaServicioDTO();
+			dto.setServicioNombre(turno[1] == 0 ? "LOTES_MASAJE" : "LOTES_FACIAL");
+			dto.setFechaServicio(dia.plusDays(turno[0]).atTime(hora + turno[1], 0));
+			servicios.add(dto);
+		}
+		return servicios;
+	}
+}